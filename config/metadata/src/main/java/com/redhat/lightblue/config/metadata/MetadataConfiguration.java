@@ -35,6 +35,8 @@ public class MetadataConfiguration {
     private String metadataFactoryMethod;
     private String databaseConfigurationClass;
     private Object databaseConfiguration;
+    private Integer cacheSize;
+    private Long cachePollInterval;
     private LinkedTreeMap<String, Object> properties;
 
     /**
@@ -100,6 +102,38 @@ public class MetadataConfiguration {
         this.databaseConfiguration = databaseConfiguration;
     }
 
+    /**
+     * @return the cacheSize
+     */
+    public Integer getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets the maximum number of entity metadata versions to cache. If not set, metadata is not cached.
+     *
+     * @param cacheSize the cacheSize to set
+     */
+    public void setCacheSize(Integer cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @return the cachePollInterval
+     */
+    public Long getCachePollInterval() {
+        return cachePollInterval;
+    }
+
+    /**
+     * Sets the minimum number of milliseconds between checks for metadata changes made by other nodes.
+     *
+     * @param cachePollInterval the cachePollInterval to set
+     */
+    public void setCachePollInterval(Long cachePollInterval) {
+        this.cachePollInterval = cachePollInterval;
+    }
+
     /**
      * @return the properties
      */
@@ -21,6 +21,7 @@ package com.redhat.lightblue.config.metadata;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.gson.Gson;
+import com.redhat.lightblue.metadata.CachingMetadata;
 import com.redhat.lightblue.metadata.Metadata;
 import com.redhat.lightblue.metadata.MetadataConstants;
 import com.redhat.lightblue.metadata.parser.Extensions;
@@ -104,7 +105,13 @@ public final class MetadataManager {
 
         Method m = metadataClass.getDeclaredMethod(configuration.getMetadataFactoryMethod(), databaseConfigurationClass);
 
-        metadata = (Metadata) m.invoke(null, configuration.getDatabaseConfiguration());
+        Metadata md = (Metadata) m.invoke(null, configuration.getDatabaseConfiguration());
+        if (configuration.getCacheSize() != null && configuration.getCacheSize() > 0) {
+            md = new CachingMetadata(md, configuration.getCacheSize(),
+                    configuration.getCachePollInterval() == null ? CachingMetadata.DEFAULT_POLL_INTERVAL
+                    : configuration.getCachePollInterval());
+        }
+        metadata = md;
     }
 
     public static Metadata getMetadata() throws IOException, ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
@@ -18,13 +18,18 @@
  */
 package com.redhat.lightblue;
 
+import java.util.Locale;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
+import com.redhat.lightblue.crud.CountMode;
+import com.redhat.lightblue.crud.CrudConstants;
 import com.redhat.lightblue.query.Projection;
 import com.redhat.lightblue.query.QueryExpression;
 import com.redhat.lightblue.query.Sort;
+import com.redhat.lightblue.util.Error;
 
 /**
  * Request to find documents
@@ -36,6 +41,7 @@ public class FindRequest extends Request {
     private Sort sort;
     private Long from;
     private Long to;
+    private CountMode countMode = CountMode.EXACT;
 
     /**
      * The query
@@ -111,6 +117,22 @@ public class FindRequest extends Request {
         to = l;
     }
 
+    /**
+     * Specifies how the number of matching documents is computed. Defaults to EXACT. Paginated clients that do not need
+     * an exact count can request an estimate, or skip counting altogether.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * Specifies how the number of matching documents is computed. Defaults to EXACT. Paginated clients that do not need
+     * an exact count can request an estimate, or skip counting altogether.
+     */
+    public void setCountMode(CountMode mode) {
+        countMode = mode == null ? CountMode.EXACT : mode;
+    }
+
     /**
      * Returns JSON representation of this
      */
@@ -132,6 +154,9 @@ public class FindRequest extends Request {
             arr.add(to);
             node.set("range", arr);
         }
+        if (countMode != CountMode.EXACT) {
+            node.put("count", countMode.toString().toLowerCase(Locale.ENGLISH));
+        }
         return node;
     }
 
@@ -158,6 +183,14 @@ public class FindRequest extends Request {
             req.from = ((ArrayNode) x).get(0).asLong();
             req.to = ((ArrayNode) x).get(1).asLong();
         }
+        x = node.get("count");
+        if (x != null) {
+            try {
+                req.countMode = CountMode.valueOf(x.asText().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw Error.get(CrudConstants.ERR_INVALID_COUNT_MODE, x.asText());
+            }
+        }
         return req;
     }
 }
@@ -0,0 +1,114 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.redhat.lightblue.crud.CrudConstants;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.DocumentSink;
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.JsonDoc;
+import com.redhat.lightblue.util.JsonUtils;
+
+/**
+ * Writes a find response to a JSON generator as the documents are found. The documents are written to the "processed"
+ * array of the response as they are received, and the remaining response fields are written by finish() once the
+ * operation is complete. Use it as the sink of Mediator.find(FindRequest,DocumentSink):
+ *
+ * <pre>
+ *     FindResponseWriter writer = new FindResponseWriter(generator);
+ *     writer.finish(mediator.find(request, writer));
+ * </pre>
+ *
+ * If the operation fails after the writer is constructed, finish(Error) completes the response with the error, so the
+ * output is still a valid JSON document.
+ */
+public class FindResponseWriter implements DocumentSink {
+
+    private static final String PROPERTY_PROCESSED = "processed";
+
+    private final JsonGenerator generator;
+    private boolean finished = false;
+
+    /**
+     * Constructs a writer, and starts writing the response
+     */
+    public FindResponseWriter(JsonGenerator generator) throws IOException {
+        this.generator = generator;
+        if (generator.getCodec() == null) {
+            generator.setCodec(JsonUtils.getObjectCodec());
+        }
+        generator.writeStartObject();
+        generator.writeArrayFieldStart(PROPERTY_PROCESSED);
+    }
+
+    @Override
+    public void write(List<DocCtx> documents) {
+        try {
+            for (DocCtx doc : documents) {
+                JsonDoc output = doc.getOutputDocument();
+                if (output != null) {
+                    generator.writeTree(output.getRoot());
+                }
+            }
+            generator.flush();
+        } catch (IOException e) {
+            throw Error.get(CrudConstants.ERR_CANNOT_WRITE_RESPONSE, e.toString());
+        }
+    }
+
+    /**
+     * Writes the rest of the response, and completes the JSON document. The entity data of the response, if any, is
+     * ignored.
+     */
+    public void finish(Response response) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Response is already finished");
+        }
+        finished = true;
+        generator.writeEndArray();
+        JsonNode node = response.toJson();
+        for (Iterator<Map.Entry<String, JsonNode>> itr = node.fields(); itr.hasNext();) {
+            Map.Entry<String, JsonNode> entry = itr.next();
+            if (!PROPERTY_PROCESSED.equals(entry.getKey())) {
+                generator.writeFieldName(entry.getKey());
+                generator.writeTree(entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    /**
+     * Completes the response as a failed response with the given error
+     */
+    public void finish(Error error) throws IOException {
+        Response response = new Response();
+        response.setStatus(OperationStatus.ERROR);
+        response.getErrors().add(error);
+        finish(response);
+    }
+}
@@ -31,6 +31,8 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
 import com.redhat.lightblue.hooks.HookManager;
 
+import com.redhat.lightblue.metadata.RoleSet;
+
 import com.redhat.lightblue.util.JsonDoc;
 import com.redhat.lightblue.util.Error;
 
@@ -48,11 +50,13 @@ public abstract class CRUDOperationContext implements MetadataResolver, Serializ
     private final JsonNodeFactory nodeFactory;
     private final String entityName;
     private final Set<String> callerRoles;
+    private transient RoleSet callerRoleSet;
     private List<DocCtx> documents;
     private final List<Error> errors = new ArrayList<>();
     private final Map<String, Object> propertyMap = new HashMap<>();
     private final Operation operation;
     private final HookManager hookManager;
+    private CountMode countMode = CountMode.EXACT;
 
     public CRUDOperationContext(Operation op,
                                 String entityName,
@@ -97,6 +101,17 @@ public abstract class CRUDOperationContext implements MetadataResolver, Serializ
         return callerRoles;
     }
 
+    /**
+     * Returns the roles the caller is in as a role set. The role set is built once for the context, and access checks
+     * using it do not need to look up the role names.
+     */
+    public RoleSet getCallerRoleSet() {
+        if (callerRoleSet == null) {
+            callerRoleSet = RoleSet.of(callerRoles);
+        }
+        return callerRoleSet;
+    }
+
     /**
      * Returns the list of documents in the context
      */
@@ -130,6 +145,16 @@ public abstract class CRUDOperationContext implements MetadataResolver, Serializ
         }
     }
 
+    /**
+     * Removes all documents from the context. Streaming operations use this to drop a batch of documents once it is
+     * processed.
+     */
+    public void clearDocuments() {
+        if (documents != null) {
+            documents.clear();
+        }
+    }
+
     /**
      * Returns the current operation
      */
@@ -137,6 +162,20 @@ public abstract class CRUDOperationContext implements MetadataResolver, Serializ
         return operation;
     }
 
+    /**
+     * Determines how the number of matching documents is computed for find operations. Defaults to EXACT.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * Determines how the number of matching documents is computed for find operations. Defaults to EXACT.
+     */
+    public void setCountMode(CountMode mode) {
+        countMode = mode == null ? CountMode.EXACT : mode;
+    }
+
     /**
      * Returns a list of documents with no errors
      */
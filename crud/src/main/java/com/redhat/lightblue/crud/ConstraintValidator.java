@@ -33,13 +33,13 @@ import com.redhat.lightblue.util.Registry;
 import com.redhat.lightblue.util.Path;
 import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.KeyValueCursor;
+import com.redhat.lightblue.util.TreeVisitor;
 
 import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.metadata.FieldTreeNode;
 import com.redhat.lightblue.metadata.FieldConstraint;
 import com.redhat.lightblue.metadata.EntityConstraint;
 import com.redhat.lightblue.metadata.Field;
-import com.redhat.lightblue.metadata.FieldCursor;
 
 public class ConstraintValidator {
 
@@ -192,26 +192,34 @@ public class ConstraintValidator {
         }
     }
 
-    private void checkConstraints(JsonDoc doc, Path currentValuePath, JsonNode currentValue) {
+    private void checkConstraints(final JsonDoc doc, final Path currentValuePath, final JsonNode currentValue) {
         LOGGER.debug("checking field constraints");
-        FieldCursor cursor = md.getFieldCursor();
-        while (cursor.next()) {
-            currentFieldNode = cursor.getCurrentNode();
-            currentFieldPath = cursor.getCurrentPath();
-            LOGGER.debug("checking field {}", currentFieldPath);
-            Error.push(currentFieldPath.toString());
-            try {
+        md.getFieldCursor().accept(new TreeVisitor<FieldTreeNode>() {
+            @Override
+            public boolean enter(Path path, FieldTreeNode node) {
                 List<FieldConstraint> constraints = null;
-                if (currentFieldNode instanceof Field) {
-                    constraints = ((Field) currentFieldNode).getConstraints();
+                if (node instanceof Field) {
+                    constraints = ((Field) node).getConstraints();
                 }
+                // Only fields with constraints need a copy of the path
                 if (constraints != null && !constraints.isEmpty()) {
-                    checkFieldConstraints(doc, constraints, currentValuePath, currentValue);
+                    currentFieldNode = node;
+                    currentFieldPath = path.immutableCopy();
+                    LOGGER.debug("checking field {}", currentFieldPath);
+                    Error.push(currentFieldPath);
+                    try {
+                        checkFieldConstraints(doc, constraints, currentValuePath, currentValue);
+                    } finally {
+                        Error.pop();
+                    }
                 }
-            } finally {
-                Error.pop();
+                return true;
             }
-        }
+
+            @Override
+            public void leave(Path path, FieldTreeNode node) {
+            }
+        });
     }
 
     private void checkFieldConstraints(JsonDoc doc, List<FieldConstraint> constraints, Path currentValuePath, JsonNode currentValue) {
@@ -253,7 +261,7 @@ public class ConstraintValidator {
             fieldValues.next();
             currentValuePath = fieldValues.getCurrentKey();
             currentValue = fieldValues.getCurrentValue();
-            Error.push(currentValuePath.toString());
+            Error.push(currentValuePath);
             try {
                 ((FieldConstraintValueChecker) checker).checkConstraint(this,
                         currentFieldNode,
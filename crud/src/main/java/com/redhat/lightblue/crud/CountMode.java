@@ -0,0 +1,33 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud;
+
+/**
+ * Determines how the number of documents matching a find request is computed
+ *
+ * <ul>
+ * <li>EXACT: The exact number of matching documents is computed</li>
+ * <li>ESTIMATE: The number of matching documents is estimated. The back-end may return a lower bound, or a count
+ * obtained from collection statistics, if that is cheaper than an exact count</li>
+ * <li>NONE: The number of matching documents is not computed, and the match count is returned as 0</li>
+ * </ul>
+ */
+public enum CountMode {
+    EXACT, ESTIMATE, NONE;
+}
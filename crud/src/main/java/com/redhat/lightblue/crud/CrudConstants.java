@@ -67,6 +67,10 @@ public final class CrudConstants {
     public static final String ERR_CANNOT_LOAD_METADATA = "crud:CannotLoadMetadata";
     public static final String ERR_METADATA_APPEARS_TWICE = "crud:MetadataAppearsTwice";
 
+    public static final String ERR_CANNOT_WRITE_RESPONSE = "crud:CannotWriteResponse";
+
+    public static final String ERR_INVALID_COUNT_MODE = "crud:InvalidCountMode";
+
     private CrudConstants() {
 
     }
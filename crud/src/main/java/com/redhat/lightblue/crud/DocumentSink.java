@@ -0,0 +1,34 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud;
+
+import java.util.List;
+
+/**
+ * Receives documents of a streaming operation in batches. The caller discards the documents after the call returns, so
+ * an implementation should write or process them immediately instead of keeping references to them.
+ */
+public interface DocumentSink {
+
+    /**
+     * Receives the next batch of documents. The output document of each DocCtx is the version to be returned to the
+     * caller, and it can be null if the document is not to be returned.
+     */
+    void write(List<DocCtx> documents);
+}
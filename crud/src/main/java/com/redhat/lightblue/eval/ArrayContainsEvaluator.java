@@ -42,9 +42,11 @@ import com.redhat.lightblue.query.Value;
 public class ArrayContainsEvaluator extends QueryEvaluator {
     private final ArrayContainsExpression expr;
     private final SimpleArrayElement elem;
+    private final CompiledPath arrayPath;
 
     public ArrayContainsEvaluator(ArrayContainsExpression expr, FieldTreeNode context) {
         this.expr = expr;
+        arrayPath = new CompiledPath(expr.getArray());
         FieldTreeNode node = context.resolve(expr.getArray());
         if (node == null) {
             throw new EvaluationError(expr);
@@ -64,7 +66,7 @@ public class ArrayContainsEvaluator extends QueryEvaluator {
     @Override
     public boolean evaluate(QueryEvaluationContext ctx) {
         boolean ret = false;
-        JsonNode node = ctx.getNode(expr.getArray());
+        JsonNode node = arrayPath.get(ctx.getNode());
         if (node instanceof ArrayNode) {
             ArrayNode array = (ArrayNode) node;
             List<Value> values = expr.getValues();
@@ -126,4 +128,9 @@ public class ArrayContainsEvaluator extends QueryEvaluator {
         }
         return returnValue;
     }
+
+    @Override
+    public boolean marksArrayElements() {
+        return true;
+    }
 }
@@ -33,6 +33,7 @@ import com.redhat.lightblue.util.Path;
 
 public class ArrayMatchEvaluator extends QueryEvaluator {
     private final Path field;
+    private final CompiledPath fieldPath;
     private final QueryEvaluator ev;
     private final ObjectArrayElement elem;
 
@@ -40,6 +41,7 @@ public class ArrayMatchEvaluator extends QueryEvaluator {
                                FieldTreeNode context) {
         // field needs to be resolved relative to the current context
         field = expr.getArray();
+        fieldPath = new CompiledPath(field);
         FieldTreeNode node = context.resolve(field);
         if (node == null) {
             throw new EvaluationError(expr);
@@ -60,7 +62,7 @@ public class ArrayMatchEvaluator extends QueryEvaluator {
     @Override
     public boolean evaluate(QueryEvaluationContext ctx) {
         boolean ret = false;
-        JsonNode node = ctx.getNode(field);
+        JsonNode node = fieldPath.get(ctx.getNode());
         if (node instanceof ArrayNode) {
             ArrayNode array = (ArrayNode) node;
             int index = 0;
@@ -87,4 +89,9 @@ public class ArrayMatchEvaluator extends QueryEvaluator {
         ctx.setResult(ret);
         return ret;
     }
+
+    @Override
+    public boolean marksArrayElements() {
+        return true;
+    }
 }
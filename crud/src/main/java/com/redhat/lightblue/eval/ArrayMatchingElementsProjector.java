@@ -48,4 +48,9 @@ public class ArrayMatchingElementsProjector extends ArrayProjector {
         }
         return null;
     }
+
+    @Override
+    public boolean usesMatchingElements() {
+        return true;
+    }
 }
@@ -88,4 +88,9 @@ public abstract class ArrayProjector extends Projector {
      * interpreted by this projector.
      */
     protected abstract Boolean projectArray(Path p, QueryEvaluationContext ctx);
+
+    @Override
+    public boolean usesMatchingElements() {
+        return nestedProjector.usesMatchingElements();
+    }
 }
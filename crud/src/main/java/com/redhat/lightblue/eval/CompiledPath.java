@@ -0,0 +1,96 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.eval;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import com.redhat.lightblue.util.JsonDoc;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * A field path prepared for repeated lookups in documents. The field names and array indexes of the path are
+ * extracted once, so a lookup is a sequence of direct child accesses. Paths containing '*', $this or $parent, and
+ * lookups that don't follow the simple name/index steps, are resolved using JsonDoc.get.
+ */
+final class CompiledPath {
+
+    private final Path path;
+    private final String[] names;
+    private final int[] indexes;
+    private final boolean simple;
+
+    public CompiledPath(Path path) {
+        this.path = path;
+        int n = path.numSegments();
+        names = new String[n];
+        indexes = new int[n];
+        boolean s = true;
+        for (int i = 0; i < n; i++) {
+            String name = path.head(i);
+            names[i] = name;
+            if (name.equals(Path.ANY) || name.equals(Path.THIS) || name.equals(Path.PARENT)) {
+                s = false;
+            }
+            indexes[i] = -1;
+            if (path.isIndex(i)) {
+                try {
+                    indexes[i] = Integer.parseInt(name);
+                } catch (NumberFormatException e) {
+                    s = false;
+                }
+            }
+        }
+        simple = s;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the node at this path relative to the given node, or null if there is no such node
+     */
+    public JsonNode get(JsonNode root) {
+        if (simple) {
+            JsonNode node = root;
+            for (int i = 0; i < names.length && node != null; i++) {
+                if (node instanceof ObjectNode) {
+                    node = node.get(names[i]);
+                } else if (node instanceof ArrayNode) {
+                    if (indexes[i] < 0) {
+                        return JsonDoc.get(root, path);
+                    }
+                    node = node.get(indexes[i]);
+                } else {
+                    node = null;
+                }
+            }
+            return node;
+        } else {
+            return JsonDoc.get(root, path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
@@ -18,10 +18,15 @@
  */
 package com.redhat.lightblue.eval;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -31,6 +36,7 @@ import com.redhat.lightblue.metadata.FieldTreeNode;
 import com.redhat.lightblue.metadata.FieldAccess;
 import com.redhat.lightblue.metadata.EntityAccess;
 import com.redhat.lightblue.metadata.Field;
+import com.redhat.lightblue.metadata.RoleSet;
 
 import com.redhat.lightblue.query.Projection;
 import com.redhat.lightblue.query.ProjectionList;
@@ -40,17 +46,73 @@ import com.redhat.lightblue.util.Path;
 import com.redhat.lightblue.util.JsonDoc;
 import com.redhat.lightblue.util.KeyValueCursor;
 
+/**
+ * Evaluates field access rules for a caller. The inaccessible fields and the exclusion projections depend only on the
+ * entity metadata, the caller roles and the operation, so they are computed once for every metadata instance and role
+ * set, and cached. The cache is keyed on the metadata instance, and it is weak, so metadata reloaded by the metadata
+ * layer gets a new cache entry, and the entries of discarded metadata are dropped.
+ */
 public final class FieldAccessRoleEvaluator {
+
+    /**
+     * Maximum number of distinct role sets to cache for an entity. The cache for the entity is cleared when it is
+     * full.
+     */
+    static final int MAX_ROLE_SETS = 256;
+
+    private static final Map<EntityMetadata, ConcurrentMap<Set<String>, RoleAccess>> CACHE
+            = Collections.synchronizedMap(new WeakHashMap<EntityMetadata, ConcurrentMap<Set<String>, RoleAccess>>());
+
     private final EntityMetadata md;
     private final Set<String> roles;
+    private RoleSet roleSet;
+    private RoleAccess roleAccess;
 
     public static enum Operation {
         insert, update, insert_and_update, find
     };
 
+    /**
+     * Inaccessible fields and exclusion projections of all operations, for a role set
+     */
+    private static final class RoleAccess {
+        private final Set<Path>[] inaccessibleFields;
+        private final Projection[] excludedFields;
+
+        @SuppressWarnings("unchecked")
+        public RoleAccess(FieldAccessRoleEvaluator eval) {
+            Operation[] ops = Operation.values();
+            inaccessibleFields = new Set[ops.length];
+            excludedFields = new Projection[ops.length];
+            for (Operation op : ops) {
+                inaccessibleFields[op.ordinal()] = new HashSet<>();
+            }
+            FieldCursor cursor = eval.md.getFieldCursor();
+            while (cursor.next()) {
+                FieldTreeNode fn = cursor.getCurrentNode();
+                if (fn instanceof Field) {
+                    Path path = null;
+                    for (Operation op : ops) {
+                        if (!eval.hasAccess((Field) fn, op)) {
+                            if (path == null) {
+                                path = cursor.getCurrentPath();
+                            }
+                            inaccessibleFields[op.ordinal()].add(path);
+                        }
+                    }
+                }
+            }
+            for (Operation op : ops) {
+                Set<Path> fields = Collections.unmodifiableSet(inaccessibleFields[op.ordinal()]);
+                inaccessibleFields[op.ordinal()] = fields;
+                excludedFields[op.ordinal()] = toExclusion(fields);
+            }
+        }
+    }
+
     public FieldAccessRoleEvaluator(EntityMetadata md, Set<String> callerRoles) {
         this.md = md;
-        this.roles = callerRoles;
+        this.roles = callerRoles == null ? Collections.<String>emptySet() : callerRoles;
     }
 
     /**
@@ -82,18 +144,11 @@ public final class FieldAccessRoleEvaluator {
     }
 
     /**
-     * Returns a set of fields that are inaccessible to the user for the given operation
+     * Returns a set of fields that are inaccessible to the user for the given operation. The returned set is shared,
+     * and cannot be modified.
      */
     public Set<Path> getInaccessibleFields(Operation op) {
-        FieldCursor cursor = md.getFieldCursor();
-        Set<Path> fields = new HashSet<Path>();
-        while (cursor.next()) {
-            FieldTreeNode fn = cursor.getCurrentNode();
-            if (fn instanceof Field && !hasAccess((Field) fn, op)) {
-                fields.add(cursor.getCurrentPath());
-            }
-        }
-        return fields;
+        return getRoleAccess().inaccessibleFields[op.ordinal()];
     }
 
     /**
@@ -135,7 +190,33 @@ public final class FieldAccessRoleEvaluator {
      * Returns a projection that excludes the fields the caller does not have access to based on the operation
      */
     public Projection getExcludedFields(Operation op) {
-        Set<Path> inaccessibleFields = getInaccessibleFields(op);
+        return getRoleAccess().excludedFields[op.ordinal()];
+    }
+
+    private RoleAccess getRoleAccess() {
+        if (roleAccess == null) {
+            ConcurrentMap<Set<String>, RoleAccess> entityCache;
+            synchronized (CACHE) {
+                entityCache = CACHE.get(md);
+                if (entityCache == null) {
+                    entityCache = new ConcurrentHashMap<>();
+                    CACHE.put(md, entityCache);
+                }
+            }
+            RoleAccess access = entityCache.get(roles);
+            if (access == null) {
+                access = new RoleAccess(this);
+                if (entityCache.size() >= MAX_ROLE_SETS) {
+                    entityCache.clear();
+                }
+                entityCache.put(Collections.unmodifiableSet(new HashSet<>(roles)), access);
+            }
+            roleAccess = access;
+        }
+        return roleAccess;
+    }
+
+    private static Projection toExclusion(Set<Path> inaccessibleFields) {
         Projection ret;
         if (inaccessibleFields.isEmpty()) {
             ret = null;
@@ -156,16 +237,19 @@ public final class FieldAccessRoleEvaluator {
     private boolean hasAccess(Field f, Operation op) {
         FieldAccess faccess = f.getAccess();
         EntityAccess eaccess = md.getAccess();
+        if (roleSet == null) {
+            roleSet = RoleSet.of(roles);
+        }
         switch (op) {
             case insert:
-                return (faccess.getInsert().isEmpty() ? eaccess.getInsert() : faccess.getInsert()).hasAccess(roles);
+                return (faccess.getInsert().isEmpty() ? eaccess.getInsert() : faccess.getInsert()).hasAccess(roleSet);
             case update:
-                return (faccess.getUpdate().isEmpty() ? eaccess.getUpdate() : faccess.getUpdate()).hasAccess(roles);
+                return (faccess.getUpdate().isEmpty() ? eaccess.getUpdate() : faccess.getUpdate()).hasAccess(roleSet);
             case insert_and_update:
-                return (faccess.getInsert().isEmpty() ? eaccess.getInsert() : faccess.getInsert()).hasAccess(roles)
-                        && (faccess.getUpdate().isEmpty() ? eaccess.getUpdate() : faccess.getUpdate()).hasAccess(roles);
+                return (faccess.getInsert().isEmpty() ? eaccess.getInsert() : faccess.getInsert()).hasAccess(roleSet)
+                        && (faccess.getUpdate().isEmpty() ? eaccess.getUpdate() : faccess.getUpdate()).hasAccess(roleSet);
             case find:
-                return (faccess.getFind().isEmpty() ? eaccess.getFind() : faccess.getFind()).hasAccess(roles);
+                return (faccess.getFind().isEmpty() ? eaccess.getFind() : faccess.getFind()).hasAccess(roleSet);
         }
         return false;
     }
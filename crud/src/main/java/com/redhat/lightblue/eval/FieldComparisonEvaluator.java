@@ -36,6 +36,8 @@ public class FieldComparisonEvaluator extends QueryEvaluator {
     private final FieldTreeNode rfieldMd;
     private final Path relativePath;
     private final Path rfieldRelativePath;
+    private final CompiledPath fieldPath;
+    private final CompiledPath rfieldPath;
     private final BinaryComparisonOperator operator;
 
     /**
@@ -48,6 +50,8 @@ public class FieldComparisonEvaluator extends QueryEvaluator {
     public FieldComparisonEvaluator(FieldComparisonExpression expr, FieldTreeNode context) {
         this.relativePath = expr.getField();
         this.rfieldRelativePath = expr.getRfield();
+        fieldPath = new CompiledPath(relativePath);
+        rfieldPath = new CompiledPath(rfieldRelativePath);
         fieldMd = context.resolve(relativePath);
         if (fieldMd == null) {
             throw new EvaluationError(expr, CrudConstants.ERR_FIELD_NOT_THERE + relativePath);
@@ -62,15 +66,17 @@ public class FieldComparisonEvaluator extends QueryEvaluator {
 
     @Override
     public boolean evaluate(QueryEvaluationContext ctx) {
-        LOGGER.debug("evaluate {} {} {}", relativePath, operator, rfieldRelativePath);
-        JsonNode lvalueNode = ctx.getNode(relativePath);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("evaluate {} {} {}", relativePath, operator, rfieldRelativePath);
+        }
+        JsonNode lvalueNode = fieldPath.get(ctx.getNode());
         Object ldocValue;
         if (lvalueNode != null) {
             ldocValue = fieldMd.getType().fromJson(lvalueNode);
         } else {
             ldocValue = null;
         }
-        JsonNode rvalueNode = ctx.getNode(rfieldRelativePath);
+        JsonNode rvalueNode = rfieldPath.get(ctx.getNode());
         Object rdocValue;
         if (rvalueNode != null) {
             rdocValue = rfieldMd.getType().fromJson(rvalueNode);
@@ -51,4 +51,14 @@ public class FieldProjector extends Projector {
         }
         return null;
     }
+
+    @Override
+    protected boolean isFieldOnly() {
+        for (int i = 0; i < field.numSegments(); i++) {
+            if (field.isIndex(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -60,4 +60,24 @@ public class ListProjector extends Projector {
         }
         return null;
     }
+
+    @Override
+    public boolean usesMatchingElements() {
+        for (Projector x : items) {
+            if (x.usesMatchingElements()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean isFieldOnly() {
+        for (Projector x : items) {
+            if (!x.isFieldOnly()) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -19,7 +19,6 @@
 package com.redhat.lightblue.eval;
 
 import java.util.List;
-import java.util.ArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,15 +33,16 @@ public class NaryLogicalExpressionEvaluator extends QueryEvaluator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NaryLogicalExpressionEvaluator.class);
 
-    private final List<QueryEvaluator> evaluators;
+    private final QueryEvaluator[] evaluators;
     private final NaryLogicalOperator operator;
 
     public NaryLogicalExpressionEvaluator(NaryLogicalExpression expr,
                                           FieldTreeNode context) {
         List<QueryExpression> queries = expr.getQueries();
-        evaluators = new ArrayList<>(queries.size());
+        evaluators = new QueryEvaluator[queries.size()];
+        int i = 0;
         for (QueryExpression q : queries) {
-            evaluators.add(QueryEvaluator.getInstance(q, context));
+            evaluators[i++] = QueryEvaluator.getInstance(q, context);
         }
         operator = expr.getOp();
     }
@@ -74,4 +74,14 @@ public class NaryLogicalExpressionEvaluator extends QueryEvaluator {
         ctx.setResult(ret);
         return ret;
     }
+
+    @Override
+    public boolean marksArrayElements() {
+        for (QueryEvaluator q : evaluators) {
+            if (q.marksArrayElements()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -37,12 +37,16 @@ public class NaryRelationalExpressionEvaluator extends QueryEvaluator {
     private static final Logger LOGGER = LoggerFactory.getLogger(NaryRelationalExpressionEvaluator.class);
 
     private final Path field;
+    private final CompiledPath fieldPath;
     private final FieldTreeNode fieldMd;
     private final NaryRelationalOperator operator;
     private final List<Object> values;
+    private final ValueSet valueSet;
+    private final boolean hasNull;
 
     public NaryRelationalExpressionEvaluator(NaryRelationalExpression expr, FieldTreeNode context) {
         field = expr.getField();
+        fieldPath = new CompiledPath(field);
         fieldMd = context.resolve(field);
         if (fieldMd == null) {
             throw new EvaluationError(expr, CrudConstants.ERR_FIELD_NOT_THERE + field);
@@ -50,37 +54,31 @@ public class NaryRelationalExpressionEvaluator extends QueryEvaluator {
         operator = expr.getOp();
         List<Value> l = expr.getValues();
         values = new ArrayList<Object>(l.size());
+        List<Object> nonNullValues = new ArrayList<Object>(l.size());
+        boolean nullValue = false;
         for (Value x : l) {
             if (x != null) {
                 values.add(x.getValue());
+                if (x.getValue() == null) {
+                    nullValue = true;
+                } else {
+                    nonNullValues.add(x.getValue());
+                }
             }
         }
+        hasNull = nullValue;
+        valueSet = ValueSet.getInstance(fieldMd.getType(), nonNullValues);
         LOGGER.debug("ctor {} {} {}", expr.getField(), operator, values);
     }
 
     @Override
     public boolean evaluate(QueryEvaluationContext ctx) {
-        LOGGER.debug("evaluate {} {} {}", field, operator, values);
-        JsonNode valueNode = ctx.getNode(field);
-        Object docValue;
-        if (valueNode != null) {
-            docValue = fieldMd.getType().fromJson(valueNode);
-        } else {
-            docValue = null;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("evaluate {} {} {}", field, operator, values);
         }
+        JsonNode valueNode = fieldPath.get(ctx.getNode());
         LOGGER.debug(" value={}", valueNode);
-        boolean in = false;
-        for (Object x : values) {
-            if (docValue == null) {
-                if (x == null) {
-                    in = true;
-                    break;
-                }
-            } else if (x != null && fieldMd.getType().compare(docValue, x) == 0) {
-                in = true;
-                break;
-            }
-        }
+        boolean in = valueNode == null ? hasNull : valueSet.contains(valueNode);
         LOGGER.debug(" result={}", in);
         ctx.setResult(operator.apply(in));
         return ctx.getResult();
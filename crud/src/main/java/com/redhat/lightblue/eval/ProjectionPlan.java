@@ -0,0 +1,166 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.eval;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.FieldTreeNode;
+import com.redhat.lightblue.metadata.ObjectField;
+import com.redhat.lightblue.metadata.SimpleArrayElement;
+import com.redhat.lightblue.metadata.SimpleField;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Projection of documents with a projector whose decisions depend only on the field, not on the array indexes or the
+ * query evaluation context. The decision for a metadata field is computed the first time the field is seen in a
+ * document, and kept in a tree that mirrors the metadata. Projecting a document is then a walk of the document guided
+ * by that tree, without any path matching.
+ *
+ * The result is the same as Projector.project for such projectors.
+ */
+final class ProjectionPlan {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProjectionPlan.class);
+
+    private final Projector projector;
+    private final Step root;
+
+    /**
+     * The decision for a metadata field, and the steps for its children
+     */
+    private static final class Step {
+        private final FieldTreeNode md;
+        private final Path path;
+        private final boolean include;
+        private Map<String, Step> children;
+        private Step element;
+
+        public Step(FieldTreeNode md, Path path, boolean include) {
+            this.md = md;
+            this.path = path;
+            this.include = include;
+        }
+    }
+
+    public ProjectionPlan(Projector projector, Path rootPath, FieldTreeNode rootNode) {
+        this.projector = projector;
+        this.root = new Step(rootNode, rootPath, true);
+    }
+
+    /**
+     * Projects the document root node
+     */
+    public ObjectNode project(JsonNode doc, JsonNodeFactory factory) {
+        return projectObject(root, doc, factory);
+    }
+
+    private ObjectNode projectObject(Step step, JsonNode node, JsonNodeFactory factory) {
+        ObjectNode ret = factory.objectNode();
+        for (Iterator<Map.Entry<String, JsonNode>> itr = node.fields(); itr.hasNext();) {
+            Map.Entry<String, JsonNode> entry = itr.next();
+            Step child = getChild(step, entry.getKey());
+            if (child == null) {
+                LOGGER.warn("Unknown field {}", entry.getKey());
+            } else if (child.include) {
+                JsonNode value = entry.getValue();
+                if (child.md instanceof ObjectField) {
+                    if (value instanceof ObjectNode) {
+                        ret.set(entry.getKey(), projectObject(child, value, factory));
+                    } else {
+                        LOGGER.warn("Expecting object node, found {} for {}", value.getClass().getName(), child.path);
+                    }
+                } else if (child.md instanceof SimpleField) {
+                    if (value.isValueNode()) {
+                        ret.set(entry.getKey(), value);
+                    } else {
+                        LOGGER.warn("Expecting value node, found {} for {}", value.getClass().getName(), child.path);
+                    }
+                } else if (child.md instanceof ArrayField) {
+                    if (value instanceof ArrayNode) {
+                        ret.set(entry.getKey(), projectArray(child, value, factory));
+                    } else {
+                        LOGGER.warn("Expecting array node, found {} for {}", value.getClass().getName(), child.path);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private ArrayNode projectArray(Step step, JsonNode node, JsonNodeFactory factory) {
+        ArrayNode ret = factory.arrayNode();
+        Step element = getElement(step);
+        if (element.include) {
+            for (Iterator<JsonNode> itr = node.elements(); itr.hasNext();) {
+                JsonNode value = itr.next();
+                if (element.md instanceof SimpleArrayElement) {
+                    ret.add(value);
+                } else if (value instanceof ObjectNode) {
+                    ret.add(projectObject(element, value, factory));
+                } else {
+                    ret.add(factory.objectNode());
+                }
+            }
+        }
+        return ret;
+    }
+
+    private Step getChild(Step step, String name) {
+        if (step.children == null) {
+            step.children = new HashMap<>();
+        }
+        Step child = step.children.get(name);
+        if (child == null && !step.children.containsKey(name)) {
+            FieldTreeNode md = null;
+            for (Iterator<? extends FieldTreeNode> itr = step.md.getChildren(); itr.hasNext();) {
+                FieldTreeNode x = itr.next();
+                if (name.equals(x.getName())) {
+                    md = x;
+                    break;
+                }
+            }
+            if (md != null) {
+                Path path = new Path(step.path, new Path(name));
+                child = new Step(md, path, Boolean.TRUE.equals(projector.project(path, null)));
+            }
+            step.children.put(name, child);
+        }
+        return child;
+    }
+
+    private Step getElement(Step step) {
+        if (step.element == null) {
+            Path path = new Path(step.path, Path.ANYPATH);
+            FieldTreeNode md = ((ArrayField) step.md).getElement();
+            step.element = new Step(md, path, Boolean.TRUE.equals(projector.project(path, null)));
+        }
+        return step.element;
+    }
+}
@@ -53,6 +53,7 @@ public abstract class Projector {
 
     private final FieldTreeNode rootMdNode;
     private final Path rootMdPath;
+    private ProjectionPlan plan;
 
     protected Projector(Path ctxPath, FieldTreeNode ctx) {
         this.rootMdNode = ctx;
@@ -73,6 +74,23 @@ public abstract class Projector {
      */
     public abstract Boolean project(Path p, QueryEvaluationContext ctx);
 
+    /**
+     * Returns if this projector uses the array elements matched by the query. If not, the query does not have to be
+     * evaluated for a document before projecting it.
+     */
+    public boolean usesMatchingElements() {
+        return false;
+    }
+
+    /**
+     * Returns if the result of <code>project</code> depends only on the field, and not on the array indexes in the
+     * field path or on the query evaluation context. Documents are projected using a ProjectionPlan for such
+     * projectors.
+     */
+    protected boolean isFieldOnly() {
+        return false;
+    }
+
     /**
      * Builds a projector using the given projection and entity metadata
      */
@@ -104,6 +122,12 @@ public abstract class Projector {
     public JsonDoc project(JsonDoc doc,
                            JsonNodeFactory factory,
                            QueryEvaluationContext ctx) {
+        if (isFieldOnly()) {
+            if (plan == null) {
+                plan = new ProjectionPlan(this, rootMdPath, rootMdNode);
+            }
+            return new JsonDoc(plan.project(doc.getRoot(), factory));
+        }
         JsonNodeCursor cursor = doc.cursor();
         cursor.firstChild();
 
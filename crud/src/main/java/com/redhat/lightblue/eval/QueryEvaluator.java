@@ -37,6 +37,14 @@ public abstract class QueryEvaluator {
 
     public abstract boolean evaluate(QueryEvaluationContext ctx);
 
+    /**
+     * Returns if evaluating this query records the matching array elements in the evaluation context. If not, the
+     * evaluation context of a document is the same after evaluating this query as before.
+     */
+    public boolean marksArrayElements() {
+        return false;
+    }
+
     public QueryEvaluationContext evaluate(JsonDoc doc) {
         QueryEvaluationContext ctx = new QueryEvaluationContext(doc.getRoot());
         evaluate(ctx);
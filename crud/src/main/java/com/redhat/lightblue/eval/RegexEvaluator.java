@@ -18,6 +18,7 @@
  */
 package com.redhat.lightblue.eval;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -33,9 +34,21 @@ public class RegexEvaluator extends QueryEvaluator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RegexEvaluator.class);
 
+    /**
+     * Maximum number of compiled patterns to keep. The cache is cleared when it is full.
+     */
+    private static final int MAX_CACHED_PATTERNS = 1024;
+
+    /**
+     * Compiled patterns, keyed by the regex and flags. The same few regular expressions are used by most requests, and
+     * a compiled pattern is immutable, so it is shared between the evaluators.
+     */
+    private static final ConcurrentHashMap<PatternKey, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
     private final FieldTreeNode fieldMd;
     private final Pattern regex;
     private final Path relativePath;
+    private final CompiledPath fieldPath;
 
     /**
      * Constructs evaluator for {field op value} style comparison
@@ -46,6 +59,7 @@ public class RegexEvaluator extends QueryEvaluator {
      */
     public RegexEvaluator(RegexMatchExpression expr, FieldTreeNode context) {
         this.relativePath = expr.getField();
+        fieldPath = new CompiledPath(relativePath);
         fieldMd = context.resolve(relativePath);
         if (fieldMd == null) {
             throw new EvaluationError(expr, CrudConstants.ERR_FIELD_NOT_THERE + relativePath);
@@ -63,14 +77,14 @@ public class RegexEvaluator extends QueryEvaluator {
         if (expr.isDotAll()) {
             flags |= Pattern.DOTALL;
         }
-        regex = Pattern.compile(expr.getRegex(), flags);
+        regex = getPattern(expr.getRegex(), flags);
         LOGGER.debug("ctor {} {}", relativePath, regex);
     }
 
     @Override
     public boolean evaluate(QueryEvaluationContext ctx) {
         LOGGER.debug("evaluate {} {}", relativePath, regex);
-        JsonNode valueNode = ctx.getNode(relativePath);
+        JsonNode valueNode = fieldPath.get(ctx.getNode());
         Object docValue;
         if (valueNode != null) {
             docValue = fieldMd.getType().fromJson(valueNode);
@@ -84,4 +98,44 @@ public class RegexEvaluator extends QueryEvaluator {
         }
         return ctx.getResult();
     }
+
+    /**
+     * Returns the compiled pattern for the regex and flags, compiling it if it is not already in the cache
+     */
+    static Pattern getPattern(String regex, int flags) {
+        PatternKey key = new PatternKey(regex, flags);
+        Pattern pattern = PATTERNS.get(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            if (PATTERNS.size() >= MAX_CACHED_PATTERNS) {
+                PATTERNS.clear();
+            }
+            PATTERNS.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    private static final class PatternKey {
+        private final String regex;
+        private final int flags;
+
+        public PatternKey(String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof PatternKey) {
+                PatternKey k = (PatternKey) o;
+                return flags == k.flags && regex.equals(k.regex);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return regex.hashCode() * 31 + flags;
+        }
+    }
 }
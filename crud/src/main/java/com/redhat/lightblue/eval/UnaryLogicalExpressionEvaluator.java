@@ -45,4 +45,9 @@ public class UnaryLogicalExpressionEvaluator extends QueryEvaluator {
         ctx.setResult(operator.apply(evaluator.evaluate(ctx)));
         return ctx.getResult();
     }
+
+    @Override
+    public boolean marksArrayElements() {
+        return evaluator.marksArrayElements();
+    }
 }
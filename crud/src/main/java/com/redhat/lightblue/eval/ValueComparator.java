@@ -0,0 +1,182 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.eval;
+
+import java.text.ParseException;
+import java.util.Date;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.StringType;
+
+/**
+ * Compares document values to a literal value of a field. The literal is converted to the field type once. Integer,
+ * double, string and date values are compared without converting the document value to an object of the field type,
+ * and other types are compared using Type.compare.
+ */
+abstract class ValueComparator {
+
+    protected final Type type;
+    protected final Object literal;
+
+    protected ValueComparator(Type type, Object literal) {
+        this.type = type;
+        this.literal = literal;
+    }
+
+    /**
+     * Returns a comparator for the literal value of a field of the given type. If the literal cannot be converted to
+     * the field type without an error, the returned comparator compares the values using the field type, so the
+     * conversion error is reported when a document value is compared to it.
+     */
+    public static ValueComparator getInstance(Type type, Object literal) {
+        if (isNumber(literal)) {
+            if (type instanceof IntegerType) {
+                return new LongComparator(type, (Long) type.cast(literal));
+            } else if (type instanceof DoubleType) {
+                return new DoubleComparator(type, (Double) type.cast(literal));
+            }
+        }
+        if (literal != null) {
+            if (type instanceof StringType) {
+                return new StringComparator(type, (String) type.cast(literal));
+            } else if (type instanceof DateType) {
+                Date date = toDate(literal);
+                if (date != null) {
+                    return new DateComparator(type, date);
+                }
+            }
+        }
+        return new TypeComparator(type, literal);
+    }
+
+    /**
+     * Returns if the literal can be cast to an integer or a double without an error
+     */
+    static boolean isNumber(Object literal) {
+        return literal instanceof Number || literal instanceof Boolean;
+    }
+
+    /**
+     * Returns the literal as a date, or null if it is not a date, or a string in the date format
+     */
+    static Date toDate(Object literal) {
+        if (literal instanceof Date) {
+            return (Date) literal;
+        } else if (literal instanceof String) {
+            try {
+                return DateType.parseDate((String) literal);
+            } catch (ParseException e) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Compares a non-null document value to the literal. Returns <0, 0, or >0 if the document value is less than,
+     * equal to, or greater than the literal
+     */
+    public int compare(JsonNode docValue) {
+        if (docValue.isValueNode()) {
+            return compareValue(docValue);
+        } else {
+            return type.compare(type.fromJson(docValue), literal);
+        }
+    }
+
+    /**
+     * Compares a document value node to the literal
+     */
+    protected abstract int compareValue(JsonNode docValue);
+
+    private static final class LongComparator extends ValueComparator {
+        private final long value;
+
+        public LongComparator(Type type, Long value) {
+            super(type, value);
+            this.value = value;
+        }
+
+        @Override
+        protected int compareValue(JsonNode docValue) {
+            long v = docValue.asLong();
+            return v < value ? -1 : (v == value ? 0 : 1);
+        }
+    }
+
+    private static final class DoubleComparator extends ValueComparator {
+        private final double value;
+
+        public DoubleComparator(Type type, Double value) {
+            super(type, value);
+            this.value = value;
+        }
+
+        @Override
+        protected int compareValue(JsonNode docValue) {
+            return Double.compare(docValue.asDouble(), value);
+        }
+    }
+
+    private static final class StringComparator extends ValueComparator {
+        private final String value;
+
+        public StringComparator(Type type, String value) {
+            super(type, value);
+            this.value = value;
+        }
+
+        @Override
+        protected int compareValue(JsonNode docValue) {
+            return docValue.asText().compareTo(value);
+        }
+    }
+
+    private static final class DateComparator extends ValueComparator {
+        private final long value;
+
+        public DateComparator(Type type, Date value) {
+            super(type, value);
+            this.value = value.getTime();
+        }
+
+        @Override
+        protected int compareValue(JsonNode docValue) {
+            long v = ((Date) type.fromJson(docValue)).getTime();
+            return v < value ? -1 : (v == value ? 0 : 1);
+        }
+    }
+
+    private static final class TypeComparator extends ValueComparator {
+        public TypeComparator(Type type, Object value) {
+            super(type, value);
+        }
+
+        @Override
+        protected int compareValue(JsonNode docValue) {
+            return type.compare(type.fromJson(docValue), literal);
+        }
+    }
+}
@@ -34,8 +34,10 @@ public class ValueComparisonEvaluator extends QueryEvaluator {
 
     private final FieldTreeNode fieldMd;
     private final Path field;
+    private final CompiledPath fieldPath;
     private final BinaryComparisonOperator operator;
     private final Object value;
+    private final ValueComparator comparator;
 
     /**
      * Constructs evaluator for {field op value} style comparison
@@ -45,27 +47,25 @@ public class ValueComparisonEvaluator extends QueryEvaluator {
      */
     public ValueComparisonEvaluator(ValueComparisonExpression expr, FieldTreeNode context) {
         this.field = expr.getField();
+        fieldPath = new CompiledPath(field);
         fieldMd = context.resolve(field);
         if (fieldMd == null) {
             throw new EvaluationError(expr, CrudConstants.ERR_FIELD_NOT_THERE + field);
         }
         operator = expr.getOp();
         value = expr.getRvalue().getValue();
+        comparator = ValueComparator.getInstance(fieldMd.getType(), value);
         LOGGER.debug("ctor {} {} {}", field, operator, value);
     }
 
     @Override
     public boolean evaluate(QueryEvaluationContext ctx) {
-        LOGGER.debug("evaluate {} {} {}", field, operator, value);
-        JsonNode valueNode = ctx.getNode(field);
-        Object docValue;
-        if (valueNode != null) {
-            docValue = fieldMd.getType().fromJson(valueNode);
-        } else {
-            docValue = null;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("evaluate {} {} {}", field, operator, value);
         }
+        JsonNode valueNode = fieldPath.get(ctx.getNode());
         LOGGER.debug(" value={}", valueNode);
-        int result = fieldMd.getType().compare(docValue, value);
+        int result = valueNode == null ? fieldMd.getType().compare(null, value) : comparator.compare(valueNode);
         LOGGER.debug(" result={}", result);
         ctx.setResult(operator.apply(result));
         return ctx.getResult();
@@ -0,0 +1,180 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.eval;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.metadata.types.DateType;
+import com.redhat.lightblue.metadata.types.DoubleType;
+import com.redhat.lightblue.metadata.types.IntegerType;
+import com.redhat.lightblue.metadata.types.StringType;
+
+/**
+ * A set of non-null literal values of a field, used to evaluate $in and $nin. The literals are converted to the field
+ * type once. Integer, double and date values are kept in sorted arrays, and string values in a hash set. Other types,
+ * and literals that cannot be converted to the field type, are compared one by one using Type.compare.
+ */
+abstract class ValueSet {
+
+    protected final Type type;
+    protected final List<Object> literals;
+
+    protected ValueSet(Type type, List<Object> literals) {
+        this.type = type;
+        this.literals = literals;
+    }
+
+    /**
+     * Returns a set for the given non-null literals of a field of the given type. If any literal cannot be converted
+     * to the field type without an error, the returned set compares the values using the field type.
+     */
+    public static ValueSet getInstance(Type type, List<Object> literals) {
+        if (type instanceof IntegerType) {
+            if (allNumbers(literals)) {
+                long[] values = new long[literals.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (Long) type.cast(literals.get(i));
+                }
+                return new LongSet(type, literals, values, false);
+            }
+        } else if (type instanceof DoubleType) {
+            if (allNumbers(literals)) {
+                double[] values = new double[literals.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (Double) type.cast(literals.get(i));
+                }
+                return new DoubleSet(type, literals, values);
+            }
+        } else if (type instanceof StringType) {
+            Set<String> values = new HashSet<>();
+            for (Object x : literals) {
+                values.add((String) type.cast(x));
+            }
+            return new StringSet(type, literals, values);
+        } else if (type instanceof DateType) {
+            long[] values = new long[literals.size()];
+            int i = 0;
+            for (Object x : literals) {
+                Date date = ValueComparator.toDate(x);
+                if (date == null) {
+                    return new TypeSet(type, literals);
+                }
+                values[i++] = date.getTime();
+            }
+            return new LongSet(type, literals, values, true);
+        }
+        return new TypeSet(type, literals);
+    }
+
+    private static boolean allNumbers(List<Object> literals) {
+        for (Object x : literals) {
+            if (!ValueComparator.isNumber(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the non-null document value is equal to one of the values in the set
+     */
+    public boolean contains(JsonNode docValue) {
+        if (docValue.isValueNode()) {
+            return containsValue(docValue);
+        } else {
+            return containsObject(type.fromJson(docValue));
+        }
+    }
+
+    protected abstract boolean containsValue(JsonNode docValue);
+
+    protected boolean containsObject(Object docValue) {
+        for (Object x : literals) {
+            if (type.compare(docValue, x) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class LongSet extends ValueSet {
+        private final long[] values;
+        private final boolean date;
+
+        public LongSet(Type type, List<Object> literals, long[] values, boolean date) {
+            super(type, literals);
+            Arrays.sort(values);
+            this.values = values;
+            this.date = date;
+        }
+
+        @Override
+        protected boolean containsValue(JsonNode docValue) {
+            long v = date ? ((Date) type.fromJson(docValue)).getTime() : docValue.asLong();
+            return Arrays.binarySearch(values, v) >= 0;
+        }
+    }
+
+    private static final class DoubleSet extends ValueSet {
+        private final double[] values;
+
+        public DoubleSet(Type type, List<Object> literals, double[] values) {
+            super(type, literals);
+            Arrays.sort(values);
+            this.values = values;
+        }
+
+        @Override
+        protected boolean containsValue(JsonNode docValue) {
+            return Arrays.binarySearch(values, docValue.asDouble()) >= 0;
+        }
+    }
+
+    private static final class StringSet extends ValueSet {
+        private final Set<String> values;
+
+        public StringSet(Type type, List<Object> literals, Set<String> values) {
+            super(type, literals);
+            this.values = values;
+        }
+
+        @Override
+        protected boolean containsValue(JsonNode docValue) {
+            return values.contains(docValue.asText());
+        }
+    }
+
+    private static final class TypeSet extends ValueSet {
+        public TypeSet(Type type, List<Object> literals) {
+            super(type, literals);
+        }
+
+        @Override
+        protected boolean containsValue(JsonNode docValue) {
+            return containsObject(type.fromJson(docValue));
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.redhat.lightblue.DataError;
 import com.redhat.lightblue.DeleteRequest;
 import com.redhat.lightblue.FindRequest;
 import com.redhat.lightblue.InsertionRequest;
@@ -41,8 +42,10 @@ import com.redhat.lightblue.crud.CRUDFindResponse;
 import com.redhat.lightblue.crud.CRUDUpdateResponse;
 import com.redhat.lightblue.crud.ConstraintValidator;
 import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.DocumentSink;
 import com.redhat.lightblue.crud.CrudConstants;
 import com.redhat.lightblue.crud.Factory;
+import com.redhat.lightblue.crud.StreamingCRUDController;
 import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.metadata.Metadata;
 import com.redhat.lightblue.metadata.PredefinedFields;
@@ -83,12 +86,12 @@ public class Mediator {
      */
     public Response insert(InsertionRequest req) {
         LOGGER.debug("insert {}", req.getEntityVersion());
-        Error.push("insert(" + req.getEntityVersion().toString() + ")");
+        Error.push("insert", req.getEntityVersion());
         Response response = new Response();
         try {
             OperationContext ctx = OperationContext.getInstance(req, metadata, factory, NODE_FACTORY, Operation.INSERT);
             EntityMetadata md = ctx.getTopLevelEntityMetadata();
-            if (!md.getAccess().getInsert().hasAccess(ctx.getCallerRoles())) {
+            if (!md.getAccess().getInsert().hasAccess(ctx.getCallerRoleSet())) {
                 ctx.setStatus(OperationStatus.ERROR);
                 ctx.addError(Error.get(CrudConstants.ERR_NO_ACCESS, "insert " + ctx.getTopLevelEntityName()));
             } else {
@@ -144,13 +147,13 @@ public class Mediator {
      */
     public Response save(SaveRequest req) {
         LOGGER.debug("save {}", req.getEntityVersion());
-        Error.push("save(" + req.getEntityVersion().toString() + ")");
+        Error.push("save", req.getEntityVersion());
         Response response = new Response();
         try {
             OperationContext ctx = OperationContext.getInstance(req, metadata, factory, NODE_FACTORY, Operation.SAVE);
             EntityMetadata md = ctx.getTopLevelEntityMetadata();
-            if (!md.getAccess().getUpdate().hasAccess(ctx.getCallerRoles())
-                    || (req.isUpsert() && !md.getAccess().getInsert().hasAccess(ctx.getCallerRoles()))) {
+            if (!md.getAccess().getUpdate().hasAccess(ctx.getCallerRoleSet())
+                    || (req.isUpsert() && !md.getAccess().getInsert().hasAccess(ctx.getCallerRoleSet()))) {
                 ctx.setStatus(OperationStatus.ERROR);
                 ctx.addError(Error.get(CrudConstants.ERR_NO_ACCESS, "insert/update " + ctx.getTopLevelEntityName()));
             } else {
@@ -205,12 +208,12 @@ public class Mediator {
      */
     public Response update(UpdateRequest req) {
         LOGGER.debug("update {}", req.getEntityVersion());
-        Error.push("update(" + req.getEntityVersion().toString() + ")");
+        Error.push("update", req.getEntityVersion());
         Response response = new Response();
         try {
             OperationContext ctx = OperationContext.getInstance(req, metadata, factory, NODE_FACTORY, Operation.UPDATE);
             EntityMetadata md = ctx.getTopLevelEntityMetadata();
-            if (!md.getAccess().getUpdate().hasAccess(ctx.getCallerRoles())) {
+            if (!md.getAccess().getUpdate().hasAccess(ctx.getCallerRoleSet())) {
                 ctx.setStatus(OperationStatus.ERROR);
                 ctx.addError(Error.get(CrudConstants.ERR_NO_ACCESS, "update " + ctx.getTopLevelEntityName()));
             } else {
@@ -247,12 +250,12 @@ public class Mediator {
 
     public Response delete(DeleteRequest req) {
         LOGGER.debug("delete {}", req.getEntityVersion());
-        Error.push("delete(" + req.getEntityVersion().toString() + ")");
+        Error.push("delete", req.getEntityVersion());
         Response response = new Response();
         try {
             OperationContext ctx = OperationContext.getInstance(req, metadata, factory, NODE_FACTORY, Operation.DELETE);
             EntityMetadata md = ctx.getTopLevelEntityMetadata();
-            if (!md.getAccess().getDelete().hasAccess(ctx.getCallerRoles())) {
+            if (!md.getAccess().getDelete().hasAccess(ctx.getCallerRoleSet())) {
                 ctx.setStatus(OperationStatus.ERROR);
                 ctx.addError(Error.get(CrudConstants.ERR_NO_ACCESS, "delete " + ctx.getTopLevelEntityName()));
             } else {
@@ -292,31 +295,88 @@ public class Mediator {
      * The implementation passes the request to the back-end.
      */
     public Response find(FindRequest req) {
+        return find(req, null);
+    }
+
+    /**
+     * Finds documents, and writes them to the given sink instead of the response
+     *
+     * @param req Find request
+     * @param sink If non-null, found documents are written to this sink, and the response does not contain entity data.
+     * If null, the documents are returned in the response.
+     *
+     * If the CRUD controller for the entity is a StreamingCRUDController and the entity has no find hooks, the
+     * documents are passed to the sink in batches as they are retrieved, so the complete result set is never kept in
+     * memory. Otherwise, the documents are retrieved first, hooks are queued for all of them, and then they are passed
+     * to the sink. Errors of individual documents are returned as data errors in the response.
+     */
+    public Response find(FindRequest req, final DocumentSink sink) {
         LOGGER.debug("find {}", req.getEntityVersion());
-        Error.push("find(" + req.getEntityVersion().toString() + ")");
+        Error.push("find", req.getEntityVersion());
         Response response = new Response();
         response.setStatus(OperationStatus.ERROR);
         try {
-            OperationContext ctx = OperationContext.getInstance(req, metadata, factory, NODE_FACTORY, Operation.FIND);
+            final OperationContext ctx = OperationContext.getInstance(req, metadata, factory, NODE_FACTORY, Operation.FIND);
+            ctx.setCountMode(req.getCountMode());
             EntityMetadata md = ctx.getTopLevelEntityMetadata();
-            if (!md.getAccess().getFind().hasAccess(ctx.getCallerRoles())) {
+            if (!md.getAccess().getFind().hasAccess(ctx.getCallerRoleSet())) {
                 ctx.setStatus(OperationStatus.ERROR);
                 LOGGER.debug("No access");
                 ctx.addError(Error.get(CrudConstants.ERR_NO_ACCESS, "find " + ctx.getTopLevelEntityName()));
             } else {
                 CRUDController controller = factory.getCRUDController(md);
                 LOGGER.debug(CRUD_MSG_PREFIX, controller.getClass().getName());
-                CRUDFindResponse result = controller.find(ctx,
-                        req.getQuery(),
-                        req.getProjection(),
-                        req.getSort(),
-                        req.getFrom(),
-                        req.getTo());
-                ctx.getHookManager().queueMediatorHooks(ctx);
+                CRUDFindResponse result;
+                if (sink == null) {
+                    result = controller.find(ctx,
+                            req.getQuery(),
+                            req.getProjection(),
+                            req.getSort(),
+                            req.getFrom(),
+                            req.getTo());
+                    ctx.getHookManager().queueMediatorHooks(ctx);
+                } else {
+                    final List<DataError> dataErrors = new ArrayList<>();
+                    DocumentSink mediatorSink = new DocumentSink() {
+                        @Override
+                        public void write(List<DocCtx> documents) {
+                            // The documents are dropped once written, so keep their errors
+                            for (DocCtx doc : documents) {
+                                DataError err = doc.getDataError();
+                                if (err != null) {
+                                    dataErrors.add(err);
+                                }
+                            }
+                            sink.write(documents);
+                        }
+                    };
+                    if (controller instanceof StreamingCRUDController && !md.getHooks().hasFindHooks()) {
+                        result = ((StreamingCRUDController) controller).find(ctx,
+                                req.getQuery(),
+                                req.getProjection(),
+                                req.getSort(),
+                                req.getFrom(),
+                                req.getTo(),
+                                mediatorSink);
+                    } else {
+                        // Hooks get all the documents, so there is nothing to gain from streaming
+                        result = controller.find(ctx,
+                                req.getQuery(),
+                                req.getProjection(),
+                                req.getSort(),
+                                req.getFrom(),
+                                req.getTo());
+                        ctx.getHookManager().queueMediatorHooks(ctx);
+                        if (ctx.getDocuments() != null) {
+                            mediatorSink.write(ctx.getDocuments());
+                        }
+                    }
+                    response.getDataErrors().addAll(dataErrors);
+                }
                 ctx.setStatus(OperationStatus.COMPLETE);
                 response.setMatchCount(result.getSize());
                 List<DocCtx> documents = ctx.getDocuments();
-                if (documents != null) {
+                if (sink == null && documents != null) {
                     List<JsonDoc> resultList = new ArrayList<>(documents.size());
                     for (DocCtx doc : documents) {
                         resultList.add(doc.getOutputDocument());
@@ -0,0 +1,64 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue;
+
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.lightblue.crud.CountMode;
+import com.redhat.lightblue.crud.CrudConstants;
+import com.redhat.lightblue.util.Error;
+
+public class FindRequestTest {
+
+    private static ObjectNode request(String count) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put("entity", "test");
+        node.put("entityVersion", "1.0");
+        node.put("count", count);
+        return node;
+    }
+
+    @Test
+    public void countModeIgnoresDefaultLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            FindRequest req = FindRequest.fromJson(request("estimate"));
+            Assert.assertEquals(CountMode.ESTIMATE, req.getCountMode());
+            Assert.assertEquals("estimate", req.toJson().get("count").asText());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void invalidCountMode() {
+        try {
+            FindRequest.fromJson(request("sometimes"));
+            Assert.fail();
+        } catch (Error e) {
+            Assert.assertEquals(CrudConstants.ERR_INVALID_COUNT_MODE, e.getErrorCode());
+        }
+    }
+}
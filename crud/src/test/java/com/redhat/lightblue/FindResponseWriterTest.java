@@ -0,0 +1,103 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.JsonDoc;
+import com.redhat.lightblue.util.JsonUtils;
+
+public class FindResponseWriterTest {
+
+    private static DocCtx doc(int value) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put("value", value);
+        DocCtx ctx = new DocCtx(new JsonDoc(node));
+        ctx.setOutputDocument(new JsonDoc(node));
+        return ctx;
+    }
+
+    @Test
+    public void writesBatchesAndResponseFields() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonGenerator generator = JsonUtils.getObjectMapper().getFactory().createGenerator(out);
+        FindResponseWriter writer = new FindResponseWriter(generator);
+
+        List<DocCtx> batch = new ArrayList<>();
+        batch.add(doc(1));
+        batch.add(doc(2));
+        writer.write(batch);
+        batch.clear();
+        batch.add(doc(3));
+        writer.write(batch);
+
+        Response response = new Response();
+        response.setStatus(OperationStatus.COMPLETE);
+        response.setMatchCount(3);
+        writer.finish(response);
+        generator.close();
+
+        JsonNode result = JsonUtils.json(out.toString());
+        Assert.assertEquals(3, result.get("processed").size());
+        Assert.assertEquals(3, result.get("processed").get(2).get("value").asInt());
+        Assert.assertEquals(OperationStatus.COMPLETE.toString(), result.get("status").asText());
+        Assert.assertEquals(3, result.get("matchCount").asInt());
+    }
+
+    @Test
+    public void writesEmptyResult() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonGenerator generator = JsonUtils.getObjectMapper().getFactory().createGenerator(out);
+        FindResponseWriter writer = new FindResponseWriter(generator);
+        writer.finish(new Response());
+        generator.close();
+
+        JsonNode result = JsonUtils.json(out.toString());
+        Assert.assertEquals(0, result.get("processed").size());
+    }
+
+    @Test
+    public void finishesWithErrorAfterDocuments() throws Exception {
+        StringWriter out = new StringWriter();
+        JsonGenerator generator = JsonUtils.getObjectMapper().getFactory().createGenerator(out);
+        FindResponseWriter writer = new FindResponseWriter(generator);
+        List<DocCtx> batch = new ArrayList<>();
+        batch.add(doc(1));
+        writer.write(batch);
+        writer.finish(Error.get("testError", "failed"));
+        generator.close();
+
+        JsonNode result = JsonUtils.json(out.toString());
+        Assert.assertEquals(1, result.get("processed").size());
+        Assert.assertEquals(OperationStatus.ERROR.toString(), result.get("status").asText());
+        Assert.assertEquals(1, result.get("errors").size());
+        Assert.assertTrue(result.get("errors").get(0).asText().contains("testError"));
+    }
+}
@@ -82,4 +82,9 @@ public class CrudJsonSchemaTest extends AbstractJsonSchemaTest {
         runValidJsonTest("json-schema/crud.json", "crud/find/schema-test-find-simple.json");
     }
 
+    @Test
+    public void validFindCount() throws IOException, ProcessingException {
+        runValidJsonTest("json-schema/crud.json", "crud/find/schema-test-find-count.json");
+    }
+
 }
@@ -138,4 +138,9 @@ public class ArrayMatchEvaluatorTest extends AbstractJsonNodeTest {
         Assert.assertTrue(context.getResult());
     }
 
+    @Test
+    public void only_array_queries_mark_array_elements() throws Exception {
+        Assert.assertTrue(QueryEvaluator.getInstance(EvalTestContext.queryExpressionFromJson("{'$and':[{'field':'field1','op':'=','rvalue':'x'},{'$not':{'array':'field7','elemMatch':{'field':'elemf3','op':'>','rvalue':10}}}]}"), md).marksArrayElements());
+        Assert.assertFalse(QueryEvaluator.getInstance(EvalTestContext.queryExpressionFromJson("{'$or':[{'field':'field1','op':'=','rvalue':'x'},{'field':'field3','op':'>','rvalue':1}]}"), md).marksArrayElements());
+    }
 }
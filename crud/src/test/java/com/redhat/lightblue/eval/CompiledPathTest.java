@@ -0,0 +1,45 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.eval;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.redhat.lightblue.util.JsonDoc;
+import com.redhat.lightblue.util.Path;
+import com.redhat.lightblue.util.test.AbstractJsonNodeTest;
+
+public class CompiledPathTest extends AbstractJsonNodeTest {
+
+    @Before
+    public void setUp() throws Exception {
+        jsonDoc = EvalTestContext.getDoc("./sample1.json");
+    }
+
+    @Test
+    public void same_nodes_as_jsondoc_get() throws Exception {
+        String[] paths = {"field1", "field6.nf7.nnf1", "field6.nf5.2", "field7.1.elemf1", "field7.10.elemf1",
+            "field1.x", "field6.nf11.x", "nofield.x", "field2.$parent.field3", "field6.nf7.$this.nnf2", ""};
+        for (String x : paths) {
+            Path p = new Path(x);
+            Assert.assertSame(x, JsonDoc.get(jsonDoc.getRoot(), p), new CompiledPath(p).get(jsonDoc.getRoot()));
+        }
+    }
+}
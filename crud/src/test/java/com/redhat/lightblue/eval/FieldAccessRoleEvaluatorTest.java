@@ -0,0 +1,156 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.eval;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.redhat.lightblue.eval.FieldAccessRoleEvaluator.Operation;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.Field;
+import com.redhat.lightblue.metadata.FieldCursor;
+import com.redhat.lightblue.metadata.FieldTreeNode;
+import com.redhat.lightblue.util.Path;
+
+public class FieldAccessRoleEvaluatorTest {
+
+    private EntityMetadata md;
+
+    @Before
+    public void setup() throws Exception {
+        md = getMd();
+    }
+
+    private static EntityMetadata getMd() throws Exception {
+        EntityMetadata md = EvalTestContext.getMd("./testMetadata.json");
+        md.getAccess().getFind().setRoles("anyone");
+        md.getAccess().getInsert().setRoles("anyone");
+        md.getAccess().getUpdate().setRoles("anyone");
+        field(md, "field1").getAccess().getFind().setRoles("reader");
+        field(md, "field2").getAccess().getUpdate().setRoles("writer");
+        field(md, "field6.nf1").getAccess().getInsert().setRoles("writer", "admin");
+        field(md, "field6.nf7.nnf1").getAccess().getFind().setRoles("admin");
+        field(md, "field6.nf7.nnf2").getAccess().getUpdate().setRoles("noone");
+        return md;
+    }
+
+    private static Field field(EntityMetadata md, String path) {
+        return (Field) md.resolve(new Path(path));
+    }
+
+    private static Set<String> roles(String... roles) {
+        return new HashSet<>(Arrays.asList(roles));
+    }
+
+    /**
+     * Computes the inaccessible fields field by field, without the cache
+     */
+    private static Set<Path> inaccessibleFields(EntityMetadata md, Set<String> roles, Operation op) {
+        FieldAccessRoleEvaluator eval = new FieldAccessRoleEvaluator(md, roles);
+        Set<Path> ret = new HashSet<>();
+        FieldCursor cursor = md.getFieldCursor();
+        while (cursor.next()) {
+            FieldTreeNode fn = cursor.getCurrentNode();
+            if (fn instanceof Field && !eval.hasAccess(cursor.getCurrentPath(), op)) {
+                ret.add(cursor.getCurrentPath());
+            }
+        }
+        return ret;
+    }
+
+    @Test
+    public void inaccessibleFieldsMatchFieldAccess() {
+        Assert.assertEquals(new HashSet<>(Arrays.asList(new Path("field1"), new Path("field6.nf7.nnf1"))),
+                new FieldAccessRoleEvaluator(md, roles()).getInaccessibleFields(Operation.find));
+        for (Set<String> roles : Arrays.asList(roles(), roles("reader"), roles("writer"), roles("admin"),
+                roles("reader", "writer", "admin"), null)) {
+            for (Operation op : Operation.values()) {
+                FieldAccessRoleEvaluator eval = new FieldAccessRoleEvaluator(md, roles);
+                Set<Path> expected = inaccessibleFields(md, roles == null ? roles() : roles, op);
+                Assert.assertEquals(roles + " " + op, expected, eval.getInaccessibleFields(op));
+                if (expected.isEmpty()) {
+                    Assert.assertNull(eval.getExcludedFields(op));
+                } else {
+                    Assert.assertNotNull(eval.getExcludedFields(op));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cacheHitForSameRoles() {
+        Set<Path> fields = new FieldAccessRoleEvaluator(md, roles("reader", "writer")).getInaccessibleFields(Operation.find);
+        Assert.assertSame(fields, new FieldAccessRoleEvaluator(md, roles("writer", "reader")).getInaccessibleFields(Operation.find));
+        Assert.assertNotSame(fields, new FieldAccessRoleEvaluator(md, roles("reader")).getInaccessibleFields(Operation.find));
+        Assert.assertNotEquals(fields, new FieldAccessRoleEvaluator(md, roles("admin")).getInaccessibleFields(Operation.find));
+    }
+
+    @Test
+    public void cacheKeyIsCopied() {
+        Set<String> callerRoles = roles("reader");
+        Set<Path> fields = new FieldAccessRoleEvaluator(md, callerRoles).getInaccessibleFields(Operation.find);
+        // Changing the caller's set does not change the cached entry
+        callerRoles.add("admin");
+        Assert.assertSame(fields, new FieldAccessRoleEvaluator(md, roles("reader")).getInaccessibleFields(Operation.find));
+        Set<Path> adminFields = new FieldAccessRoleEvaluator(md, callerRoles).getInaccessibleFields(Operation.find);
+        Assert.assertNotSame(fields, adminFields);
+        Assert.assertEquals(inaccessibleFields(md, roles("reader", "admin"), Operation.find), adminFields);
+    }
+
+    @Test
+    public void cachedSetsCannotBeModified() {
+        Set<Path> fields = new FieldAccessRoleEvaluator(md, roles()).getInaccessibleFields(Operation.find);
+        try {
+            fields.add(new Path("field3"));
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    @Test
+    public void newMetadataMissesCache() throws Exception {
+        Set<Path> fields = new FieldAccessRoleEvaluator(md, roles("reader")).getInaccessibleFields(Operation.find);
+        EntityMetadata reloaded = getMd();
+        field(reloaded, "field3").getAccess().getFind().setRoles("admin");
+        Set<Path> reloadedFields = new FieldAccessRoleEvaluator(reloaded, roles("reader")).getInaccessibleFields(Operation.find);
+        Assert.assertNotSame(fields, reloadedFields);
+        Assert.assertFalse(fields.contains(new Path("field3")));
+        Assert.assertTrue(reloadedFields.contains(new Path("field3")));
+    }
+
+    @Test
+    public void cacheClearedWhenFull() {
+        Set<Path> fields = new FieldAccessRoleEvaluator(md, roles("reader")).getInaccessibleFields(Operation.find);
+        for (int i = 1; i < FieldAccessRoleEvaluator.MAX_ROLE_SETS; i++) {
+            new FieldAccessRoleEvaluator(md, roles("role" + i)).getInaccessibleFields(Operation.find);
+        }
+        // The cache is full, but still has the first role set
+        Assert.assertSame(fields, new FieldAccessRoleEvaluator(md, roles("reader")).getInaccessibleFields(Operation.find));
+        // One more role set clears it
+        new FieldAccessRoleEvaluator(md, roles("role" + FieldAccessRoleEvaluator.MAX_ROLE_SETS)).getInaccessibleFields(Operation.find);
+        Set<Path> recomputed = new FieldAccessRoleEvaluator(md, roles("reader")).getInaccessibleFields(Operation.find);
+        Assert.assertNotSame(fields, recomputed);
+        Assert.assertEquals(fields, recomputed);
+    }
+}
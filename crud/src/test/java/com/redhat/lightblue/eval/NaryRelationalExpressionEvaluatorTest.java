@@ -24,6 +24,8 @@ import org.junit.Test;
 
 import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.query.QueryExpression;
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.Path;
 import com.redhat.lightblue.util.test.AbstractJsonNodeTest;
 
 public class NaryRelationalExpressionEvaluatorTest extends AbstractJsonNodeTest {
@@ -236,4 +238,26 @@ public class NaryRelationalExpressionEvaluatorTest extends AbstractJsonNodeTest
         Assert.assertFalse(ctx.getResult());
     }
 
+    @Test
+    public void nary_in_int_array_converts_values_to_field_type() throws Exception {
+        QueryExpression q = EvalTestContext.queryExpressionFromJson("{'field':'field6.nf3','op':'$in','values':[9,'4',2.0]}");
+        QueryEvaluator qe = QueryEvaluator.getInstance(q, md);
+
+        QueryEvaluationContext ctx = qe.evaluate(jsonDoc);
+
+        Assert.assertTrue(ctx.getResult());
+    }
+
+    @Test
+    public void nary_in_with_incompatible_value_fails_only_for_existing_field() throws Exception {
+        QueryExpression q = EvalTestContext.queryExpressionFromJson("{'field':'field6.nf3','op':'$in','values':['x',null]}");
+        QueryEvaluator qe = QueryEvaluator.getInstance(q, md);
+        try {
+            qe.evaluate(jsonDoc);
+            Assert.fail();
+        } catch (Error e) {
+        }
+        jsonDoc.modify(new Path("field6.nf3"), null, false);
+        Assert.assertTrue(qe.evaluate(jsonDoc).getResult());
+    }
 }
@@ -144,4 +144,27 @@ public class ProjectorTest extends AbstractJsonNodeTest {
         Assert.assertEquals("elvalue3_2", pdoc.get(new Path("field7.2.elemf2")).asText());
     }
 
+    @Test
+    public void usesMatchingElements() throws Exception {
+        Assert.assertFalse(Projector.getInstance(EvalTestContext.projectionFromJson("[{'field':'field2'},{'field':'field6.*','recursive':true}]"), md).usesMatchingElements());
+        Assert.assertFalse(Projector.getInstance(EvalTestContext.projectionFromJson("{'field':'field7','match':{'field':'elemf3','op':'>','rvalue':4},'project':{'field':'*'}}"), md).usesMatchingElements());
+        Assert.assertTrue(Projector.getInstance(EvalTestContext.projectionFromJson("[{'field':'field2'},{'field':'field7','project':{'field':'*'}}]"), md).usesMatchingElements());
+    }
+
+    @Test
+    public void fieldOnlyProjector_reused() throws Exception {
+        Projection p = EvalTestContext.projectionFromJson("[{'field':'field7.*.elemf1'},{'field':'field6.nf7.nnf1'}]");
+        Projector projector = Projector.getInstance(p, md);
+        Assert.assertTrue(projector.isFieldOnly());
+        for (int i = 0; i < 2; i++) {
+            JsonDoc pdoc = projector.project(jsonDoc, JSON_NODE_FACTORY, null);
+            Assert.assertNull(pdoc.get(new Path("field1")));
+            Assert.assertEquals(1, pdoc.get(new Path("field6")).size());
+            Assert.assertEquals("nnvalue1", pdoc.get(new Path("field6.nf7.nnf1")).asText());
+            Assert.assertEquals(jsonDoc.get(new Path("field7")).size(), pdoc.get(new Path("field7")).size());
+            Assert.assertNotNull(pdoc.get(new Path("field7.0.elemf1")));
+            Assert.assertNull(pdoc.get(new Path("field7.0.elemf2")));
+        }
+        Assert.assertFalse(Projector.getInstance(EvalTestContext.projectionFromJson("{'field':'field7.1.elemf1'}"), md).isFieldOnly());
+    }
 }
@@ -18,6 +18,8 @@
  */
 package com.redhat.lightblue.eval;
 
+import java.util.regex.Pattern;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -88,4 +90,11 @@ public class RegexEvaluatorTest extends AbstractJsonNodeTest {
         Assert.assertFalse(ctx.getResult());
     }
 
+    @Test
+    public void compiled_patterns_are_shared_per_regex_and_flags() throws Exception {
+        Assert.assertSame(RegexEvaluator.getPattern("Val.*", 0), RegexEvaluator.getPattern("Val.*", 0));
+        Assert.assertNotSame(RegexEvaluator.getPattern("Val.*", 0),
+                RegexEvaluator.getPattern("Val.*", Pattern.CASE_INSENSITIVE));
+        Assert.assertTrue(RegexEvaluator.getPattern("Val.*", Pattern.CASE_INSENSITIVE).matcher("value").matches());
+    }
 }
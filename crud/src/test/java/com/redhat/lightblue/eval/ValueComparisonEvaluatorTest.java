@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.query.QueryExpression;
+import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.test.AbstractJsonNodeTest;
 
 public class ValueComparisonEvaluatorTest extends AbstractJsonNodeTest {
@@ -54,6 +55,32 @@ public class ValueComparisonEvaluatorTest extends AbstractJsonNodeTest {
         Assert.assertTrue(ctx.getResult());
     }
 
+    @Test
+    public void value_comparison_converts_string_literal_to_field_type() throws Exception {
+        QueryExpression q = EvalTestContext.queryExpressionFromJson("{'field':'field3','op':'=','rvalue':'3'}");
+        QueryEvaluator qe = QueryEvaluator.getInstance(q, md);
+
+        QueryEvaluationContext ctx = qe.evaluate(jsonDoc);
+
+        Assert.assertTrue(ctx.getResult());
+    }
+
+    @Test
+    public void incompatible_literal_does_not_change_error_context() throws Exception {
+        Error.reset();
+        QueryExpression q = EvalTestContext.queryExpressionFromJson("{'field':'field3','op':'=','rvalue':'x'}");
+        QueryEvaluator.getInstance(q, md);
+        Assert.assertEquals("", Error.get("test").getContext());
+
+        q = EvalTestContext.queryExpressionFromJson("{'field':'field3','op':'$in','values':[1,'x']}");
+        QueryEvaluator.getInstance(q, md);
+        Assert.assertEquals("", Error.get("test").getContext());
+
+        q = EvalTestContext.queryExpressionFromJson("{'field':'field6.nf3','op':'$nin','values':['x']}");
+        QueryEvaluator.getInstance(q, md);
+        Assert.assertEquals("", Error.get("test").getContext());
+    }
+
     @Test
     public void value_comparison_returns_false_when_field_value_does_not_match_expression() throws Exception {
         QueryExpression q = EvalTestContext.queryExpressionFromJson("{'field':'field4','op':'<','rvalue':3.5}");
@@ -19,6 +19,7 @@
 package com.redhat.lightblue.mediator;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -33,6 +34,8 @@ import com.redhat.lightblue.metadata.Version;
 import com.redhat.lightblue.metadata.MetadataStatus;
 import com.redhat.lightblue.metadata.TypeResolver;
 import com.redhat.lightblue.metadata.PredefinedFields;
+import com.redhat.lightblue.metadata.Hook;
+import com.redhat.lightblue.metadata.HookConfiguration;
 
 import com.redhat.lightblue.crud.Factory;
 import com.redhat.lightblue.crud.CRUDController;
@@ -43,8 +46,16 @@ import com.redhat.lightblue.crud.CRUDDeleteResponse;
 import com.redhat.lightblue.crud.CRUDFindResponse;
 import com.redhat.lightblue.crud.CRUDOperationContext;
 import com.redhat.lightblue.crud.CrudConstants;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.DocumentSink;
+import com.redhat.lightblue.crud.Operation;
+import com.redhat.lightblue.crud.StreamingCRUDController;
 import com.redhat.lightblue.crud.validator.DefaultFieldConstraintValidators;
 import com.redhat.lightblue.crud.validator.EmptyEntityConstraintValidators;
+import com.redhat.lightblue.hooks.CRUDHook;
+import com.redhat.lightblue.hooks.HookDoc;
+import com.redhat.lightblue.hooks.HookResolver;
+import com.redhat.lightblue.hooks.MediatorHook;
 
 import com.redhat.lightblue.metadata.mongo.MongoDataStoreParser;
 import com.redhat.lightblue.metadata.parser.Extensions;
@@ -65,6 +76,8 @@ import com.redhat.lightblue.Response;
 import com.redhat.lightblue.EntityVersion;
 import com.redhat.lightblue.OperationStatus;
 
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.JsonDoc;
 import com.redhat.lightblue.util.test.AbstractJsonSchemaTest;
 
 public class MediatorTest extends AbstractJsonSchemaTest {
@@ -147,6 +160,94 @@ public class MediatorTest extends AbstractJsonSchemaTest {
         }
     }
 
+    /**
+     * Returns three documents in two batches. The last document has an error.
+     */
+    private static final class StreamingMockController implements StreamingCRUDController {
+        boolean streamed = false;
+
+        @Override
+        public CRUDInsertionResponse insert(CRUDOperationContext ctx, Projection projection) {
+            return null;
+        }
+
+        @Override
+        public CRUDSaveResponse save(CRUDOperationContext ctx, boolean upsert, Projection projection) {
+            return null;
+        }
+
+        @Override
+        public CRUDUpdateResponse update(CRUDOperationContext ctx, QueryExpression query, UpdateExpression update, Projection projection) {
+            return null;
+        }
+
+        @Override
+        public CRUDDeleteResponse delete(CRUDOperationContext ctx, QueryExpression query) {
+            return null;
+        }
+
+        @Override
+        public CRUDFindResponse find(CRUDOperationContext ctx, QueryExpression query, Projection projection, Sort sort, Long from, Long to) {
+            addDocs(ctx, 0, 3);
+            CRUDFindResponse response = new CRUDFindResponse();
+            response.setSize(3);
+            return response;
+        }
+
+        @Override
+        public CRUDFindResponse find(CRUDOperationContext ctx, QueryExpression query, Projection projection, Sort sort, Long from, Long to, DocumentSink sink) {
+            streamed = true;
+            addDocs(ctx, 0, 2);
+            sink.write(ctx.getDocuments());
+            ctx.clearDocuments();
+            addDocs(ctx, 2, 3);
+            sink.write(ctx.getDocuments());
+            ctx.clearDocuments();
+            CRUDFindResponse response = new CRUDFindResponse();
+            response.setSize(3);
+            return response;
+        }
+
+        private static void addDocs(CRUDOperationContext ctx, int from, int to) {
+            for (int i = from; i < to; i++) {
+                JsonDoc doc = new JsonDoc(nodeFactory.objectNode().put("value", i));
+                DocCtx docCtx = ctx.addDocument(doc);
+                docCtx.setOutputDocument(doc);
+                docCtx.setOperationPerformed(Operation.FIND);
+                if (i == 2) {
+                    docCtx.addError(Error.get("testError"));
+                }
+            }
+        }
+    }
+
+    private static final class CollectingSink implements DocumentSink {
+        int numBatches = 0;
+        int numDocs = 0;
+
+        @Override
+        public void write(List<DocCtx> documents) {
+            numBatches++;
+            numDocs += documents.size();
+        }
+    }
+
+    private static final class CountingMediatorHook implements MediatorHook {
+        int numCalls = 0;
+        int numDocs = 0;
+
+        @Override
+        public String getName() {
+            return "MH";
+        }
+
+        @Override
+        public void processHook(EntityMetadata md, HookConfiguration cfg, List<HookDoc> processedDocuments) {
+            numCalls++;
+            numDocs += processedDocuments.size();
+        }
+    }
+
     private EntityMetadata getMd(String fname) throws Exception {
         JsonNode node = loadJsonNode(fname);
         Extensions<JsonNode> extensions = new Extensions<>();
@@ -306,4 +407,61 @@ public class MediatorTest extends AbstractJsonSchemaTest {
         Assert.assertEquals(0, response.getErrors().size());
 
     }
+
+    private Mediator streamingMediator(StreamingMockController controller, final CRUDHook hook) {
+        Factory factory = new Factory();
+        factory.addFieldConstraintValidators(new DefaultFieldConstraintValidators());
+        factory.addEntityConstraintValidators(new EmptyEntityConstraintValidators());
+        factory.addCRUDController("mongo", controller);
+        factory.setHookResolver(new HookResolver() {
+            @Override
+            public CRUDHook getHook(String name) {
+                return hook;
+            }
+        });
+        return new Mediator(mdManager, factory);
+    }
+
+    @Test
+    public void streamingFindReportsDataErrors() throws Exception {
+        StreamingMockController controller = new StreamingMockController();
+        FindRequest req = new FindRequest();
+        req.setEntityVersion(new EntityVersion("test", "1.0"));
+        mdManager.md.getAccess().getFind().setRoles("anyone");
+
+        CollectingSink sink = new CollectingSink();
+        Response response = streamingMediator(controller, null).find(req, sink);
+
+        Assert.assertTrue(controller.streamed);
+        Assert.assertEquals(2, sink.numBatches);
+        Assert.assertEquals(3, sink.numDocs);
+        Assert.assertEquals(3, response.getMatchCount());
+        Assert.assertEquals(1, response.getDataErrors().size());
+        Assert.assertEquals("testError", response.getDataErrors().get(0).getErrors().get(0).getErrorCode());
+    }
+
+    @Test
+    public void findHooksCalledOncePerStreamingFind() throws Exception {
+        StreamingMockController controller = new StreamingMockController();
+        CountingMediatorHook hook = new CountingMediatorHook();
+        Hook mdHook = new Hook("MH");
+        mdHook.setFind(true);
+        List<Hook> hooks = new ArrayList<>();
+        hooks.add(mdHook);
+        mdManager.md.getHooks().setHooks(hooks);
+        FindRequest req = new FindRequest();
+        req.setEntityVersion(new EntityVersion("test", "1.0"));
+        mdManager.md.getAccess().getFind().setRoles("anyone");
+
+        CollectingSink sink = new CollectingSink();
+        Response response = streamingMediator(controller, hook).find(req, sink);
+
+        Assert.assertFalse(controller.streamed);
+        Assert.assertEquals(1, sink.numBatches);
+        Assert.assertEquals(3, sink.numDocs);
+        Assert.assertEquals(1, hook.numCalls);
+        // The document with an error is not passed to the hook
+        Assert.assertEquals(2, hook.numDocs);
+        Assert.assertEquals(1, response.getDataErrors().size());
+    }
 }
@@ -31,6 +31,22 @@ public class Access implements Serializable {
     private static final long serialVersionUID = 1l;
 
     private final HashSet<String> values = new HashSet<>();
+    private transient volatile Compiled compiled;
+
+    /**
+     * The roles compiled into a role set, with the anyone/noone flags
+     */
+    private static final class Compiled {
+        private final boolean anyone;
+        private final boolean noone;
+        private final RoleSet roles;
+
+        public Compiled(Set<String> values) {
+            anyone = values.contains(MetadataConstants.ROLE_ANYONE);
+            noone = values.contains(MetadataConstants.ROLE_NOONE);
+            roles = RoleSet.compile(values);
+        }
+    }
 
     /**
      * Default ctor
@@ -46,6 +62,7 @@ public class Access implements Serializable {
         if (roles != null) {
             values.addAll(roles);
         }
+        compiled = null;
     }
 
     /**
@@ -58,6 +75,7 @@ public class Access implements Serializable {
                 values.add(x);
             }
         }
+        compiled = null;
     }
 
     /**
@@ -116,4 +134,21 @@ public class Access implements Serializable {
         }
         return false;
     }
+
+    /**
+     * Returns if a caller with the given roles can perform this operation. This is the same as
+     * {@link #hasAccess(Collection)}, but the caller roles are already converted to a role set, so the check is a mask
+     * intersection.
+     */
+    public boolean hasAccess(RoleSet roles) {
+        Compiled c = compiled;
+        if (c == null) {
+            c = new Compiled(values);
+            compiled = c;
+        }
+        if (c.noone) {
+            return false;
+        }
+        return c.anyone || c.roles.intersects(roles);
+    }
 }
@@ -48,6 +48,7 @@ public class ArrayField extends Field {
     public void setElement(ArrayElement el) {
         element = el;
         element.setParent(this);
+        EntitySchema.fieldsChanged(this);
     }
 
     @Override
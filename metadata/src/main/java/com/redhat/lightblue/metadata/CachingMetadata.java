@@ -0,0 +1,243 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A metadata decorator that keeps parsed entity metadata in a bounded, least-recently-used cache keyed by entity name
+ * and version.
+ *
+ * Cached EntityMetadata instances are shared between callers, so they must be treated as read-only. Entries of an
+ * entity are dropped when its metadata is written through this object. If the underlying metadata implements
+ * MetadataChangeCounter, the counter is polled at most once every pollInterval milliseconds, and the whole cache is
+ * dropped when the counter changes. This keeps the cache consistent with writes made by other nodes.
+ *
+ * Metadata is loaded and the counter is read outside the cache lock. Every invalidation bumps a generation number, and
+ * metadata loaded before an invalidation is not put back into the cache.
+ */
+public class CachingMetadata implements Metadata {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingMetadata.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    public static final long DEFAULT_POLL_INTERVAL = 30000l;
+
+    private final Metadata metadata;
+    private final int cacheSize;
+    private final long pollInterval;
+    private final transient Map<CacheKey, EntityMetadata> cache;
+
+    private transient long lastPollTime;
+    private transient long lastChangeCount;
+    private transient long generation;
+
+    /**
+     * Constructs a caching metadata
+     *
+     * @param metadata The underlying metadata
+     * @param cacheSize Maximum number of entity metadata versions to keep
+     * @param pollInterval Minimum number of milliseconds between polls of the change counter
+     */
+    public CachingMetadata(Metadata metadata,
+                           final int cacheSize,
+                           long pollInterval) {
+        if (metadata == null) {
+            throw new IllegalArgumentException("metadata");
+        }
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize");
+        }
+        this.metadata = metadata;
+        this.cacheSize = cacheSize;
+        this.pollInterval = pollInterval;
+        this.cache = new LinkedHashMap<CacheKey, EntityMetadata>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, EntityMetadata> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        if (metadata instanceof MetadataChangeCounter) {
+            lastChangeCount = ((MetadataChangeCounter) metadata).getMetadataChangeCount();
+            lastPollTime = System.currentTimeMillis();
+        }
+    }
+
+    public CachingMetadata(Metadata metadata) {
+        this(metadata, DEFAULT_CACHE_SIZE, DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * The cache is not serialized. Returns a new instance with an empty cache in place of the deserialized one.
+     */
+    private Object readResolve() {
+        return new CachingMetadata(metadata, cacheSize, pollInterval);
+    }
+
+    /**
+     * Returns the underlying metadata
+     */
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public EntityMetadata getEntityMetadata(String entityName,
+                                            String version) {
+        pollChanges();
+        CacheKey key = new CacheKey(entityName, version);
+        EntityMetadata md;
+        long gen;
+        synchronized (cache) {
+            md = cache.get(key);
+            gen = generation;
+        }
+        if (md == null) {
+            LOGGER.debug("Metadata cache miss for {}:{}", entityName, version);
+            md = metadata.getEntityMetadata(entityName, version);
+            if (md != null) {
+                synchronized (cache) {
+                    // If the cache was dropped while loading, md may be stale
+                    if (gen == generation) {
+                        cache.put(key, md);
+                    }
+                }
+            }
+        }
+        return md;
+    }
+
+    @Override
+    public String[] getEntityNames() {
+        return metadata.getEntityNames();
+    }
+
+    @Override
+    public Version[] getEntityVersions(String entityName) {
+        return metadata.getEntityVersions(entityName);
+    }
+
+    @Override
+    public void createNewMetadata(EntityMetadata md) {
+        try {
+            metadata.createNewMetadata(md);
+        } finally {
+            invalidate(md.getName());
+        }
+    }
+
+    @Override
+    public void setMetadataStatus(String entityName,
+                                  String version,
+                                  MetadataStatus newStatus,
+                                  String comment) {
+        try {
+            metadata.setMetadataStatus(entityName, version, newStatus, comment);
+        } finally {
+            invalidate(entityName);
+        }
+    }
+
+    /**
+     * Drops all cached versions of the given entity
+     */
+    public void invalidate(String entityName) {
+        synchronized (cache) {
+            generation++;
+            for (Iterator<CacheKey> itr = cache.keySet().iterator(); itr.hasNext();) {
+                if (itr.next().entityName.equals(entityName)) {
+                    itr.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all cached metadata
+     */
+    public void invalidate() {
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+    }
+
+    /**
+     * Polls the change counter if the poll interval elapsed. The counter is read outside the cache lock, so readers are
+     * not blocked by the round trip to the underlying store.
+     */
+    private void pollChanges() {
+        if (metadata instanceof MetadataChangeCounter) {
+            synchronized (cache) {
+                long now = System.currentTimeMillis();
+                if (now - lastPollTime < pollInterval) {
+                    return;
+                }
+                lastPollTime = now;
+            }
+            long count = ((MetadataChangeCounter) metadata).getMetadataChangeCount();
+            synchronized (cache) {
+                if (count != lastChangeCount) {
+                    LOGGER.debug("Metadata changed, dropping cache");
+                    lastChangeCount = count;
+                    generation++;
+                    cache.clear();
+                }
+            }
+        }
+    }
+
+    private static final class CacheKey {
+        private final String entityName;
+        private final String version;
+
+        public CacheKey(String entityName,
+                        String version) {
+            this.entityName = entityName;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof CacheKey) {
+                CacheKey k = (CacheKey) o;
+                return equals(entityName, k.entityName) && equals(version, k.version);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return (entityName == null ? 0 : entityName.hashCode()) * 31 + (version == null ? 0 : version.hashCode());
+        }
+
+        private static boolean equals(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+}
@@ -47,7 +47,12 @@ public class EntitySchema implements Serializable {
     private final Fields fields;
     private final FieldTreeNode fieldRoot;
 
-    private class RootNode implements FieldTreeNode, Serializable {
+    /**
+     * Index of the field tree, built on the first resolve, and dropped when the field tree changes
+     */
+    private transient volatile FieldIndex fieldIndex;
+
+    class RootNode implements FieldTreeNode, Serializable {
 
         private static final long serialVersionUID = 1L;
 
@@ -73,7 +78,8 @@ public class EntitySchema implements Serializable {
 
         @Override
         public FieldTreeNode resolve(Path p) {
-            return fields.resolve(p);
+            FieldTreeNode node = getFieldIndex().get(p);
+            return node == null ? fields.resolve(p) : node;
         }
 
         @Override
@@ -95,6 +101,10 @@ public class EntitySchema implements Serializable {
         public MutablePath getFullPath(MutablePath mp) {
             return Path.EMPTY.mutableCopy();
         }
+
+        void fieldsChanged() {
+            fieldIndex = null;
+        }
     };
 
     public EntitySchema(String name) {
@@ -220,6 +230,10 @@ public class EntitySchema implements Serializable {
     }
 
     public FieldTreeNode resolve(Path p) {
+        FieldTreeNode node = getFieldIndex().get(p);
+        if (node != null) {
+            return node;
+        }
         Error.push(name);
         try {
             return fields.resolve(p);
@@ -227,4 +241,27 @@ public class EntitySchema implements Serializable {
             Error.pop();
         }
     }
+
+    private FieldIndex getFieldIndex() {
+        FieldIndex index = fieldIndex;
+        if (index == null) {
+            index = new FieldIndex(fieldRoot);
+            fieldIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Called when a field is added below the given node. If the node is attached to an entity schema, drops the
+     * field index of that schema.
+     */
+    static void fieldsChanged(FieldTreeNode node) {
+        FieldTreeNode root = node;
+        while (root != null && root.getParent() != null) {
+            root = root.getParent();
+        }
+        if (root instanceof RootNode) {
+            ((RootNode) root).fieldsChanged();
+        }
+    }
 }
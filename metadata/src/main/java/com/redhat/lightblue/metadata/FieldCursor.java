@@ -35,6 +35,12 @@ public class FieldCursor extends AbstractTreeCursor<FieldTreeNode> {
             this.itr = itr;
         }
 
+        public Adapter reset(Iterator<? extends FieldTreeNode> itr) {
+            this.itr = itr;
+            node = null;
+            return this;
+        }
+
         public boolean hasNext() {
             return itr.hasNext();
         }
@@ -60,6 +66,16 @@ public class FieldCursor extends AbstractTreeCursor<FieldTreeNode> {
         return new Adapter(node.getChildren());
     }
 
+    @Override
+    protected KeyValueCursor<String, FieldTreeNode> getCursor(FieldTreeNode node,
+                                                             KeyValueCursor<String, FieldTreeNode> reuse) {
+        if (reuse instanceof Adapter) {
+            return ((Adapter) reuse).reset(node.getChildren());
+        } else {
+            return getCursor(node);
+        }
+    }
+
     protected boolean hasChildren(FieldTreeNode node) {
         return node.hasChildren();
     }
@@ -0,0 +1,120 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.redhat.lightblue.util.Path;
+import com.redhat.lightblue.util.TreeVisitor;
+
+/**
+ * Maps the full path of every node in a field tree to the node. Array elements are keyed with '*', so a path is
+ * resolved by treating its array indexes as '*' and looking it up. Paths containing $parent or $this are not indexed,
+ * those have to be resolved by walking the tree.
+ *
+ * The index is an open addressing hash table, so that a path with array indexes can be looked up without building
+ * its normalized copy.
+ */
+final class FieldIndex {
+
+    private final Path[] keys;
+    private final FieldTreeNode[] values;
+    private final int mask;
+
+    public FieldIndex(FieldTreeNode root) {
+        final List<Path> paths = new ArrayList<>();
+        final List<FieldTreeNode> nodes = new ArrayList<>();
+        new FieldCursor(Path.EMPTY, root).accept(new TreeVisitor<FieldTreeNode>() {
+            @Override
+            public boolean enter(Path path, FieldTreeNode node) {
+                paths.add(path.immutableCopy());
+                nodes.add(node);
+                return true;
+            }
+
+            @Override
+            public void leave(Path path, FieldTreeNode node) {
+            }
+        });
+        int capacity = Integer.highestOneBit(Math.max(paths.size(), 4) * 2) * 2;
+        keys = new Path[capacity];
+        values = new FieldTreeNode[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < paths.size(); i++) {
+            Path key = paths.get(i);
+            int slot = key.hashCode() & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = nodes.get(i);
+        }
+    }
+
+    /**
+     * Returns the node for the given absolute path, or null if the path is not in the index
+     */
+    public FieldTreeNode get(Path p) {
+        int n = p.numSegments();
+        boolean hasIndex = false;
+        for (int i = 0; i < n; i++) {
+            if (p.isIndex(i)) {
+                hasIndex = true;
+            } else {
+                String seg = p.head(i);
+                if (Path.PARENT.equals(seg) || Path.THIS.equals(seg)) {
+                    return null;
+                }
+            }
+        }
+        int hash;
+        if (hasIndex) {
+            // Same as Path.hashCode() of the path with indexes replaced by '*'
+            hash = 1;
+            for (int i = 0; i < n; i++) {
+                hash = 31 * hash + (p.isIndex(i) ? Path.ANY : p.head(i)).hashCode();
+            }
+        } else {
+            hash = p.hashCode();
+        }
+        int slot = hash & mask;
+        Path key;
+        while ((key = keys[slot]) != null) {
+            if (key.hashCode() == hash && matches(key, p, n)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean matches(Path key, Path p, int n) {
+        if (key.numSegments() != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            String k = key.head(i);
+            if (!(k.equals(p.head(i)) || (p.isIndex(i) && Path.ANY.equals(k)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -44,4 +44,52 @@ public class Hooks implements Serializable {
     public boolean isEmpty() {
         return hooks.isEmpty();
     }
+
+    /**
+     * Determines if there are any insertion hooks
+     */
+    public boolean hasInsertHooks() {
+        for (Hook hook : hooks) {
+            if (hook.isInsert()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if there are any update hooks
+     */
+    public boolean hasUpdateHooks() {
+        for (Hook hook : hooks) {
+            if (hook.isUpdate()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if there are any deletion hooks
+     */
+    public boolean hasDeleteHooks() {
+        for (Hook hook : hooks) {
+            if (hook.isDelete()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if there are any find hooks
+     */
+    public boolean hasFindHooks() {
+        for (Hook hook : hooks) {
+            if (hook.isFind()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
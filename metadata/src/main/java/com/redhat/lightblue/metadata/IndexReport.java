@@ -0,0 +1,106 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Result of comparing the indexes declared in the metadata of an entity with the indexes that exist in the backing
+ * store. Missing indexes are declared in metadata, but do not exist in the store. Extra indexes exist in the store, but
+ * are not declared in metadata.
+ */
+public class IndexReport implements Serializable {
+
+    private static final long serialVersionUID = 1l;
+
+    private final String entityName;
+    private final List<Index> missing = new ArrayList<>();
+    private final List<Index> extra = new ArrayList<>();
+
+    public IndexReport(String entityName) {
+        this.entityName = entityName;
+    }
+
+    /**
+     * The entity name
+     */
+    public String getEntityName() {
+        return entityName;
+    }
+
+    /**
+     * Indexes declared in metadata that do not exist in the store
+     */
+    public List<Index> getMissing() {
+        return missing;
+    }
+
+    /**
+     * Indexes that exist in the store, but not declared in metadata
+     */
+    public List<Index> getExtra() {
+        return extra;
+    }
+
+    /**
+     * Returns true if the store has exactly the indexes declared in metadata
+     */
+    public boolean isConsistent() {
+        return missing.isEmpty() && extra.isEmpty();
+    }
+
+    /**
+     * Returns a json representation of this
+     */
+    public JsonNode toJson() {
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ObjectNode node = factory.objectNode();
+        node.put("entityName", entityName);
+        node.set("missing", toJson(factory, missing));
+        node.set("extra", toJson(factory, extra));
+        return node;
+    }
+
+    private static ArrayNode toJson(JsonNodeFactory factory, List<Index> indexes) {
+        ArrayNode arr = factory.arrayNode();
+        for (Index index : indexes) {
+            ObjectNode node = factory.objectNode();
+            if (index.getName() != null) {
+                node.put("name", index.getName());
+            }
+            node.put("unique", index.isUnique());
+            ArrayNode fields = factory.arrayNode();
+            for (Path p : index.getFields()) {
+                fields.add(p.toString());
+            }
+            node.set("fields", fields);
+            arr.add(node);
+        }
+        return arr;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable set of roles represented as a bit mask. Every role that appears in an access definition is given a bit
+ * index in a process wide registry, so checking whether the caller has one of the roles of an access definition is an
+ * AND of two masks.
+ *
+ * Access definitions are compiled with {@link #compile(Collection)}, which registers their roles. Caller roles are
+ * converted with {@link #of(Collection)}, which only looks up the registry: a caller role that is not used in any access
+ * definition cannot grant access, so it doesn't need a bit. The registry only grows with the roles in the metadata.
+ */
+public final class RoleSet {
+
+    public static final RoleSet EMPTY = new RoleSet(new String[0], new long[0], 0);
+
+    private static final ConcurrentHashMap<String, Integer> REGISTRY = new ConcurrentHashMap<>();
+
+    /**
+     * Number of registered roles. Roles are added to the registry before this is incremented, so all roles with index
+     * less than this value can be looked up.
+     */
+    private static volatile int registered = 0;
+
+    private final String[] roles;
+    private volatile Mask mask;
+
+    /**
+     * The bits of a role set, and the size of the registry when they were computed. Roles registered after that are
+     * not in the bits.
+     */
+    private static final class Mask {
+        private final long[] bits;
+        private final int registered;
+
+        public Mask(long[] bits, int registered) {
+            this.bits = bits;
+            this.registered = registered;
+        }
+    }
+
+    private RoleSet(String[] roles, long[] bits, int registered) {
+        this.roles = roles;
+        this.mask = new Mask(bits, registered);
+    }
+
+    /**
+     * Builds the role set of an access definition, registering all the roles
+     */
+    public static RoleSet compile(Collection<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return EMPTY;
+        }
+        String[] arr = roles.toArray(new String[roles.size()]);
+        long[] bits = new long[0];
+        for (String x : arr) {
+            bits = set(bits, register(x));
+        }
+        return new RoleSet(arr, bits, registered);
+    }
+
+    /**
+     * Builds the role set of a caller. Roles that are not used in any access definition are kept, but not given a bit.
+     */
+    public static RoleSet of(Collection<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return EMPTY;
+        }
+        String[] arr = roles.toArray(new String[roles.size()]);
+        int n = registered;
+        return new RoleSet(arr, lookup(arr), n);
+    }
+
+    /**
+     * Returns if this set and the given set have a common role
+     */
+    public boolean intersects(RoleSet other) {
+        long[] a = getBits(other.mask.bits.length);
+        long[] b = other.getBits(a.length);
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns if the set has no roles
+     */
+    public boolean isEmpty() {
+        return roles.length == 0;
+    }
+
+    /**
+     * Returns the bits of this set, making sure that the roles registered after this set was built are included if
+     * they may be needed to compare it with a set of nwords words
+     */
+    private long[] getBits(int nwords) {
+        Mask m = mask;
+        if (m.registered < nwords * 64 && m.registered < registered) {
+            int n = registered;
+            m = new Mask(lookup(roles), n);
+            mask = m;
+        }
+        return m.bits;
+    }
+
+    private static long[] lookup(String[] roles) {
+        long[] bits = new long[0];
+        for (String x : roles) {
+            Integer index = REGISTRY.get(x);
+            if (index != null) {
+                bits = set(bits, index);
+            }
+        }
+        return bits;
+    }
+
+    private static synchronized int register(String role) {
+        Integer index = REGISTRY.get(role);
+        if (index == null) {
+            index = registered;
+            REGISTRY.put(role, index);
+            registered = index + 1;
+        }
+        return index;
+    }
+
+    private static long[] set(long[] bits, int index) {
+        int word = index >>> 6;
+        long[] ret = bits;
+        if (word >= bits.length) {
+            ret = new long[word + 1];
+            System.arraycopy(bits, 0, ret, 0, bits.length);
+        }
+        ret[word] |= 1l << index;
+        return ret;
+    }
+}
@@ -41,6 +41,29 @@ public final class DateType implements Type, Serializable {
     public static final String DATE_FORMAT_STR = "yyyyMMdd'T'HH:mm:ss.SSSZ";
     private static final DateFormat DATE_FORMAT;
 
+    /**
+     * Per-thread formats used for the dates the fast path doesn't handle
+     */
+    private static final ThreadLocal<DateFormat> FORMATS = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return getDateFormat();
+        }
+    };
+
+    private static final long MS_PER_MINUTE = 60l * 1000l;
+    private static final long MS_PER_DAY = 24l * 60l * MS_PER_MINUTE;
+    private static final int DATE_STR_LENGTH = 26;
+
+    /**
+     * The fast path is used for the years where the Gregorian calendar applies and the year has four digits. Other
+     * dates are handled by SimpleDateFormat.
+     */
+    private static final int MIN_FAST_YEAR = 1583;
+    private static final int MAX_FAST_YEAR = 9999;
+    private static final long MIN_FAST_MILLIS = daysFromCivil(MIN_FAST_YEAR, 1, 1) * MS_PER_DAY;
+    private static final long MAX_FAST_MILLIS = daysFromCivil(MAX_FAST_YEAR + 1, 1, 1) * MS_PER_DAY;
+
     static {
         DATE_FORMAT = new SimpleDateFormat(DATE_FORMAT_STR);
         DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
@@ -54,6 +77,137 @@ public final class DateType implements Type, Serializable {
         return (DateFormat) DATE_FORMAT.clone();
     }
 
+    /**
+     * Formats the date using DATE_FORMAT_STR in GMT. Thread safe, and does not create a DateFormat.
+     */
+    public static String formatDate(Date date) {
+        long millis = date.getTime();
+        if (millis < MIN_FAST_MILLIS || millis >= MAX_FAST_MILLIS) {
+            return FORMATS.get().format(date);
+        }
+        long days = millis / MS_PER_DAY;
+        int msOfDay = (int) (millis % MS_PER_DAY);
+        if (msOfDay < 0) {
+            days--;
+            msOfDay += MS_PER_DAY;
+        }
+        // Civil date from days since epoch, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yoe + era * 400) + (month <= 2 ? 1 : 0);
+
+        char[] buf = new char[DATE_STR_LENGTH];
+        put(buf, 0, year, 4);
+        put(buf, 4, month, 2);
+        put(buf, 6, day, 2);
+        buf[8] = 'T';
+        put(buf, 9, msOfDay / 3600000, 2);
+        buf[11] = ':';
+        put(buf, 12, (msOfDay / 60000) % 60, 2);
+        buf[14] = ':';
+        put(buf, 15, (msOfDay / 1000) % 60, 2);
+        buf[17] = '.';
+        put(buf, 18, msOfDay % 1000, 3);
+        buf[21] = '+';
+        put(buf, 22, 0, 4);
+        return new String(buf);
+    }
+
+    /**
+     * Parses a date formatted using DATE_FORMAT_STR. Thread safe, and does not create a DateFormat for dates in the
+     * exact format. Other strings are parsed by SimpleDateFormat, so they are accepted the same way as
+     * getDateFormat().parse() accepts them.
+     */
+    public static Date parseDate(String str) throws ParseException {
+        if (str.length() == DATE_STR_LENGTH
+                && str.charAt(8) == 'T'
+                && str.charAt(11) == ':'
+                && str.charAt(14) == ':'
+                && str.charAt(17) == '.') {
+            int year = digits(str, 0, 4);
+            int month = digits(str, 4, 2);
+            int day = digits(str, 6, 2);
+            int hour = digits(str, 9, 2);
+            int minute = digits(str, 12, 2);
+            int second = digits(str, 15, 2);
+            int ms = digits(str, 18, 3);
+            char sign = str.charAt(21);
+            int offsetHours = digits(str, 22, 2);
+            int offsetMinutes = digits(str, 24, 2);
+            if (year >= MIN_FAST_YEAR && year <= MAX_FAST_YEAR
+                    && month >= 1 && month <= 12
+                    && day >= 1 && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour < 24
+                    && minute >= 0 && minute < 60
+                    && second >= 0 && second < 60
+                    && ms >= 0
+                    && (sign == '+' || sign == '-')
+                    && offsetHours >= 0 && offsetHours < 24
+                    && offsetMinutes >= 0 && offsetMinutes < 60) {
+                long offset = (offsetHours * 60 + offsetMinutes) * MS_PER_MINUTE;
+                long millis = daysFromCivil(year, month, day) * MS_PER_DAY
+                        + ((hour * 60 + minute) * 60 + second) * 1000l + ms;
+                return new Date(sign == '+' ? millis - offset : millis + offset);
+            }
+        }
+        return FORMATS.get().parse(str);
+    }
+
+    /**
+     * Days since epoch of a Gregorian calendar date
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097l + doe - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the value of n decimal digits starting at index, or -1 if there is a non-digit
+     */
+    private static int digits(String str, int index, int n) {
+        int value = 0;
+        for (int i = index; i < index + n; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void put(char[] buf, int index, int value, int n) {
+        int v = value;
+        for (int i = index + n - 1; i >= index; i--) {
+            buf[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -71,14 +225,14 @@ public final class DateType implements Type, Serializable {
 
     @Override
     public JsonNode toJson(JsonNodeFactory factory, Object obj) {
-        return factory.textNode(getDateFormat().format((Date) cast(obj)));
+        return factory.textNode(formatDate((Date) cast(obj)));
     }
 
     @Override
     public Object fromJson(JsonNode node) {
         if (node.isValueNode()) {
             try {
-                return getDateFormat().parse(node.asText());
+                return parseDate(node.asText());
             } catch (ParseException e) {
                 throw Error.get(NAME, MetadataConstants.ERR_INCOMPATIBLE_VALUE, node.toString());
             }
@@ -91,12 +245,11 @@ public final class DateType implements Type, Serializable {
     public Object cast(Object obj) {
         Date value = null;
         if (obj != null) {
-            DateFormat fmt = getDateFormat();
             if (obj instanceof Date) {
                 value = (Date) obj;
             } else if (obj instanceof String) {
                 try {
-                    value = fmt.parse((String) obj);
+                    value = parseDate((String) obj);
                 } catch (ParseException e) {
                     throw Error.get(NAME, MetadataConstants.ERR_INCOMPATIBLE_VALUE, obj.toString());
                 }
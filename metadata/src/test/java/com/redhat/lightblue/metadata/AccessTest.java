@@ -0,0 +1,75 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccessTest {
+
+    private static Set<String> roles(String... x) {
+        return new HashSet<>(Arrays.asList(x));
+    }
+
+    private static Access access(String... x) {
+        Access a = new Access();
+        a.setRoles(x);
+        return a;
+    }
+
+    @Test
+    public void testRoleSetMatchesCollection() {
+        Access a = access("a.role1", "a.role2");
+        for (Set<String> caller : Arrays.asList(roles(), roles("a.role1"), roles("a.role3", "a.role2"), roles("a.role3"))) {
+            Assert.assertEquals(a.hasAccess(caller), a.hasAccess(RoleSet.of(caller)));
+        }
+        Assert.assertTrue(access(MetadataConstants.ROLE_ANYONE).hasAccess(RoleSet.EMPTY));
+        Assert.assertFalse(access(MetadataConstants.ROLE_NOONE, "a.role1").hasAccess(RoleSet.of(roles("a.role1"))));
+        Assert.assertFalse(access().hasAccess(RoleSet.of(roles("a.role1"))));
+    }
+
+    @Test
+    public void testSetRolesRecompiles() {
+        Access a = access("b.role1");
+        RoleSet caller = RoleSet.of(roles("b.role2"));
+        Assert.assertFalse(a.hasAccess(caller));
+        a.setRoles("b.role2");
+        Assert.assertTrue(a.hasAccess(caller));
+    }
+
+    @Test
+    public void testCallerRolesRegisteredLater() {
+        // The caller role set is built before any access definition uses its roles
+        RoleSet caller = RoleSet.of(roles("c.role70"));
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            many.add("c.role" + i);
+        }
+        Access a = new Access();
+        a.setRoles(many);
+        Assert.assertTrue(a.hasAccess(caller));
+        Assert.assertFalse(a.hasAccess(RoleSet.of(roles("c.role100"))));
+    }
+}
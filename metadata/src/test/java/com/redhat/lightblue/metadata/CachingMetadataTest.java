@@ -0,0 +1,209 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingMetadataTest {
+
+    private static class CountingMetadata implements Metadata, MetadataChangeCounter {
+        private static final long serialVersionUID = 1L;
+
+        int numGets = 0;
+        long changeCount = 0;
+        Runnable onGet;
+        Runnable onCount;
+
+        @Override
+        public EntityMetadata getEntityMetadata(String entityName, String version) {
+            numGets++;
+            if (onGet != null) {
+                onGet.run();
+            }
+            EntityMetadata md = new EntityMetadata(entityName);
+            md.setVersion(new Version(version, null, null));
+            return md;
+        }
+
+        @Override
+        public String[] getEntityNames() {
+            return new String[0];
+        }
+
+        @Override
+        public Version[] getEntityVersions(String entityName) {
+            return new Version[0];
+        }
+
+        @Override
+        public void createNewMetadata(EntityMetadata md) {
+            changeCount++;
+        }
+
+        @Override
+        public void setMetadataStatus(String entityName, String version, MetadataStatus newStatus, String comment) {
+            changeCount++;
+        }
+
+        @Override
+        public long getMetadataChangeCount() {
+            if (onCount != null) {
+                onCount.run();
+            }
+            return changeCount;
+        }
+    }
+
+    private CountingMetadata md;
+
+    @Before
+    public void setup() {
+        md = new CountingMetadata();
+    }
+
+    @Test
+    public void cachesByNameAndVersion() {
+        CachingMetadata cache = new CachingMetadata(md, 10, 100000);
+        EntityMetadata x = cache.getEntityMetadata("a", "1.0");
+        Assert.assertSame(x, cache.getEntityMetadata("a", "1.0"));
+        Assert.assertEquals(1, md.numGets);
+        Assert.assertNotSame(x, cache.getEntityMetadata("a", "2.0"));
+        Assert.assertNotSame(x, cache.getEntityMetadata("b", "1.0"));
+        Assert.assertEquals(3, md.numGets);
+    }
+
+    @Test
+    public void usableAfterDeserialization() throws Exception {
+        CachingMetadata cache = new CachingMetadata(md, 10, 100000);
+        cache.getEntityMetadata("a", "1.0");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cache);
+        }
+        CachingMetadata copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (CachingMetadata) in.readObject();
+        }
+        CountingMetadata copyMd = (CountingMetadata) copy.getMetadata();
+        int gets = copyMd.numGets;
+        EntityMetadata a = copy.getEntityMetadata("a", "1.0");
+        Assert.assertEquals(gets + 1, copyMd.numGets);
+        Assert.assertSame(a, copy.getEntityMetadata("a", "1.0"));
+        Assert.assertEquals(gets + 1, copyMd.numGets);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        CachingMetadata cache = new CachingMetadata(md, 2, 100000);
+        EntityMetadata a = cache.getEntityMetadata("a", "1.0");
+        EntityMetadata b = cache.getEntityMetadata("b", "1.0");
+        Assert.assertSame(a, cache.getEntityMetadata("a", "1.0"));
+        cache.getEntityMetadata("c", "1.0");
+        Assert.assertSame(a, cache.getEntityMetadata("a", "1.0"));
+        Assert.assertNotSame(b, cache.getEntityMetadata("b", "1.0"));
+        Assert.assertEquals(4, md.numGets);
+    }
+
+    @Test
+    public void writesInvalidateEntity() {
+        CachingMetadata cache = new CachingMetadata(md, 10, 100000);
+        EntityMetadata a = cache.getEntityMetadata("a", "1.0");
+        EntityMetadata b = cache.getEntityMetadata("b", "1.0");
+        cache.setMetadataStatus("a", "1.0", MetadataStatus.DEPRECATED, null);
+        Assert.assertNotSame(a, cache.getEntityMetadata("a", "1.0"));
+        Assert.assertSame(b, cache.getEntityMetadata("b", "1.0"));
+
+        a = cache.getEntityMetadata("a", "1.0");
+        cache.createNewMetadata(new EntityMetadata("b"));
+        Assert.assertSame(a, cache.getEntityMetadata("a", "1.0"));
+        Assert.assertNotSame(b, cache.getEntityMetadata("b", "1.0"));
+    }
+
+    @Test
+    public void changeCounterInvalidatesAll() {
+        CachingMetadata cache = new CachingMetadata(md, 10, 0);
+        EntityMetadata a = cache.getEntityMetadata("a", "1.0");
+        Assert.assertSame(a, cache.getEntityMetadata("a", "1.0"));
+        // Simulate a change made by another node
+        md.changeCount++;
+        Assert.assertNotSame(a, cache.getEntityMetadata("a", "1.0"));
+    }
+
+    @Test
+    public void changeCounterNotPolledBeforeInterval() {
+        CachingMetadata cache = new CachingMetadata(md, 10, 100000);
+        EntityMetadata a = cache.getEntityMetadata("a", "1.0");
+        md.changeCount++;
+        Assert.assertSame(a, cache.getEntityMetadata("a", "1.0"));
+    }
+
+    @Test
+    public void invalidateDuringLoadIsNotOverwritten() {
+        final CachingMetadata cache = new CachingMetadata(md, 10, 100000);
+        md.onGet = new Runnable() {
+            @Override
+            public void run() {
+                // Simulate an invalidation by another thread while this one loads
+                cache.invalidate();
+            }
+        };
+        EntityMetadata a = cache.getEntityMetadata("a", "1.0");
+        md.onGet = null;
+        EntityMetadata a2 = cache.getEntityMetadata("a", "1.0");
+        Assert.assertNotSame(a, a2);
+        Assert.assertSame(a2, cache.getEntityMetadata("a", "1.0"));
+        Assert.assertEquals(2, md.numGets);
+    }
+
+    @Test
+    public void changeCounterReadOutsideLock() throws Exception {
+        final CachingMetadata cache = new CachingMetadata(md, 10, 0);
+        cache.getEntityMetadata("a", "1.0");
+        final boolean[] blocked = new boolean[1];
+        md.onCount = new Runnable() {
+            @Override
+            public void run() {
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        cache.invalidate("a");
+                    }
+                };
+                t.start();
+                try {
+                    t.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                blocked[0] = t.isAlive();
+            }
+        };
+        cache.getEntityMetadata("a", "1.0");
+        md.onCount = null;
+        Assert.assertFalse(blocked[0]);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HooksTest {
+
+    @Test
+    public void hasHooksByOperation() {
+        Hooks hooks = new Hooks();
+        Assert.assertFalse(hooks.hasInsertHooks());
+        Assert.assertFalse(hooks.hasUpdateHooks());
+        Assert.assertFalse(hooks.hasDeleteHooks());
+        Assert.assertFalse(hooks.hasFindHooks());
+
+        Hook insert = new Hook("insert");
+        insert.setInsert(true);
+        Hook findAndDelete = new Hook("findAndDelete");
+        findAndDelete.setFind(true);
+        findAndDelete.setDelete(true);
+        hooks.setHooks(Arrays.asList(insert, findAndDelete));
+        Assert.assertTrue(hooks.hasInsertHooks());
+        Assert.assertFalse(hooks.hasUpdateHooks());
+        Assert.assertTrue(hooks.hasDeleteHooks());
+        Assert.assertTrue(hooks.hasFindHooks());
+    }
+}
@@ -134,6 +134,29 @@ public class PathResolverTest {
 
     }
 
+    @Test
+    public void testFieldsAddedAfterResolve() throws Exception {
+        EntityMetadata md = getMD1();
+        Assert.assertNotNull(md.resolve(new Path("obj1.nested.objArr.1.nestedArrObjString")));
+        invalid(md, "obj1.nested.objArr.1.added", MetadataConstants.ERR_INVALID_FIELD_REFERENCE);
+        ObjectArrayElement oarr = (ObjectArrayElement) md.resolve(new Path("obj1.nested.objArr.*"));
+        oarr.getFields().addNew(new SimpleField("added", StringType.TYPE));
+        Assert.assertEquals("added", ((Field) md.resolve(new Path("obj1.nested.objArr.1.added"))).getName());
+
+        ArrayField arr = (ArrayField) md.resolve(new Path("obj1.nested.simpleArr"));
+        arr.setElement(new SimpleArrayElement(IntegerType.TYPE));
+        Assert.assertSame(arr.getElement(), md.resolve(new Path("obj1.nested.simpleArr.3")));
+    }
+
+    @Test
+    public void testRelativeForms() throws Exception {
+        EntityMetadata md = getMD1();
+        Assert.assertEquals("nestedSimpleString",
+                ((Field) md.resolve(new Path("obj1.nested.$parent.nestedSimpleString"))).getName());
+        Assert.assertEquals("doubleNestedString",
+                ((Field) md.resolve(new Path("obj1.$this.nested.doubleNestedString"))).getName());
+    }
+
     public void testSubCursor() throws Exception {
         EntityMetadata md = getMD1();
         FieldCursor cursor = md.getFieldCursor(new Path("obj1"));
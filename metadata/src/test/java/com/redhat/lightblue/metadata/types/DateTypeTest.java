@@ -89,6 +89,24 @@ public class DateTypeTest {
         assertTrue(fromJson instanceof Date);
     }
 
+    @Test
+    public void testFormatParseSameAsDateFormat() throws Exception {
+        DateFormat dateFormat = DateType.getDateFormat();
+        long[] times = {0l, -1l, 951782399999l, 951868800000l, 1388534400000l, 253402300799999l,
+            -12219292800000l, -12219292800001l, -62135769600000l, 253402300800000l, System.currentTimeMillis()};
+        for (long t : times) {
+            Date date = new Date(t);
+            String str = dateFormat.format(date);
+            assertEquals(str, DateType.formatDate(date));
+            assertEquals(dateFormat.parse(str), DateType.parseDate(str));
+        }
+        String[] strs = {"20140101T10:00:00.000-0530", "20000229T23:59:59.999+1345", "20140229T10:00:00.000+0000",
+            "20140101T10:00:00.000+0000xyz", "20140101T10:00:00.000GMT"};
+        for (String str : strs) {
+            assertEquals(dateFormat.parse(str), DateType.parseDate(str));
+        }
+    }
+
     @Test(expected = Error.class)
     public void testFromJsonWithBadValue() {
         JsonNode jsonNode = JsonNodeFactory.withExactBigDecimals(false).textNode("badstring");
@@ -0,0 +1,202 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.mongo.config.metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.DBPortPool;
+import com.mongodb.DBTCPConnector;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.mongodb.util.ConnectionPoolStatisticsBean;
+
+/**
+ * Process-wide registry of pooled MongoClient instances. MongoClient keeps its own connection pool and is thread safe,
+ * so there should be only one instance for each distinct set of servers and client options. Configurations that
+ * resolve to the same servers and options share the same client.
+ */
+public final class MongoClientRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoClientRegistry.class);
+
+    private static final Map<ClientKey, MongoClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private MongoClientRegistry() {
+
+    }
+
+    /**
+     * Returns the shared client for the given servers and options, creating it if necessary
+     */
+    public static MongoClient getClient(List<ServerAddress> servers,
+                                        MongoClientOptions options) {
+        ClientKey key = new ClientKey(servers, options);
+        MongoClient client = CLIENTS.get(key);
+        if (client == null) {
+            synchronized (CLIENTS) {
+                client = CLIENTS.get(key);
+                if (client == null) {
+                    LOGGER.debug("Creating new mongo client for {}", key.servers);
+                    client = new MongoClient(key.servers, options);
+                    CLIENTS.put(key, client);
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Returns the number of distinct clients in the registry
+     */
+    public static int size() {
+        return CLIENTS.size();
+    }
+
+    /**
+     * Returns connection pool statistics for every server of every client in the registry
+     */
+    public static List<PoolStatistics> getPoolStatistics() {
+        List<PoolStatistics> ret = new ArrayList<>();
+        for (Map.Entry<ClientKey, MongoClient> entry : CLIENTS.entrySet()) {
+            DBTCPConnector connector = entry.getValue().getConnector();
+            for (ServerAddress address : entry.getKey().servers) {
+                DBPortPool pool = connector.getDBPortPool(address);
+                if (pool != null) {
+                    ConnectionPoolStatisticsBean stats = pool.getStatistics();
+                    ret.add(new PoolStatistics(entry.getKey().servers, address,
+                            entry.getKey().options.getConnectionsPerHost(),
+                            stats.getTotal(), stats.getInUse()));
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Closes all clients and empties the registry
+     */
+    public static void closeAll() {
+        synchronized (CLIENTS) {
+            for (MongoClient client : CLIENTS.values()) {
+                try {
+                    client.close();
+                } catch (Exception e) {
+                    LOGGER.warn("Cannot close mongo client: {}", e);
+                }
+            }
+            CLIENTS.clear();
+        }
+    }
+
+    /**
+     * Connection pool statistics for a single server of a client
+     */
+    public static final class PoolStatistics {
+        private final List<ServerAddress> servers;
+        private final ServerAddress address;
+        private final int maxSize;
+        private final int total;
+        private final int inUse;
+
+        private PoolStatistics(List<ServerAddress> servers,
+                               ServerAddress address,
+                               int maxSize,
+                               int total,
+                               int inUse) {
+            this.servers = servers;
+            this.address = address;
+            this.maxSize = maxSize;
+            this.total = total;
+            this.inUse = inUse;
+        }
+
+        /**
+         * The server set of the client owning this pool
+         */
+        public List<ServerAddress> getServers() {
+            return servers;
+        }
+
+        /**
+         * The server this pool connects to
+         */
+        public ServerAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * Maximum number of connections allowed in the pool
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Number of open connections in the pool
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Number of connections currently checked out of the pool
+         */
+        public int getInUse() {
+            return inUse;
+        }
+
+        @Override
+        public String toString() {
+            return address + " total:" + total + " inUse:" + inUse + " max:" + maxSize;
+        }
+    }
+
+    private static final class ClientKey {
+        private final List<ServerAddress> servers;
+        private final MongoClientOptions options;
+
+        public ClientKey(List<ServerAddress> servers,
+                         MongoClientOptions options) {
+            this.servers = Collections.unmodifiableList(new ArrayList<>(servers));
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof ClientKey) {
+                ClientKey k = (ClientKey) o;
+                return servers.equals(k.servers) && options.equals(k.options);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return servers.hashCode() * 31 + options.hashCode();
+        }
+    }
+}
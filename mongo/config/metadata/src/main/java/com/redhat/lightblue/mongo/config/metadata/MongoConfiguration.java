@@ -19,13 +19,13 @@
 package com.redhat.lightblue.mongo.config.metadata;
 
 import com.mongodb.DB;
-import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.ServerAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocketFactory;
 
 /**
@@ -39,7 +39,12 @@ public class MongoConfiguration {
     private final List<ServerAddress> servers = new ArrayList<>();
     private String collection;
     private Integer connectionsPerHost;
+    private Integer threadsAllowedToBlockForConnectionMultiplier;
+    private Integer maxWaitTime;
+    private Integer connectTimeout;
+    private Integer socketTimeout;
     private Boolean ssl = Boolean.TRUE;
+    private Boolean backgroundIndexBuild;
 
     /**
      * @return the name
@@ -98,6 +103,69 @@ public class MongoConfiguration {
         this.connectionsPerHost = connectionsPerHost;
     }
 
+    /**
+     * @return the threadsAllowedToBlockForConnectionMultiplier
+     */
+    public Integer getThreadsAllowedToBlockForConnectionMultiplier() {
+        return threadsAllowedToBlockForConnectionMultiplier;
+    }
+
+    /**
+     * Sets the size of the wait queue for connections, as a multiplier of connectionsPerHost.
+     *
+     * @param threadsAllowedToBlockForConnectionMultiplier the threadsAllowedToBlockForConnectionMultiplier to set
+     */
+    public void setThreadsAllowedToBlockForConnectionMultiplier(Integer threadsAllowedToBlockForConnectionMultiplier) {
+        this.threadsAllowedToBlockForConnectionMultiplier = threadsAllowedToBlockForConnectionMultiplier;
+    }
+
+    /**
+     * @return the maxWaitTime
+     */
+    public Integer getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds a thread waits in the queue for a connection.
+     *
+     * @param maxWaitTime the maxWaitTime to set
+     */
+    public void setMaxWaitTime(Integer maxWaitTime) {
+        this.maxWaitTime = maxWaitTime;
+    }
+
+    /**
+     * @return the connectTimeout
+     */
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout the connectTimeout to set, in milliseconds
+     */
+    public void setConnectTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return the socketTimeout
+     */
+    public Integer getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * Sets the socket read timeout in milliseconds: how long a blocking read on a
+     * connection waits for data from the server before failing. 0 means no timeout.
+     *
+     * @param socketTimeout the socketTimeout to set
+     */
+    public void setSocketTimeout(Integer socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
     /**
      * @return the ssl
      */
@@ -112,6 +180,23 @@ public class MongoConfiguration {
         this.ssl = ssl;
     }
 
+    /**
+     * @return the backgroundIndexBuild
+     */
+    public Boolean getBackgroundIndexBuild() {
+        return backgroundIndexBuild;
+    }
+
+    /**
+     * If true, the indexes declared in entity metadata are built in the background, so the entity collection remains
+     * available while indexes are built.
+     *
+     * @param backgroundIndexBuild the backgroundIndexBuild to set
+     */
+    public void setBackgroundIndexBuild(Boolean backgroundIndexBuild) {
+        this.backgroundIndexBuild = backgroundIndexBuild;
+    }
+
     /**
      * Returns an options object with defaults overriden where there is a valid override.
      *
@@ -124,16 +209,40 @@ public class MongoConfiguration {
             builder.connectionsPerHost(connectionsPerHost);
         }
 
+        if (threadsAllowedToBlockForConnectionMultiplier != null) {
+            builder.threadsAllowedToBlockForConnectionMultiplier(threadsAllowedToBlockForConnectionMultiplier);
+        }
+
+        if (maxWaitTime != null) {
+            builder.maxWaitTime(maxWaitTime);
+        }
+
+        if (connectTimeout != null) {
+            builder.connectTimeout(connectTimeout);
+        }
+
+        if (socketTimeout != null) {
+            builder.socketTimeout(socketTimeout);
+        }
+
         if (ssl != null && ssl.booleanValue()) {
             // taken from MongoClientURI, written this way so we don't have to construct a URI to connect
-            builder.socketFactory(SSLSocketFactory.getDefault());
+            // the same factory instance is used for all configurations so options compare equal in MongoClientRegistry
+            builder.socketFactory(SSLFactoryHolder.FACTORY);
         }
 
         return builder.build();
     }
 
+    /**
+     * Returns the DB using the shared client for this configuration's servers and options. The client is created on
+     * first use, and reused by all configurations with the same servers and options.
+     */
     public DB getDB() throws UnknownHostException {
-        MongoClient client = new MongoClient(servers, getMongoClientOptions());
-        return client.getDB(getName());
+        return MongoClientRegistry.getClient(servers, getMongoClientOptions()).getDB(getName());
+    }
+
+    private static final class SSLFactoryHolder {
+        private static final SocketFactory FACTORY = SSLSocketFactory.getDefault();
     }
 }
@@ -24,7 +24,11 @@ public final class MongoMetadataFactory {
         parserExtensions.addDefaultExtensions();
         parserExtensions.registerDataStoreParser("mongo", new MongoDataStoreParser<BSONObject>());
         DefaultTypes typeResolver = new DefaultTypes();
-        return new MongoMetadata(db, parserExtensions, typeResolver);
+        MongoMetadata metadata = new MongoMetadata(db, parserExtensions, typeResolver);
+        if (configuration.getBackgroundIndexBuild() != null) {
+            metadata.setBackgroundIndexBuild(configuration.getBackgroundIndexBuild());
+        }
+        return metadata;
     }
 
 }
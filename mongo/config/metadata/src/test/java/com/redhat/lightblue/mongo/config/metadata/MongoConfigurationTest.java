@@ -140,4 +140,34 @@ public class MongoConfigurationTest {
 
         Assert.assertEquals(config.getDB().toString(), client.getDB("name").toString());
     }
+
+    @Test
+    public void testGetMongoClientOptionsPoolSettings() {
+        config.setSsl(null);
+        config.setThreadsAllowedToBlockForConnectionMultiplier(3);
+        config.setMaxWaitTime(1000);
+        config.setConnectTimeout(2000);
+        config.setSocketTimeout(3000);
+        MongoClientOptions.Builder builder = MongoClientOptions.builder();
+        builder.connectionsPerHost(10);
+        builder.threadsAllowedToBlockForConnectionMultiplier(3);
+        builder.maxWaitTime(1000);
+        builder.connectTimeout(2000);
+        builder.socketTimeout(3000);
+
+        Assert.assertEquals(builder.build(), config.getMongoClientOptions());
+    }
+
+    @Test
+    public void testGetDbSharesClient() throws UnknownHostException {
+        MongoConfiguration other = new MongoConfiguration();
+        other.setName("other");
+        other.setConnectionsPerHost(10);
+        other.addServerAddress("localhost", 27017);
+
+        Assert.assertSame(config.getDB().getMongo(), other.getDB().getMongo());
+
+        other.setConnectionsPerHost(20);
+        Assert.assertNotSame(config.getDB().getMongo(), other.getDB().getMongo());
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.CRUDUpdateResponse;
+import com.redhat.lightblue.crud.CrudConstants;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.Operation;
+
+import com.redhat.lightblue.eval.FieldAccessRoleEvaluator;
+import com.redhat.lightblue.eval.Projector;
+import com.redhat.lightblue.eval.QueryEvaluationContext;
+
+import com.redhat.lightblue.metadata.EntityMetadata;
+
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Atomic updater that evaluates the query, and updates the documents in batches. For each batch of documents read from
+ * the result set, the documents are updated using a single multi-document update on their _ids, and then the updated
+ * documents are read back with a single query to compute the projections. This replaces one findAndModify call per
+ * document with two calls per batch.
+ *
+ * The update of each document is atomic, but reading it back is not atomic with the update. If another writer changes
+ * a document between the two calls, its projected output and the document passed to the hooks show that writer's
+ * changes as well. The server does not support findAndModify on more than one document, so this is the price of
+ * batching.
+ *
+ * A multi-document update stops at the first document it fails to update. The documents before it are updated, and
+ * the ones after it are not. When the batch update fails, the documents read back unchanged are updated one by one
+ * with findAndModify, so only the documents that really fail get an error.
+ */
+public class AtomicBatchUpdate implements DocUpdater {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AtomicBatchUpdate.class);
+
+    /**
+     * Default number of documents updated at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final JsonNodeFactory nodeFactory;
+    private final FieldAccessRoleEvaluator roleEval;
+    private final Translator translator;
+    private final DBObject mongoUpdateExpr;
+    private final Projector projector;
+    private final Set<Path> updatedFields;
+    private final int batchSize;
+
+    private int numUpdated;
+    private int numFailed;
+
+    public AtomicBatchUpdate(JsonNodeFactory nodeFactory,
+                             FieldAccessRoleEvaluator roleEval,
+                             Translator translator,
+                             DBObject mongoUpdateExpr,
+                             Projector projector,
+                             Set<Path> updatedFields,
+                             int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.nodeFactory = nodeFactory;
+        this.roleEval = roleEval;
+        this.translator = translator;
+        this.mongoUpdateExpr = mongoUpdateExpr;
+        this.projector = projector;
+        this.updatedFields = updatedFields;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void update(CRUDOperationContext ctx,
+                       DBCollection collection,
+                       EntityMetadata md,
+                       CRUDUpdateResponse response,
+                       DBObject query) {
+        LOGGER.debug("atomicBatchUpdate: start");
+        Set<Path> inaccessibleFields = roleEval.getInaccessibleFields(FieldAccessRoleEvaluator.Operation.update);
+        for (Path x : inaccessibleFields) {
+            if (updatedFields.contains(x)) {
+                ctx.addError(Error.get("update", CrudConstants.ERR_NO_FIELD_UPDATE_ACCESS, x.toString()));
+            }
+        }
+        numUpdated = 0;
+        numFailed = 0;
+        if (!ctx.hasErrors()) {
+            LOGGER.debug("Computing the result set for {}", query);
+            DBCursor cursor = null;
+            try {
+                cursor = collection.find(query);
+                cursor.batchSize(batchSize);
+                List<DBObject> batch = new ArrayList<>(batchSize);
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() >= batchSize) {
+                        updateBatch(ctx, collection, batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    updateBatch(ctx, collection, batch);
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+        response.setNumUpdated(numUpdated);
+        response.setNumFailed(numFailed);
+    }
+
+    private void updateBatch(CRUDOperationContext ctx,
+                             DBCollection collection,
+                             List<DBObject> batch) {
+        LOGGER.debug("Updating batch of {} documents", batch.size());
+        List<Object> ids = new ArrayList<>(batch.size());
+        List<DocCtx> docs = new ArrayList<>(batch.size());
+        for (DBObject document : batch) {
+            ids.add(document.get("_id"));
+            docs.add(ctx.addDocument(translator.toJson(document)));
+        }
+        DBObject idQuery = new BasicDBObject("_id", new BasicDBObject("$in", ids));
+        String error;
+        try {
+            WriteResult result = collection.update(idQuery, mongoUpdateExpr, false, true, WriteConcern.SAFE);
+            LOGGER.debug("Write result {}", result);
+            error = result.getError();
+        } catch (MongoException e) {
+            LOGGER.warn("Update exception for batch: {}", e);
+            error = e.toString();
+        }
+        Map<Object, DBObject> modifiedDocs = new HashMap<>();
+        try {
+            DBCursor cursor = collection.find(idQuery);
+            try {
+                while (cursor.hasNext()) {
+                    DBObject modifiedDoc = cursor.next();
+                    modifiedDocs.put(modifiedDoc.get("_id"), modifiedDoc);
+                }
+            } finally {
+                cursor.close();
+            }
+        } catch (MongoException e) {
+            // The documents may or may not be updated, there is no way to tell
+            LOGGER.warn("Cannot read back updated batch: {}", e);
+            for (DocCtx doc : docs) {
+                doc.addError(Error.get(MongoCrudConstants.ERR_UPDATE_ERROR, error == null ? e.toString() : error));
+            }
+            numFailed += docs.size();
+            return;
+        }
+        if (error != null) {
+            LOGGER.debug("Batch update failed, resolving documents one by one: {}", error);
+        }
+        for (int i = 0; i < docs.size(); i++) {
+            DocCtx doc = docs.get(i);
+            Object id = ids.get(i);
+            DBObject modifiedDoc = modifiedDocs.get(id);
+            if (modifiedDoc != null && error != null && modifiedDoc.equals(batch.get(i))) {
+                // The failed update stopped before this document. Updating it again is safe, because the update left
+                // it unchanged even if it did reach it.
+                modifiedDoc = updateOne(collection, doc, id);
+                if (doc.hasErrors()) {
+                    continue;
+                }
+            }
+            if (modifiedDoc == null) {
+                LOGGER.warn("Document {} is removed during update", id);
+                doc.addError(Error.get(MongoCrudConstants.ERR_UPDATE_ERROR, String.valueOf(id)));
+                numFailed++;
+            } else {
+                if (projector != null) {
+                    QueryEvaluationContext qctx = new QueryEvaluationContext(doc.getRoot());
+                    doc.setOutputDocument(projector.project(translator.toJson(modifiedDoc), nodeFactory, qctx));
+                }
+                doc.setOperationPerformed(Operation.UPDATE);
+                numUpdated++;
+            }
+        }
+    }
+
+    /**
+     * Updates a single document with findAndModify, and returns the modified document. Returns null if the document
+     * no longer exists. If the update fails, the error is added to the document.
+     */
+    private DBObject updateOne(DBCollection collection, DocCtx doc, Object id) {
+        try {
+            return collection.findAndModify(new BasicDBObject("_id", id), null, null, false, mongoUpdateExpr, true, false);
+        } catch (MongoException e) {
+            LOGGER.warn("Update exception for document {}: {}", id, e);
+            doc.addError(Error.get(MongoCrudConstants.ERR_UPDATE_ERROR, e.toString()));
+            numFailed++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteConcernException;
+import com.mongodb.WriteResult;
+
+import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.CRUDUpdateResponse;
+import com.redhat.lightblue.crud.CrudConstants;
+
+import com.redhat.lightblue.eval.FieldAccessRoleEvaluator;
+
+import com.redhat.lightblue.metadata.EntityMetadata;
+
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Atomic updater that updates all the documents matching the query with a single multi-document update on the server.
+ * The documents are not read, so this can only be used if the updated documents need not be returned, and there are no
+ * hooks to call for the updated documents.
+ *
+ * The server stops a multi-document update at the first document it fails to update. The documents updated before it
+ * are counted as updated, as reported by the server, and the failed document is counted as the one failure. The
+ * documents after it are left unchanged, and are not counted.
+ */
+public class AtomicMultiUpdate implements DocUpdater {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AtomicMultiUpdate.class);
+
+    private final FieldAccessRoleEvaluator roleEval;
+    private final DBObject mongoUpdateExpr;
+    private final Set<Path> updatedFields;
+
+    public AtomicMultiUpdate(FieldAccessRoleEvaluator roleEval,
+                             DBObject mongoUpdateExpr,
+                             Set<Path> updatedFields) {
+        this.roleEval = roleEval;
+        this.mongoUpdateExpr = mongoUpdateExpr;
+        this.updatedFields = updatedFields;
+    }
+
+    @Override
+    public void update(CRUDOperationContext ctx,
+                       DBCollection collection,
+                       EntityMetadata md,
+                       CRUDUpdateResponse response,
+                       DBObject query) {
+        LOGGER.debug("atomicMultiUpdate: start");
+        Set<Path> inaccessibleFields = roleEval.getInaccessibleFields(FieldAccessRoleEvaluator.Operation.update);
+        for (Path x : inaccessibleFields) {
+            if (updatedFields.contains(x)) {
+                ctx.addError(Error.get("update", CrudConstants.ERR_NO_FIELD_UPDATE_ACCESS, x.toString()));
+            }
+        }
+        int numUpdated = 0;
+        int numFailed = 0;
+        if (!ctx.hasErrors()) {
+            LOGGER.debug("Updating documents matching {}", query);
+            try {
+                WriteResult result = collection.update(query, mongoUpdateExpr, false, true, WriteConcern.SAFE);
+                LOGGER.debug("Write result {}", result);
+                numUpdated = result.getN();
+                if (result.getError() != null) {
+                    ctx.addError(Error.get(MongoCrudConstants.ERR_UPDATE_ERROR, result.getError()));
+                    numFailed = 1;
+                }
+            } catch (WriteConcernException e) {
+                LOGGER.warn("Update exception: {}", e);
+                numUpdated = e.getCommandResult().getInt("n", 0);
+                ctx.addError(Error.get(MongoCrudConstants.ERR_UPDATE_ERROR, e.toString()));
+                numFailed = 1;
+            } catch (MongoException e) {
+                LOGGER.warn("Update exception: {}", e);
+                ctx.addError(Error.get(MongoCrudConstants.ERR_UPDATE_ERROR, e.toString()));
+                numFailed = 1;
+            }
+        }
+        response.setNumUpdated(numUpdated);
+        response.setNumFailed(numFailed);
+    }
+}
@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
 import com.mongodb.WriteResult;
 
 import com.redhat.lightblue.crud.CRUDDeleteResponse;
@@ -41,7 +42,7 @@ public class BasicDocDeleter implements DocDeleter {
                        DBObject mongoQuery,
                        CRUDDeleteResponse response) {
         LOGGER.debug("Removing docs with {}", mongoQuery);
-        WriteResult result = collection.remove(mongoQuery);
+        WriteResult result = collection.remove(mongoQuery, WriteConcern.SAFE);
         LOGGER.debug("Removal complete, write result={}", result);
         response.setNumDeleted(result.getN());
     }
@@ -19,6 +19,7 @@
 package com.redhat.lightblue.crud.mongo;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,36 +32,49 @@ import com.redhat.lightblue.crud.CRUDOperationContext;
 import com.redhat.lightblue.crud.Operation;
 import com.redhat.lightblue.crud.DocCtx;
 
+import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.util.JsonDoc;
 
 /**
- * Basic doc search operation
+ * Basic doc search operation. The number of matching documents is computed according to the count mode of the
+ * context, concurrently with the retrieval of the documents.
  */
 public class BasicDocFinder implements DocFinder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BasicDocFinder.class);
 
     private final Translator translator;
+    private final int estimateLimit;
 
     public BasicDocFinder(Translator translator) {
+        this(translator, MatchCounter.DEFAULT_ESTIMATE_LIMIT);
+    }
+
+    public BasicDocFinder(Translator translator, int estimateLimit) {
         this.translator = translator;
+        this.estimateLimit = estimateLimit;
     }
 
     @Override
     public long find(CRUDOperationContext ctx,
                      DBCollection coll,
                      DBObject mongoQuery,
+                     DBObject mongoProjection,
                      DBObject mongoSort,
                      Long from,
                      Long to) {
         LOGGER.debug("Submitting query");
-        DBCursor cursor = coll.find(mongoQuery);
+        DBCursor cursor = coll.find(mongoQuery, mongoProjection);
+        EntityMetadata md = ctx.getEntityMetadata(ctx.getEntityName());
+        if (md != null) {
+            cursor.setDecoderFactory(translator.getDecoderFactory(md));
+        }
         LOGGER.debug("Query evaluated");
         if (mongoSort != null) {
             cursor = cursor.sort(mongoSort);
             LOGGER.debug("Result set sorted");
         }
-        long ret = cursor.size();
+        Future<Long> count = MatchCounter.count(coll, mongoQuery, ctx.getCountMode(), to, estimateLimit);
         LOGGER.debug("Applying limits: {} - {}", from, to);
         if (from != null) {
             cursor.skip(from.intValue());
@@ -69,8 +83,16 @@ public class BasicDocFinder implements DocFinder {
             cursor.limit(to.intValue() - (from == null ? 0 : from.intValue()) + 1);
         }
         LOGGER.debug("Retrieving results");
-        List<DBObject> mongoResults = cursor.toArray();
-        LOGGER.debug("Retrieved {} results", mongoResults.size());
+        List<DBObject> mongoResults;
+        long ret;
+        try {
+            mongoResults = cursor.toArray();
+            LOGGER.debug("Retrieved {} results", mongoResults.size());
+            ret = MatchCounter.get(count);
+        } finally {
+            // Stops the count if the fetch failed, no-op otherwise
+            count.cancel(true);
+        }
         List<JsonDoc> jsonDocs = translator.toJson(mongoResults);
         ctx.addDocuments(jsonDocs);
         for (DocCtx doc : ctx.getDocuments()) {
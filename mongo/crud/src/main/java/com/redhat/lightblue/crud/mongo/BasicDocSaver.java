@@ -84,7 +84,7 @@ public class BasicDocSaver implements DocSaver {
             BasicDBObject q = new BasicDBObject(MongoCRUDController.ID_STR, new ObjectId(id.toString()));
             DBObject oldDBObject = collection.findOne(q);
             if (oldDBObject != null) {
-                if (md.getAccess().getUpdate().hasAccess(ctx.getCallerRoles())) {
+                if (md.getAccess().getUpdate().hasAccess(ctx.getCallerRoleSet())) {
                     JsonDoc oldDoc = translator.toJson(oldDBObject);
                     inputDoc.setOriginalDocument(oldDoc);
                     List<Path> paths = roleEval.getInaccessibleFields_Update(inputDoc, oldDoc);
@@ -126,7 +126,7 @@ public class BasicDocSaver implements DocSaver {
                                   DBObject dbObject,
                                   DocCtx inputDoc) {
         LOGGER.debug("Inserting doc");
-        if (!md.getAccess().getInsert().hasAccess(ctx.getCallerRoles())) {
+        if (!md.getAccess().getInsert().hasAccess(ctx.getCallerRoleSet())) {
             inputDoc.addError(Error.get("insert",
                     MongoCrudConstants.ERR_NO_ACCESS,
                     "insert:" + md.getName()));
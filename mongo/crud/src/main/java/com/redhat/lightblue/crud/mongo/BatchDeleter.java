@@ -0,0 +1,156 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+
+import com.redhat.lightblue.crud.CRUDDeleteResponse;
+import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.Operation;
+
+import com.redhat.lightblue.util.Error;
+
+/**
+ * Iterates the result set, and deletes the documents in batches using a single remove on the _ids of each batch. This
+ * is used when the entity has delete hooks, so the documents are added to the context after they are removed, to be
+ * passed to the hooks.
+ *
+ * Before a batch is removed, the _ids of the batch that are still in the db are read again. If some are already
+ * removed by someone else, the remaining documents of the batch are removed one by one, so each removed document is
+ * known to be removed by this request. If a batch remove still removes fewer documents than expected, there is no way
+ * of telling which ones this request removed, so none of the documents of that batch are reported to the hooks, and an
+ * error is added to the context to tell the caller.
+ */
+public class BatchDeleter implements DocDeleter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchDeleter.class);
+
+    /**
+     * Default number of documents removed at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final Translator translator;
+    private final int batchSize;
+
+    public BatchDeleter(Translator translator, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.translator = translator;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void delete(CRUDOperationContext ctx,
+                       DBCollection collection,
+                       DBObject mongoQuery,
+                       CRUDDeleteResponse response) {
+        LOGGER.debug("Computing the result set for {}", mongoQuery);
+        DBCursor cursor = null;
+        int numDeleted = 0;
+        try {
+            cursor = collection.find(mongoQuery);
+            cursor.batchSize(batchSize);
+            List<DBObject> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    numDeleted += deleteBatch(ctx, collection, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                numDeleted += deleteBatch(ctx, collection, batch);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        response.setNumDeleted(numDeleted);
+    }
+
+    private int deleteBatch(CRUDOperationContext ctx,
+                            DBCollection collection,
+                            List<DBObject> batch) {
+        List<Object> ids = new ArrayList<>(batch.size());
+        for (DBObject document : batch) {
+            ids.add(document.get(MongoCRUDController.ID_STR));
+        }
+        Set<Object> existing = new HashSet<>();
+        DBCursor cursor = collection.find(new BasicDBObject(MongoCRUDController.ID_STR, new BasicDBObject("$in", ids)),
+                new BasicDBObject(MongoCRUDController.ID_STR, 1));
+        try {
+            while (cursor.hasNext()) {
+                existing.add(cursor.next().get(MongoCRUDController.ID_STR));
+            }
+        } finally {
+            cursor.close();
+        }
+        if (existing.size() < batch.size()) {
+            LOGGER.debug("{} of {} documents of the batch are already removed, removing the rest one by one",
+                    batch.size() - existing.size(), batch.size());
+            int n = 0;
+            for (DBObject document : batch) {
+                Object id = document.get(MongoCRUDController.ID_STR);
+                if (existing.contains(id)
+                        && collection.remove(new BasicDBObject(MongoCRUDController.ID_STR, id), WriteConcern.SAFE).getN() == 1) {
+                    addDeleted(ctx, document);
+                    n++;
+                }
+            }
+            return n;
+        }
+        LOGGER.debug("Removing batch of {} documents", ids.size());
+        WriteResult result = collection.remove(new BasicDBObject(MongoCRUDController.ID_STR,
+                new BasicDBObject("$in", ids)), WriteConcern.SAFE);
+        int n = result.getN();
+        if (n == batch.size()) {
+            for (DBObject document : batch) {
+                addDeleted(ctx, document);
+            }
+        } else {
+            LOGGER.warn("Removed {} documents of a batch of {}, not reporting them to hooks", n, batch.size());
+            ctx.addError(Error.get(MongoCrudConstants.ERR_DELETE_ERROR,
+                    "Removed " + n + " of " + batch.size() + " documents, the removed documents are not known"));
+        }
+        return n;
+    }
+
+    private void addDeleted(CRUDOperationContext ctx, DBObject document) {
+        DocCtx doc = ctx.addDocument(translator.toJson(document));
+        doc.setOriginalDocument(doc);
+        doc.setOperationPerformed(Operation.DELETE);
+    }
+}
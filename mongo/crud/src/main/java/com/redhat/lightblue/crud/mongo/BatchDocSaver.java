@@ -0,0 +1,40 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import com.mongodb.DBCollection;
+
+import com.redhat.lightblue.crud.CRUDOperationContext;
+
+/**
+ * A doc saver that collects documents, and writes them to the db in batches. saveDoc() may defer writing a document
+ * until the batch is full, so the outcome of saving a document is known only after endBatch() returns.
+ */
+public interface BatchDocSaver extends DocSaver {
+
+    /**
+     * Writes all the documents collected so far to the collection. Once this call returns, every document passed to
+     * saveDoc() either has the operation performed set, or has errors.
+     *
+     * @param ctx Operation context
+     * @param collection The MongoDB collection to which documents will be inserted or saved
+     */
+    void endBatch(CRUDOperationContext ctx,
+                  DBCollection collection);
+}
@@ -0,0 +1,226 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+
+import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.CrudConstants;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.Operation;
+import com.redhat.lightblue.eval.FieldAccessRoleEvaluator;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Doc saver that inserts documents in batches. Documents are checked for access as they are passed to saveDoc(), and
+ * the accepted documents are inserted using a single multi-document insert per batch with continue-on-error.
+ *
+ * If the batch insert fails, the server reports only the last error. The documents of the batch are then looked up by
+ * _id to find out which ones were inserted. Documents that are not in the db are inserted one by one to get the error
+ * for each document. So, the documents of a failed batch end up with the same errors they would get if they were
+ * inserted one by one.
+ *
+ * Only documents without an _id are batched. Their _id is generated here, so finding it in the db after a failure
+ * means the batch inserted it. A document with an _id given by the caller could have been in the db before the insert,
+ * so there is no way to tell whether a failed batch inserted it. Such documents are inserted one by one.
+ *
+ * Documents are written with a JsonDBEncoder, so the JsonDBObject views of the input documents are encoded without
+ * being copied into BasicDBObjects first.
+ *
+ * Save requests are passed to a BasicDocSaver.
+ */
+public class BatchInsertDocSaver implements BatchDocSaver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchInsertDocSaver.class);
+
+    /**
+     * Default number of documents inserted at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final WriteConcern BATCH_WRITE_CONCERN = WriteConcern.SAFE.continueOnErrorForInsert(true);
+
+    private final FieldAccessRoleEvaluator roleEval;
+    private final DocSaver saveDelegate;
+    private final int batchSize;
+    private final List<BatchDoc> batch;
+    private final JsonDBEncoder encoder = new JsonDBEncoder();
+
+    private static final class BatchDoc {
+        private final DBObject dbObject;
+        private final DocCtx inputDoc;
+
+        public BatchDoc(DBObject dbObject, DocCtx inputDoc) {
+            this.dbObject = dbObject;
+            this.inputDoc = inputDoc;
+        }
+    }
+
+    /**
+     * Creates a batch doc saver with the given translator, role evaluator, and batch size
+     */
+    public BatchInsertDocSaver(Translator translator,
+                               FieldAccessRoleEvaluator roleEval,
+                               int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.roleEval = roleEval;
+        this.saveDelegate = new BasicDocSaver(translator, roleEval);
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void saveDoc(CRUDOperationContext ctx,
+                        Op op,
+                        boolean upsert,
+                        DBCollection collection,
+                        EntityMetadata md,
+                        DBObject dbObject,
+                        DocCtx inputDoc) {
+        if (op != DocSaver.Op.insert) {
+            saveDelegate.saveDoc(ctx, op, upsert, collection, md, dbObject, inputDoc);
+        } else if (!md.getAccess().getInsert().hasAccess(ctx.getCallerRoleSet())) {
+            inputDoc.addError(Error.get("insert",
+                    MongoCrudConstants.ERR_NO_ACCESS,
+                    "insert:" + md.getName()));
+        } else {
+            List<Path> paths = roleEval.getInaccessibleFields_Insert(inputDoc);
+            LOGGER.debug("Inaccessible fields:{}", paths);
+            if (paths == null || paths.isEmpty()) {
+                if (dbObject.get(MongoCRUDController.ID_STR) == null) {
+                    dbObject.put(MongoCRUDController.ID_STR, new ObjectId());
+                    batch.add(new BatchDoc(dbObject, inputDoc));
+                    if (batch.size() >= batchSize) {
+                        insertBatch(collection);
+                    }
+                } else {
+                    insertOne(collection, new BatchDoc(dbObject, inputDoc));
+                }
+            } else {
+                inputDoc.addError(Error.get("insert", CrudConstants.ERR_NO_FIELD_INSERT_ACCESS, paths.toString()));
+            }
+        }
+    }
+
+    @Override
+    public void endBatch(CRUDOperationContext ctx,
+                         DBCollection collection) {
+        insertBatch(collection);
+    }
+
+    private void insertBatch(DBCollection collection) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Inserting batch of {} docs", batch.size());
+        DBObject[] dbObjects = new DBObject[batch.size()];
+        for (int i = 0; i < dbObjects.length; i++) {
+            dbObjects[i] = batch.get(i).dbObject;
+        }
+        try {
+            String error;
+            try {
+                WriteResult result = collection.insert(dbObjects, BATCH_WRITE_CONCERN, encoder);
+                LOGGER.debug("Write result {}", result);
+                error = result.getError();
+            } catch (RuntimeException e) {
+                // Documents are encoded as they are sent, so the batch may fail part way through, after some of its
+                // documents are written. Resolve them one by one in any case.
+                LOGGER.debug("Batch insert failed: {}", e.toString());
+                error = e.toString();
+            }
+            if (error == null) {
+                for (BatchDoc doc : batch) {
+                    doc.inputDoc.setOperationPerformed(Operation.INSERT);
+                }
+            } else {
+                resolveErrors(collection);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Determines which documents of a failed batch are inserted. All batched documents have an _id assigned by this
+     * class, so a document is inserted if its _id is in the db. The remaining documents are inserted one by one to get
+     * their errors.
+     */
+    private void resolveErrors(DBCollection collection) {
+        List<Object> ids = new ArrayList<>(batch.size());
+        for (BatchDoc doc : batch) {
+            ids.add(doc.dbObject.get(MongoCRUDController.ID_STR));
+        }
+        Set<Object> stored = new HashSet<>();
+        DBCursor cursor = collection.find(new BasicDBObject(MongoCRUDController.ID_STR, new BasicDBObject("$in", ids)),
+                new BasicDBObject(MongoCRUDController.ID_STR, 1));
+        try {
+            while (cursor.hasNext()) {
+                stored.add(cursor.next().get(MongoCRUDController.ID_STR));
+            }
+        } finally {
+            cursor.close();
+        }
+        LOGGER.debug("{} of {} docs of the failed batch are in db", stored.size(), batch.size());
+        for (BatchDoc doc : batch) {
+            if (stored.contains(doc.dbObject.get(MongoCRUDController.ID_STR))) {
+                doc.inputDoc.setOperationPerformed(Operation.INSERT);
+            } else {
+                insertOne(collection, doc);
+            }
+        }
+    }
+
+    private void insertOne(DBCollection collection, BatchDoc doc) {
+        try {
+            WriteResult result = collection.insert(new DBObject[]{doc.dbObject}, WriteConcern.SAFE, encoder);
+            if (result.getError() == null) {
+                doc.inputDoc.setOperationPerformed(Operation.INSERT);
+            } else {
+                doc.inputDoc.addError(Error.get("insert", MongoCrudConstants.ERR_INSERTION_ERROR, result.getError()));
+            }
+        } catch (MongoException.DuplicateKey dke) {
+            LOGGER.debug("insert failed: {}", dke.toString());
+            doc.inputDoc.addError(Error.get("insert", MongoCrudConstants.ERR_DUPLICATE, dke.toString()));
+        } catch (RuntimeException e) {
+            LOGGER.debug("insert failed: {}", e.toString());
+            doc.inputDoc.addError(Error.get("insert", MongoCrudConstants.ERR_INSERTION_ERROR, e.toString()));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+
+import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.CrudConstants;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.Operation;
+import com.redhat.lightblue.eval.FieldAccessRoleEvaluator;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.JsonDoc;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Doc saver that saves documents in batches. The existing versions of all the documents of a batch are read with a
+ * single query, field access is checked in memory, and then existing documents are updated. Only the read is batched:
+ * updates are still sent one document per round trip.
+ *
+ * Documents that are not in the db are inserted by a BatchInsertDocSaver. These have an _id, so they are inserted one by
+ * one. Documents without _id when upsert is requested are inserted in batches. If a batch contains the same _id more
+ * than once, each document after the first is checked against, and updates, the version saved by the one before it, as
+ * if the documents were saved one by one.
+ */
+public class BatchSaveDocSaver implements BatchDocSaver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchSaveDocSaver.class);
+
+    /**
+     * Default number of documents read and saved at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final Translator translator;
+    private final FieldAccessRoleEvaluator roleEval;
+    private final BatchInsertDocSaver inserter;
+    private final int batchSize;
+    private final List<SaveDoc> batch;
+    private boolean upsert;
+    private EntityMetadata md;
+
+    private static final class SaveDoc {
+        private final ObjectId id;
+        private final DBObject dbObject;
+        private final DocCtx inputDoc;
+
+        public SaveDoc(ObjectId id, DBObject dbObject, DocCtx inputDoc) {
+            this.id = id;
+            this.dbObject = dbObject;
+            this.inputDoc = inputDoc;
+        }
+    }
+
+    /**
+     * Creates a batch doc saver with the given translator, role evaluator, and batch size
+     */
+    public BatchSaveDocSaver(Translator translator,
+                             FieldAccessRoleEvaluator roleEval,
+                             int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.translator = translator;
+        this.roleEval = roleEval;
+        this.inserter = new BatchInsertDocSaver(translator, roleEval, batchSize);
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void saveDoc(CRUDOperationContext ctx,
+                        Op op,
+                        boolean upsert,
+                        DBCollection collection,
+                        EntityMetadata md,
+                        DBObject dbObject,
+                        DocCtx inputDoc) {
+        Object id = dbObject.get(MongoCRUDController.ID_STR);
+        if (op == DocSaver.Op.insert
+                || (id == null && upsert)) {
+            inserter.saveDoc(ctx, DocSaver.Op.insert, upsert, collection, md, dbObject, inputDoc);
+        } else if (op == DocSaver.Op.save && id != null) {
+            if (!batch.isEmpty() && (this.upsert != upsert || this.md != md)) {
+                saveBatch(ctx, collection);
+            }
+            this.upsert = upsert;
+            this.md = md;
+            batch.add(new SaveDoc(new ObjectId(id.toString()), dbObject, inputDoc));
+            if (batch.size() >= batchSize) {
+                saveBatch(ctx, collection);
+            }
+        } else {
+            LOGGER.warn("Invalid request, cannot update or insert");
+            inputDoc.addError(Error.get(op.toString(), MongoCrudConstants.ERR_SAVE_ERROR, "Invalid request"));
+        }
+    }
+
+    @Override
+    public void endBatch(CRUDOperationContext ctx,
+                         DBCollection collection) {
+        saveBatch(ctx, collection);
+        inserter.endBatch(ctx, collection);
+    }
+
+    private void saveBatch(CRUDOperationContext ctx, DBCollection collection) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            LOGGER.debug("Reading {} docs to save", batch.size());
+            List<ObjectId> ids = new ArrayList<>(batch.size());
+            for (SaveDoc doc : batch) {
+                ids.add(doc.id);
+            }
+            Map<Object, DBObject> existing = new HashMap<>();
+            DBCursor cursor = collection.find(new BasicDBObject(MongoCRUDController.ID_STR, new BasicDBObject("$in", ids)));
+            try {
+                while (cursor.hasNext()) {
+                    DBObject obj = cursor.next();
+                    existing.put(obj.get(MongoCRUDController.ID_STR), obj);
+                }
+            } finally {
+                cursor.close();
+            }
+            LOGGER.debug("{} of {} docs exist", existing.size(), batch.size());
+            boolean updateAccess = md.getAccess().getUpdate().hasAccess(ctx.getCallerRoleSet());
+            for (SaveDoc doc : batch) {
+                DBObject oldDBObject = existing.get(doc.id);
+                if (oldDBObject == null) {
+                    // Cannot update, doc does not exist, insert
+                    inserter.saveDoc(ctx, DocSaver.Op.insert, upsert, collection, md, doc.dbObject, doc.inputDoc);
+                    if (doc.inputDoc.getOperationPerformed() == Operation.INSERT) {
+                        // Docs with _id are inserted right away, later docs with the same _id update this one
+                        existing.put(doc.id, doc.dbObject);
+                    }
+                } else if (updateAccess) {
+                    JsonDoc oldDoc = translator.toJson(oldDBObject);
+                    doc.inputDoc.setOriginalDocument(oldDoc);
+                    List<Path> paths = roleEval.getInaccessibleFields_Update(doc.inputDoc, oldDoc);
+                    if (paths == null || paths.isEmpty()) {
+                        if (updateDoc(collection, doc)) {
+                            // Later docs with the same _id are checked against this version
+                            existing.put(doc.id, doc.dbObject);
+                        }
+                    } else {
+                        doc.inputDoc.addError(Error.get("update",
+                                CrudConstants.ERR_NO_FIELD_UPDATE_ACCESS, paths.toString()));
+                    }
+                } else {
+                    doc.inputDoc.addError(Error.get("update",
+                            CrudConstants.ERR_NO_ACCESS, "update:" + md.getName()));
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Replaces the document in the db, returns whether it succeeded
+     */
+    private boolean updateDoc(DBCollection collection, SaveDoc doc) {
+        LOGGER.debug("Updating doc {}", doc.id);
+        String error;
+        try {
+            WriteResult result = collection.update(new BasicDBObject(MongoCRUDController.ID_STR, doc.id),
+                    doc.dbObject, upsert, false, WriteConcern.SAFE);
+            LOGGER.debug("Write result {}", result);
+            error = result.getError();
+        } catch (MongoException e) {
+            LOGGER.debug("update failed: {}", e.toString());
+            error = e.toString();
+        }
+        if (error == null) {
+            doc.inputDoc.setOperationPerformed(Operation.UPDATE);
+            return true;
+        } else {
+            doc.inputDoc.addError(Error.get(DocSaver.Op.save.toString(), MongoCrudConstants.ERR_SAVE_ERROR, error));
+            return false;
+        }
+    }
+}
@@ -34,6 +34,7 @@ public interface DocFinder {
      * @param ctx The operation context. The found documents are stored in the context.
      * @param coll The collection on which the find operation will be performed
      * @param mongoQuery The MongoDB query
+     * @param mongoProjection Optional MongoDB field selector. If null, complete documents are retrieved
      * @param mongoSort Optional sort
      * @param from Optional from index, starting from 0
      * @param to Optional to index, starting from 0
@@ -46,6 +47,7 @@ public interface DocFinder {
     long find(CRUDOperationContext ctx,
               DBCollection coll,
               DBObject mongoQuery,
+              DBObject mongoProjection,
               DBObject mongoSort,
               Long from,
               Long to);
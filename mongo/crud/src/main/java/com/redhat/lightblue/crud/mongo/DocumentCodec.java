@@ -0,0 +1,686 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.bson.BSON;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.redhat.lightblue.metadata.ArrayElement;
+import com.redhat.lightblue.metadata.ArrayField;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.FieldTreeNode;
+import com.redhat.lightblue.metadata.ObjectArrayElement;
+import com.redhat.lightblue.metadata.ObjectField;
+import com.redhat.lightblue.metadata.ReferenceField;
+import com.redhat.lightblue.metadata.SimpleArrayElement;
+import com.redhat.lightblue.metadata.SimpleField;
+import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.util.Error;
+
+/**
+ * Translates documents of an entity between DBObject and JSON representations. The codec is built once from the entity
+ * metadata as a tree of field handlers with their types bound, so translation does not walk or resolve the metadata
+ * for every document. Codecs are cached per entity metadata instance, use getInstance() to get one.
+ *
+ * The codec only keeps field names and types, not the metadata itself, so a cached codec does not keep its metadata
+ * from being collected.
+ */
+public final class DocumentCodec {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentCodec.class);
+
+    private static final String ID_STR = "_id";
+
+    private static final Map<EntityMetadata, DocumentCodec> CODECS
+            = Collections.synchronizedMap(new WeakHashMap<EntityMetadata, DocumentCodec>());
+
+    private final ObjectHandler root;
+
+    private static final String[] INDEXES = new String[256];
+
+    static {
+        for (int i = 0; i < INDEXES.length; i++) {
+            INDEXES[i] = Integer.toString(i);
+        }
+    }
+
+    private DocumentCodec(EntityMetadata md) {
+        root = new ObjectHandler(null, md.getFieldTreeRoot().getChildren(), true);
+    }
+
+    /**
+     * Returns the codec for the given entity metadata, building it if necessary
+     */
+    public static DocumentCodec getInstance(EntityMetadata md) {
+        DocumentCodec codec = CODECS.get(md);
+        if (codec == null) {
+            LOGGER.debug("Building codec for {}", md.getName());
+            codec = new DocumentCodec(md);
+            CODECS.put(md, codec);
+        }
+        return codec;
+    }
+
+    /**
+     * Translates a DBObject to a JSON object. Fields that are not in metadata are ignored. Returns null if the entity
+     * has no fields.
+     */
+    public ObjectNode toJson(DBObject object, JsonNodeFactory factory) {
+        return root.fields.length == 0 ? null : root.objectToJson(object, factory);
+    }
+
+    /**
+     * Translates a JSON object to a DBObject. Returns null if the object is empty.
+     *
+     * @throws Error if the object contains a field that is not in metadata, or if the value of a field does not match
+     * its definition in metadata
+     */
+    public BasicDBObject toBson(JsonNode object) {
+        try {
+            return object.size() == 0 ? null : root.objectToBson(object);
+        } catch (InvalidFieldException e) {
+            throw Error.get(Translator.ERR_INVALID_FIELD, e.getPath());
+        }
+    }
+
+    /**
+     * Returns a DBObject view of the JSON object. The object is not translated, values are converted as they are read
+     * from the view, or as the view is encoded by a JsonDBEncoder. The object is checked for fields that are not in
+     * metadata, and for fields whose values do not match their definition in metadata, so encoding the view does not
+     * fail on bad input. Values of simple fields are converted again when the view is read or encoded.
+     */
+    public JsonDBObject toDBObject(ObjectNode object) {
+        try {
+            root.validate(object);
+        } catch (InvalidFieldException e) {
+            throw Error.get(Translator.ERR_INVALID_FIELD, e.getPath());
+        }
+        return new JsonDBObject(root, object);
+    }
+
+    ObjectHandler getRoot() {
+        return root;
+    }
+
+    static String indexName(int index) {
+        return index < INDEXES.length ? INDEXES[index] : Integer.toString(index);
+    }
+
+    /**
+     * Thrown from the handlers when a field is not valid. The path of the field is built while the exception
+     * propagates up the handler tree, so no path is tracked when there are no errors.
+     */
+    static final class InvalidFieldException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> segments = new ArrayList<>();
+
+        public InvalidFieldException(String name) {
+            super(null, null, false, false);
+            segments.add(name);
+        }
+
+        public InvalidFieldException add(String segment) {
+            segments.add(segment);
+            return this;
+        }
+
+        public String getPath() {
+            StringBuilder str = new StringBuilder();
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                str.append(segments.get(i));
+                if (i > 0) {
+                    str.append('.');
+                }
+            }
+            return str.toString();
+        }
+    }
+
+    abstract static class FieldHandler {
+        protected final String name;
+
+        protected FieldHandler(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Sets the field in dest from the non-null value
+         */
+        public abstract void toJson(Object value, ObjectNode dest, JsonNodeFactory factory);
+
+        /**
+         * Appends the field to dest from the node
+         */
+        public abstract void toBson(JsonNode node, BasicDBObject dest);
+
+        /**
+         * Returns the value toBson() would append for the node, or null if toBson() would not append anything. Object
+         * and array values are returned as views of the node.
+         */
+        public abstract Object toBsonValue(JsonNode node);
+
+        /**
+         * Writes the field from the node, the same way toBson() would append it
+         */
+        public abstract void encode(JsonNode node, JsonDBEncoder encoder);
+
+        /**
+         * Checks that toBson() would not fail because of an unknown field, a node of the wrong kind, or a value that
+         * cannot be converted to the type of its field
+         */
+        public abstract void validate(JsonNode node);
+
+        /**
+         * Returns the JSON value for the non-null value read from the db, or null if the value should be ignored
+         */
+        public JsonNode toJsonValue(Object value, JsonNodeFactory factory) {
+            return null;
+        }
+    }
+
+    private static FieldHandler newHandler(FieldTreeNode field, boolean topLevel) {
+        if (field instanceof SimpleField) {
+            return new SimpleHandler(field.getName(), field.getType(), topLevel && ID_STR.equals(field.getName()));
+        } else if (field instanceof ObjectField) {
+            return new ObjectHandler(field.getName(), field.getChildren(), false);
+        } else if (field instanceof ArrayField) {
+            return new ArrayHandler(field.getName(), ((ArrayField) field).getElement());
+        } else if (field instanceof ReferenceField) {
+            return new ReferenceHandler(field.getName());
+        } else {
+            return null;
+        }
+    }
+
+    private static Object toValue(Type t, JsonNode node) {
+        if (node == null || node instanceof NullNode) {
+            return null;
+        } else {
+            return t.fromJson(node);
+        }
+    }
+
+    static final class SimpleHandler extends FieldHandler {
+        private final Type type;
+        private final boolean objectId;
+
+        public SimpleHandler(String name, Type type, boolean objectId) {
+            super(name);
+            this.type = type;
+            this.objectId = objectId;
+        }
+
+        @Override
+        public void toJson(Object value, ObjectNode dest, JsonNodeFactory factory) {
+            JsonNode valueNode = type.toJson(factory, value);
+            if (valueNode != null) {
+                dest.set(name, valueNode);
+            }
+        }
+
+        @Override
+        public JsonNode toJsonValue(Object value, JsonNodeFactory factory) {
+            return type.toJson(factory, value);
+        }
+
+        @Override
+        public void toBson(JsonNode node, BasicDBObject dest) {
+            Object value = toBsonValue(node);
+            if (value != null) {
+                dest.append(name, value);
+            }
+        }
+
+        @Override
+        public Object toBsonValue(JsonNode node) {
+            Object value = toValue(type, node);
+            if (value != null) {
+                if (objectId) {
+                    value = new ObjectId(value.toString());
+                }
+                // Store big values as string. Mongo does not support big values
+                if (value instanceof BigDecimal || value instanceof BigInteger) {
+                    value = value.toString();
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public void encode(JsonNode node, JsonDBEncoder encoder) {
+            Object value = toBsonValue(node);
+            if (value != null) {
+                encoder.putValue(name, value);
+            }
+        }
+
+        @Override
+        public void validate(JsonNode node) {
+            toBsonValue(node);
+        }
+    }
+
+    /**
+     * Handles object fields, object array elements, and the document root
+     */
+    static final class ObjectHandler extends FieldHandler {
+        private final FieldHandler[] fields;
+        private final Map<String, FieldHandler> fieldMap = new HashMap<>();
+
+        public ObjectHandler(String name, Iterator<? extends FieldTreeNode> children, boolean root) {
+            super(name);
+            List<FieldHandler> list = new ArrayList<>();
+            while (children.hasNext()) {
+                FieldTreeNode child = children.next();
+                FieldHandler handler = newHandler(child, root);
+                if (handler != null) {
+                    list.add(handler);
+                    fieldMap.put(child.getName(), handler);
+                }
+            }
+            fields = list.toArray(new FieldHandler[list.size()]);
+        }
+
+        public FieldHandler getField(String fieldName) {
+            return fieldMap.get(fieldName);
+        }
+
+        public boolean hasFields() {
+            return fields.length > 0;
+        }
+
+        public ObjectNode objectToJson(DBObject object, JsonNodeFactory factory) {
+            ObjectNode node = factory.objectNode();
+            for (FieldHandler field : fields) {
+                Object value = object.get(field.name);
+                if (value != null) {
+                    field.toJson(value, node, factory);
+                }
+            }
+            return node;
+        }
+
+        public BasicDBObject objectToBson(JsonNode node) {
+            BasicDBObject ret = new BasicDBObject();
+            for (Iterator<Map.Entry<String, JsonNode>> itr = node.fields(); itr.hasNext();) {
+                Map.Entry<String, JsonNode> entry = itr.next();
+                FieldHandler field = fieldMap.get(entry.getKey());
+                if (field == null) {
+                    throw new InvalidFieldException(entry.getKey());
+                }
+                try {
+                    field.toBson(entry.getValue(), ret);
+                } catch (InvalidFieldException e) {
+                    throw e.add(entry.getKey());
+                }
+            }
+            return ret;
+        }
+
+        /**
+         * Writes the fields of the node into the document the encoder is writing. Fields that are keys of skip are not
+         * written, and neither is _id if skipId is set.
+         */
+        public void encodeFields(JsonNode node, JsonDBEncoder encoder, Map<String, Object> skip, boolean skipId) {
+            for (Iterator<Map.Entry<String, JsonNode>> itr = node.fields(); itr.hasNext();) {
+                Map.Entry<String, JsonNode> entry = itr.next();
+                if ((skip == null || !skip.containsKey(entry.getKey()))
+                        && !(skipId && ID_STR.equals(entry.getKey()))) {
+                    FieldHandler field = fieldMap.get(entry.getKey());
+                    if (field == null) {
+                        throw new InvalidFieldException(entry.getKey());
+                    }
+                    try {
+                        field.encode(entry.getValue(), encoder);
+                    } catch (InvalidFieldException e) {
+                        throw e.add(entry.getKey());
+                    }
+                }
+            }
+        }
+
+        public void validateFields(JsonNode node) {
+            for (Iterator<Map.Entry<String, JsonNode>> itr = node.fields(); itr.hasNext();) {
+                Map.Entry<String, JsonNode> entry = itr.next();
+                FieldHandler field = fieldMap.get(entry.getKey());
+                if (field == null) {
+                    throw new InvalidFieldException(entry.getKey());
+                }
+                try {
+                    field.validate(entry.getValue());
+                } catch (InvalidFieldException e) {
+                    throw e.add(entry.getKey());
+                }
+            }
+        }
+
+        @Override
+        public void toJson(Object value, ObjectNode dest, JsonNodeFactory factory) {
+            if (value instanceof DBObject) {
+                if (fields.length > 0) {
+                    dest.set(name, objectToJson((DBObject) value, factory));
+                }
+            } else {
+                LOGGER.error("Expected DBObject, found {} for {}", value.getClass(), name);
+            }
+        }
+
+        @Override
+        public void toBson(JsonNode node, BasicDBObject dest) {
+            if (node != null) {
+                if (node instanceof ObjectNode) {
+                    if (node.size() > 0) {
+                        dest.append(name, objectToBson(node));
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+        }
+
+        @Override
+        public Object toBsonValue(JsonNode node) {
+            if (node != null) {
+                if (node instanceof ObjectNode) {
+                    if (node.size() > 0) {
+                        return new JsonDBObject(this, (ObjectNode) node);
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void encode(JsonNode node, JsonDBEncoder encoder) {
+            if (node != null) {
+                if (node instanceof ObjectNode) {
+                    if (node.size() > 0) {
+                        int start = encoder.start(BSON.OBJECT, name);
+                        encodeFields(node, encoder, null, false);
+                        encoder.end(start);
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+        }
+
+        @Override
+        public void validate(JsonNode node) {
+            if (node != null) {
+                if (node instanceof ObjectNode) {
+                    validateFields(node);
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+        }
+    }
+
+    static final class ArrayHandler extends FieldHandler {
+        private final Type simpleElementType;
+        private final ObjectHandler objectElement;
+
+        public ArrayHandler(String name, ArrayElement element) {
+            super(name);
+            if (element instanceof SimpleArrayElement) {
+                simpleElementType = element.getType();
+                objectElement = null;
+            } else if (element instanceof ObjectArrayElement) {
+                simpleElementType = null;
+                objectElement = new ObjectHandler(null, element.getChildren(), false);
+            } else {
+                simpleElementType = null;
+                objectElement = null;
+            }
+        }
+
+        public ObjectHandler getObjectElement() {
+            return objectElement;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void toJson(Object value, ObjectNode dest, JsonNodeFactory factory) {
+            if (value instanceof List) {
+                ArrayNode valueNode = factory.arrayNode();
+                dest.set(name, valueNode);
+                if (simpleElementType != null) {
+                    for (Object item : (List) value) {
+                        valueNode.add(item == null ? null : simpleElementType.toJson(factory, item));
+                    }
+                } else if (objectElement != null) {
+                    for (Object item : (List) value) {
+                        valueNode.add(elementToJson(item, factory));
+                    }
+                }
+            }
+        }
+
+        private JsonNode elementToJson(Object item, JsonNodeFactory factory) {
+            if (item != null) {
+                if (item instanceof DBObject) {
+                    if (objectElement.fields.length > 0) {
+                        return objectElement.objectToJson((DBObject) item, factory);
+                    }
+                } else {
+                    LOGGER.error("Expected DBObject, got {}", item.getClass().getName());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the JSON value for a non-null simple element read from the db, or null if the element is not a
+         * simple element
+         */
+        public JsonNode simpleElementToJson(Object value, JsonNodeFactory factory) {
+            return simpleElementType == null ? null : simpleElementType.toJson(factory, value);
+        }
+
+        @Override
+        public void toBson(JsonNode node, BasicDBObject dest) {
+            if (node != null) {
+                if (node instanceof ArrayNode) {
+                    if (node.size() > 0) {
+                        dest.append(name, arrayToBson(node));
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+        }
+
+        @Override
+        public Object toBsonValue(JsonNode node) {
+            if (node != null) {
+                if (node instanceof ArrayNode) {
+                    if (node.size() > 0) {
+                        return new JsonDBList(this, (ArrayNode) node);
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the value arrayToBson() would have for the element. Object elements are returned as views.
+         */
+        public Object elementToBsonValue(JsonNode element, int index) {
+            if (simpleElementType != null) {
+                return toValue(simpleElementType, element);
+            } else if (element instanceof ObjectNode && element.size() > 0) {
+                return new JsonDBObject(objectElement, (ObjectNode) element);
+            } else if (element instanceof ArrayNode && element.size() > 0) {
+                throw new InvalidFieldException(indexName(index));
+            } else {
+                return null;
+            }
+        }
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        private List arrayToBson(JsonNode node) {
+            List l = new ArrayList(node.size());
+            if (simpleElementType != null) {
+                for (JsonNode element : node) {
+                    l.add(toValue(simpleElementType, element));
+                }
+            } else {
+                int index = 0;
+                for (JsonNode element : node) {
+                    if (element instanceof ObjectNode && element.size() > 0) {
+                        try {
+                            l.add(objectElement.objectToBson(element));
+                        } catch (InvalidFieldException e) {
+                            throw e.add(indexName(index));
+                        }
+                    } else if (element instanceof ArrayNode && element.size() > 0) {
+                        throw new InvalidFieldException(indexName(index));
+                    } else {
+                        l.add(null);
+                    }
+                    index++;
+                }
+            }
+            return l;
+        }
+
+        @Override
+        public void encode(JsonNode node, JsonDBEncoder encoder) {
+            if (node != null) {
+                if (node instanceof ArrayNode) {
+                    if (node.size() > 0) {
+                        int start = encoder.start(BSON.ARRAY, name);
+                        int index = 0;
+                        for (JsonNode element : node) {
+                            String elementName = indexName(index);
+                            if (simpleElementType != null) {
+                                encoder.putValue(elementName, toValue(simpleElementType, element));
+                            } else if (element instanceof ObjectNode && element.size() > 0) {
+                                int elementStart = encoder.start(BSON.OBJECT, elementName);
+                                try {
+                                    objectElement.encodeFields(element, encoder, null, false);
+                                } catch (InvalidFieldException e) {
+                                    throw e.add(elementName);
+                                }
+                                encoder.end(elementStart);
+                            } else if (element instanceof ArrayNode && element.size() > 0) {
+                                throw new InvalidFieldException(elementName);
+                            } else {
+                                encoder.putValue(elementName, null);
+                            }
+                            index++;
+                        }
+                        encoder.end(start);
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+        }
+
+        @Override
+        public void validate(JsonNode node) {
+            if (node != null) {
+                if (node instanceof ArrayNode) {
+                    if (simpleElementType != null) {
+                        for (JsonNode element : node) {
+                            toValue(simpleElementType, element);
+                        }
+                    } else if (objectElement != null) {
+                        int index = 0;
+                        for (JsonNode element : node) {
+                            if (element instanceof ObjectNode) {
+                                try {
+                                    objectElement.validateFields(element);
+                                } catch (InvalidFieldException e) {
+                                    throw e.add(indexName(index));
+                                }
+                            } else if (element instanceof ArrayNode && element.size() > 0) {
+                                throw new InvalidFieldException(indexName(index));
+                            }
+                            index++;
+                        }
+                    }
+                } else {
+                    throw new InvalidFieldException(name);
+                }
+            }
+        }
+    }
+
+    private static final class ReferenceHandler extends FieldHandler {
+        public ReferenceHandler(String name) {
+            super(name);
+        }
+
+        @Override
+        public void toJson(Object value, ObjectNode dest, JsonNodeFactory factory) {
+            //TODO
+            LOGGER.debug("Converting reference field: {}", name);
+        }
+
+        @Override
+        public void toBson(JsonNode node, BasicDBObject dest) {
+            //TODO
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object toBsonValue(JsonNode node) {
+            //TODO
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void encode(JsonNode node, JsonDBEncoder encoder) {
+            //TODO
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void validate(JsonNode node) {
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.bson.BSONCallback;
+import org.bson.BSONObject;
+import org.bson.BasicBSONCallback;
+import org.bson.BasicBSONObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.CodeWScope;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.Bytes;
+import com.mongodb.DBCallback;
+import com.mongodb.DBCollection;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBDecoderFactory;
+import com.mongodb.DefaultDBDecoder;
+
+/**
+ * Decoder factory for cursors of an entity. The decoders build the JSON documents directly from BSON, converting values
+ * using the entity metadata as they are read, instead of building DBObjects first. Decoded documents are JsonDBObject
+ * views of the JSON documents. As in translation, fields that are not in metadata are ignored, except for top level
+ * simple fields, which are kept in the view for the driver to read.
+ */
+public class JsonDBDecoderFactory implements DBDecoderFactory {
+
+    private final DocumentCodec codec;
+    private final JsonNodeFactory factory;
+
+    public JsonDBDecoderFactory(DocumentCodec codec, JsonNodeFactory factory) {
+        this.codec = codec;
+        this.factory = factory;
+    }
+
+    @Override
+    public DBDecoder create() {
+        return new JsonDBDecoder();
+    }
+
+    private class JsonDBDecoder extends DefaultDBDecoder {
+        private final JsonDBCallback callback = new JsonDBCallback();
+
+        @Override
+        public DBCallback getDBCallback(DBCollection collection) {
+            return callback;
+        }
+    }
+
+    /**
+     * A frame for an object or array that is being decoded. Exactly one of object and array is set.
+     */
+    private static final class Frame {
+        private DocumentCodec.ObjectHandler object;
+        private DocumentCodec.ArrayHandler array;
+        private ObjectNode objectNode;
+        private ArrayNode arrayNode;
+    }
+
+    private class JsonDBCallback implements DBCallback {
+        private final List<Frame> frames = new ArrayList<>();
+        private int depth;
+        private int skipDepth;
+        private JsonDBObject result;
+        private List<String> extraNames;
+        private List<Object> extraValues;
+
+        @Override
+        public void reset() {
+            depth = -1;
+            skipDepth = 0;
+            result = null;
+            extraNames = null;
+            extraValues = null;
+        }
+
+        @Override
+        public Object get() {
+            return result;
+        }
+
+        @Override
+        public BSONCallback createBSONCallback() {
+            return new BasicBSONCallback();
+        }
+
+        private Frame push() {
+            depth++;
+            if (depth == frames.size()) {
+                frames.add(new Frame());
+            }
+            return frames.get(depth);
+        }
+
+        private void pushObject(DocumentCodec.ObjectHandler handler, ObjectNode node) {
+            Frame frame = push();
+            frame.object = handler;
+            frame.objectNode = node;
+            frame.array = null;
+            frame.arrayNode = null;
+        }
+
+        private void pushArray(DocumentCodec.ArrayHandler handler, ArrayNode node) {
+            Frame frame = push();
+            frame.object = null;
+            frame.objectNode = null;
+            frame.array = handler;
+            frame.arrayNode = node;
+        }
+
+        @Override
+        public void objectStart() {
+            ObjectNode root = factory.objectNode();
+            result = new JsonDBObject(codec.getRoot(), root);
+            pushObject(codec.getRoot(), root);
+        }
+
+        @Override
+        public void objectStart(boolean array) {
+            if (array) {
+                arrayStart();
+            } else {
+                objectStart();
+            }
+        }
+
+        @Override
+        public void objectStart(String name) {
+            if (skipDepth > 0) {
+                skipDepth++;
+                return;
+            }
+            Frame frame = frames.get(depth);
+            if (frame.object != null) {
+                DocumentCodec.FieldHandler field = frame.object.getField(name);
+                if (field instanceof DocumentCodec.ObjectHandler
+                        && ((DocumentCodec.ObjectHandler) field).hasFields()) {
+                    ObjectNode node = factory.objectNode();
+                    frame.objectNode.set(name, node);
+                    pushObject((DocumentCodec.ObjectHandler) field, node);
+                } else {
+                    skipDepth = 1;
+                }
+            } else {
+                DocumentCodec.ObjectHandler element = frame.array.getObjectElement();
+                if (element != null && element.hasFields()) {
+                    ObjectNode node = factory.objectNode();
+                    frame.arrayNode.add(node);
+                    pushObject(element, node);
+                } else {
+                    frame.arrayNode.add(frame.arrayNode.nullNode());
+                    skipDepth = 1;
+                }
+            }
+        }
+
+        @Override
+        public Object objectDone() {
+            if (skipDepth > 0) {
+                skipDepth--;
+            } else {
+                depth--;
+                if (depth < 0 && extraNames != null) {
+                    for (int i = 0; i < extraNames.size(); i++) {
+                        result.put(extraNames.get(i), extraValues.get(i));
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void arrayStart() {
+            skipDepth++;
+        }
+
+        @Override
+        public void arrayStart(String name) {
+            if (skipDepth > 0) {
+                skipDepth++;
+                return;
+            }
+            Frame frame = frames.get(depth);
+            if (frame.object != null) {
+                DocumentCodec.FieldHandler field = frame.object.getField(name);
+                if (field instanceof DocumentCodec.ArrayHandler) {
+                    ArrayNode node = factory.arrayNode();
+                    frame.objectNode.set(name, node);
+                    pushArray((DocumentCodec.ArrayHandler) field, node);
+                } else {
+                    skipDepth = 1;
+                }
+            } else {
+                frame.arrayNode.add(frame.arrayNode.nullNode());
+                skipDepth = 1;
+            }
+        }
+
+        @Override
+        public Object arrayDone() {
+            return objectDone();
+        }
+
+        private void value(String name, Object value) {
+            if (skipDepth > 0) {
+                return;
+            }
+            Frame frame = frames.get(depth);
+            if (frame.object != null) {
+                DocumentCodec.FieldHandler field = frame.object.getField(name);
+                if (field != null) {
+                    JsonNode node = value == null ? null : field.toJsonValue(value, factory);
+                    if (node != null) {
+                        frame.objectNode.set(name, node);
+                    }
+                } else if (depth == 0) {
+                    if (extraNames == null) {
+                        extraNames = new ArrayList<>();
+                        extraValues = new ArrayList<>();
+                    }
+                    extraNames.add(name);
+                    extraValues.add(value);
+                }
+            } else {
+                frame.arrayNode.add(value == null ? null : frame.array.simpleElementToJson(value, factory));
+            }
+        }
+
+        @Override
+        public void gotNull(String name) {
+            value(name, null);
+        }
+
+        @Override
+        public void gotUndefined(String name) {
+            value(name, null);
+        }
+
+        @Override
+        public void gotMinKey(String name) {
+            value(name, new MinKey());
+        }
+
+        @Override
+        public void gotMaxKey(String name) {
+            value(name, new MaxKey());
+        }
+
+        @Override
+        public void gotBoolean(String name, boolean v) {
+            value(name, v);
+        }
+
+        @Override
+        public void gotDouble(String name, double v) {
+            value(name, v);
+        }
+
+        @Override
+        public void gotInt(String name, int v) {
+            value(name, v);
+        }
+
+        @Override
+        public void gotLong(String name, long v) {
+            value(name, v);
+        }
+
+        @Override
+        public void gotDate(String name, long millis) {
+            value(name, new Date(millis));
+        }
+
+        @Override
+        public void gotString(String name, String v) {
+            value(name, v);
+        }
+
+        @Override
+        public void gotSymbol(String name, String v) {
+            value(name, v);
+        }
+
+        @Override
+        public void gotRegex(String name, String pattern, String flags) {
+            value(name, Pattern.compile(pattern, Bytes.regexFlags(flags)));
+        }
+
+        @Override
+        public void gotTimestamp(String name, int time, int inc) {
+            value(name, new BSONTimestamp(time, inc));
+        }
+
+        @Override
+        public void gotObjectId(String name, ObjectId id) {
+            value(name, id);
+        }
+
+        @Override
+        public void gotDBRef(String name, String ns, ObjectId id) {
+            value(name, new BasicBSONObject("$ns", ns).append("$id", id));
+        }
+
+        @Override
+        @Deprecated
+        public void gotBinaryArray(String name, byte[] data) {
+            value(name, data);
+        }
+
+        @Override
+        public void gotBinary(String name, byte type, byte[] data) {
+            if (type == 0 || type == 2) {
+                value(name, data);
+            } else {
+                value(name, new Binary(type, data));
+            }
+        }
+
+        @Override
+        public void gotUUID(String name, long part1, long part2) {
+            value(name, new UUID(part1, part2));
+        }
+
+        @Override
+        public void gotCode(String name, String code) {
+            value(name, new Code(code));
+        }
+
+        @Override
+        public void gotCodeWScope(String name, String code, Object scope) {
+            value(name, new CodeWScope(code, (BSONObject) scope));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import org.bson.BSON;
+import org.bson.BSONObject;
+import org.bson.io.OutputBuffer;
+
+import com.mongodb.DefaultDBEncoder;
+import com.redhat.lightblue.util.Error;
+
+/**
+ * Encoder that writes JsonDBObject views to BSON directly from their JSON nodes, converting the values of simple fields
+ * as they are written. Other objects are encoded by the default encoder. An encoder must not be shared between
+ * threads.
+ */
+public class JsonDBEncoder extends DefaultDBEncoder {
+
+    @Override
+    public int writeObject(OutputBuffer buf, BSONObject o) {
+        if (o instanceof JsonDBObject) {
+            set(buf);
+            int start = buf.getPosition();
+            try {
+                ((JsonDBObject) o).encode(this, true);
+            } catch (DocumentCodec.InvalidFieldException e) {
+                throw Error.get(Translator.ERR_INVALID_FIELD, e.getPath());
+            } finally {
+                done();
+            }
+            return buf.getPosition() - start;
+        } else {
+            return super.writeObject(buf, o);
+        }
+    }
+
+    /**
+     * Starts a document, and returns its start position
+     */
+    int start() {
+        int start = _buf.getPosition();
+        _buf.writeInt(0);
+        return start;
+    }
+
+    /**
+     * Starts an embedded document or array with the given name, and returns its start position
+     */
+    int start(byte type, String name) {
+        _put(type, name);
+        return start();
+    }
+
+    /**
+     * Ends the document started at the given position
+     */
+    void end(int start) {
+        _buf.write(BSON.EOO);
+        _buf.writeInt(start, _buf.getPosition() - start);
+    }
+
+    void putValue(String name, Object value) {
+        _putObjectField(name, value);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.AbstractList;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * A read-only List view of a JSON array, with the elements converted to their BSON representation as they are read.
+ * Object elements are returned as JsonDBObject views.
+ */
+class JsonDBList extends AbstractList<Object> {
+
+    private final DocumentCodec.ArrayHandler handler;
+    private final ArrayNode node;
+
+    JsonDBList(DocumentCodec.ArrayHandler handler, ArrayNode node) {
+        this.handler = handler;
+        this.node = node;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (index < 0 || index >= node.size()) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return handler.elementToBsonValue(node.get(index), index);
+    }
+
+    @Override
+    public int size() {
+        return node.size();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BSONObject;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+
+/**
+ * A DBObject view of a JSON object. Values are converted to their BSON representation as they are read, object and
+ * array values are returned as views of the corresponding JSON nodes, so the JSON object is never copied into a
+ * BasicDBObject. A JsonDBEncoder writes the view to the wire directly from the JSON nodes.
+ *
+ * Fields put into the view are kept separate from the JSON object, which is never modified. Documents decoded by
+ * JsonDBDecoderFactory also keep the top level fields that are not in metadata this way, so the driver can read the
+ * status fields of error responses. Changes made to the object and array views returned by get() are not reflected in
+ * this view.
+ */
+public class JsonDBObject implements DBObject {
+
+    private static final Object REMOVED = new Object();
+
+    private final DocumentCodec.ObjectHandler handler;
+    private final ObjectNode node;
+    private Map<String, Object> overrides;
+    private boolean partial;
+
+    JsonDBObject(DocumentCodec.ObjectHandler handler, ObjectNode node) {
+        this.handler = handler;
+        this.node = node;
+    }
+
+    /**
+     * Returns the JSON object this is a view of. Fields put into the view are not included.
+     */
+    public ObjectNode getNode() {
+        return node;
+    }
+
+    /**
+     * Returns the JSON object including the fields put into the view that are in metadata. If no such fields are put,
+     * the JSON object itself is returned, otherwise a shallow copy of it is returned.
+     */
+    public ObjectNode toJson(JsonNodeFactory factory) {
+        if (overrides == null) {
+            return node;
+        }
+        ObjectNode ret = null;
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            DocumentCodec.FieldHandler field = handler.getField(entry.getKey());
+            if (field != null) {
+                if (ret == null) {
+                    ret = factory.objectNode();
+                    ret.setAll(node);
+                }
+                Object value = entry.getValue();
+                JsonNode valueNode = value == null || value == REMOVED ? null : field.toJsonValue(value, factory);
+                if (valueNode == null) {
+                    ret.remove(entry.getKey());
+                } else {
+                    ret.set(entry.getKey(), valueNode);
+                }
+            }
+        }
+        return ret == null ? node : ret;
+    }
+
+    /**
+     * Writes the document using the encoder. _id is written first, as the driver does for top level documents.
+     */
+    void encode(JsonDBEncoder encoder, boolean top) {
+        int start = encoder.start();
+        if (top) {
+            Object id = get(MongoCRUDController.ID_STR);
+            if (id != null) {
+                encoder.putValue(MongoCRUDController.ID_STR, id);
+            }
+        }
+        handler.encodeFields(node, encoder, overrides, top);
+        if (overrides != null) {
+            for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+                if (entry.getValue() != REMOVED && !(top && MongoCRUDController.ID_STR.equals(entry.getKey()))) {
+                    encoder.putValue(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        encoder.end(start);
+    }
+
+    @Override
+    public Object get(String key) {
+        if (overrides != null && overrides.containsKey(key)) {
+            Object value = overrides.get(key);
+            return value == REMOVED ? null : value;
+        }
+        DocumentCodec.FieldHandler field = handler.getField(key);
+        if (field != null) {
+            JsonNode value = node.get(key);
+            if (value != null) {
+                return field.toBsonValue(value);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object old = get(key);
+        overrides().put(key, value);
+        return old;
+    }
+
+    @Override
+    public void putAll(BSONObject o) {
+        for (String key : o.keySet()) {
+            put(key, o.get(key));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void putAll(Map m) {
+        for (Object x : m.entrySet()) {
+            Map.Entry entry = (Map.Entry) x;
+            put(entry.getKey().toString(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object removeField(String key) {
+        Object old = get(key);
+        overrides().put(key, REMOVED);
+        return old;
+    }
+
+    @Override
+    @Deprecated
+    public boolean containsKey(String key) {
+        return containsField(key);
+    }
+
+    @Override
+    public boolean containsField(String key) {
+        if (overrides != null && overrides.containsKey(key)) {
+            return overrides.get(key) != REMOVED;
+        }
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Iterator<String> itr = node.fieldNames(); itr.hasNext();) {
+            String key = itr.next();
+            if (containsField(key)) {
+                keys.add(key);
+            }
+        }
+        if (overrides != null) {
+            for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+                if (entry.getValue() != REMOVED) {
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Map toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (String key : keySet()) {
+            map.put(key, get(key));
+        }
+        return map;
+    }
+
+    @Override
+    public void markAsPartialObject() {
+        partial = true;
+    }
+
+    @Override
+    public boolean isPartialObject() {
+        return partial;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BSONObject && toMap().equals(((BSONObject) o).toMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return toMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return JSON.serialize(this);
+    }
+
+    private Map<String, Object> overrides() {
+        if (overrides == null) {
+            overrides = new LinkedHashMap<>();
+        }
+        return overrides;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+import com.redhat.lightblue.crud.CountMode;
+import com.redhat.lightblue.util.Error;
+
+/**
+ * Computes the number of documents matching a query. Counts are run on a shared executor, so that the count can be
+ * computed while the documents are being retrieved. If all executor threads are busy, the count runs in the calling
+ * thread.
+ */
+public final class MatchCounter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MatchCounter.class);
+
+    /**
+     * Default number of documents an estimated count will count up to
+     */
+    public static final int DEFAULT_ESTIMATE_LIMIT = 1000;
+
+    private static final int MAX_THREADS = 16;
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS,
+            60l, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactory() {
+                private final AtomicInteger n = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "mongo-match-count-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private MatchCounter() {
+    }
+
+    /**
+     * Starts counting the documents matching the query
+     *
+     * @param coll The collection
+     * @param mongoQuery The query
+     * @param mode Count mode. EXACT counts all matching documents. ESTIMATE uses the collection document count if the
+     * query is empty, and otherwise counts up to the larger of estimateLimit and the end of the requested range, so the
+     * result is a lower bound. NONE does not count, and the result is 0.
+     * @param to Optional end index of the requested range
+     * @param estimateLimit Number of documents an estimated count counts up to
+     *
+     * @return The pending count. Call get() to retrieve the result.
+     */
+    public static Future<Long> count(final DBCollection coll,
+                                     final DBObject mongoQuery,
+                                     CountMode mode,
+                                     Long to,
+                                     int estimateLimit) {
+        Callable<Long> call;
+        switch (mode == null ? CountMode.EXACT : mode) {
+            case NONE:
+                call = new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return 0l;
+                    }
+                };
+                FutureTask<Long> task = new FutureTask<>(call);
+                task.run();
+                return task;
+            case ESTIMATE:
+                if (mongoQuery == null || mongoQuery.keySet().isEmpty()) {
+                    call = new Callable<Long>() {
+                        @Override
+                        public Long call() {
+                            return coll.getCount();
+                        }
+                    };
+                } else {
+                    final long limit = Math.max(estimateLimit, to == null ? 0 : to + 1);
+                    call = new Callable<Long>() {
+                        @Override
+                        public Long call() {
+                            return coll.getCount(mongoQuery, null, limit, 0);
+                        }
+                    };
+                }
+                break;
+            default:
+                call = new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return coll.getCount(mongoQuery);
+                    }
+                };
+                break;
+        }
+        LOGGER.debug("Counting {} with mode {}", mongoQuery, mode);
+        return EXECUTOR.submit(call);
+    }
+
+    /**
+     * Waits for the count to complete, and returns the result. Any exception thrown while counting is rethrown in the
+     * calling thread.
+     */
+    public static long get(Future<Long> count) {
+        try {
+            return count.get();
+        } catch (InterruptedException e) {
+            count.cancel(true);
+            Thread.currentThread().interrupt();
+            throw Error.get(MongoCrudConstants.ERR_COUNT_ERROR, e.toString());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof java.lang.Error) {
+                throw (java.lang.Error) cause;
+            } else {
+                throw Error.get(MongoCrudConstants.ERR_COUNT_ERROR, String.valueOf(cause));
+            }
+        }
+    }
+}
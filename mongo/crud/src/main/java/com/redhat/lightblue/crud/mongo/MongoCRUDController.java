@@ -31,7 +31,6 @@ import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 
-import com.redhat.lightblue.crud.CRUDController;
 import com.redhat.lightblue.crud.CRUDDeleteResponse;
 import com.redhat.lightblue.crud.CRUDFindResponse;
 import com.redhat.lightblue.crud.CRUDInsertionResponse;
@@ -39,6 +38,8 @@ import com.redhat.lightblue.crud.CRUDOperationContext;
 import com.redhat.lightblue.crud.CRUDSaveResponse;
 import com.redhat.lightblue.crud.CRUDUpdateResponse;
 import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.DocumentSink;
+import com.redhat.lightblue.crud.StreamingCRUDController;
 import com.redhat.lightblue.crud.ConstraintValidator;
 import com.redhat.lightblue.eval.Projector;
 import com.redhat.lightblue.eval.QueryEvaluationContext;
@@ -59,7 +60,7 @@ import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.JsonDoc;
 import com.redhat.lightblue.util.Path;
 
-public class MongoCRUDController implements CRUDController {
+public class MongoCRUDController implements StreamingCRUDController {
 
     public static final String ID_STR = "_id";
 
@@ -89,12 +90,23 @@ public class MongoCRUDController implements CRUDController {
     public static final String OP_UPDATE = "update";
     public static final String OP_DELETE = "delete";
 
+    /**
+     * Default number of documents read and processed at once by streaming find
+     */
+    public static final int DEFAULT_STREAM_BATCH_SIZE = 1000;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoCRUDController.class);
 
     private static final Projection ID_PROJECTION = new FieldProjection(new Path(ID_STR), true, false);
 
     private final JsonNodeFactory nodeFactory;
     private final DBResolver dbResolver;
+    private int streamBatchSize = DEFAULT_STREAM_BATCH_SIZE;
+    private int countEstimateLimit = MatchCounter.DEFAULT_ESTIMATE_LIMIT;
+    private int insertBatchSize = BatchInsertDocSaver.DEFAULT_BATCH_SIZE;
+    private int saveBatchSize = BatchSaveDocSaver.DEFAULT_BATCH_SIZE;
+    private int updateBatchSize = AtomicBatchUpdate.DEFAULT_BATCH_SIZE;
+    private int deleteBatchSize = BatchDeleter.DEFAULT_BATCH_SIZE;
 
     public static MongoCRUDController create(final MongoConfiguration config) {
         DBResolver r = new DBResolver() {
@@ -123,6 +135,90 @@ public class MongoCRUDController implements CRUDController {
         this.dbResolver = dbResolver;
     }
 
+    /**
+     * Number of documents read and processed at once by streaming find
+     */
+    public int getStreamBatchSize() {
+        return streamBatchSize;
+    }
+
+    /**
+     * Number of documents read and processed at once by streaming find
+     */
+    public void setStreamBatchSize(int n) {
+        streamBatchSize = n;
+    }
+
+    /**
+     * Number of documents an estimated match count counts up to, if the requested range does not extend beyond it
+     */
+    public int getCountEstimateLimit() {
+        return countEstimateLimit;
+    }
+
+    /**
+     * Number of documents an estimated match count counts up to, if the requested range does not extend beyond it
+     */
+    public void setCountEstimateLimit(int n) {
+        countEstimateLimit = n;
+    }
+
+    /**
+     * Number of documents inserted with a single insert call
+     */
+    public int getInsertBatchSize() {
+        return insertBatchSize;
+    }
+
+    /**
+     * Number of documents inserted with a single insert call
+     */
+    public void setInsertBatchSize(int n) {
+        insertBatchSize = n;
+    }
+
+    /**
+     * Number of documents read with a single query, and saved together
+     */
+    public int getSaveBatchSize() {
+        return saveBatchSize;
+    }
+
+    /**
+     * Number of documents read with a single query, and saved together
+     */
+    public void setSaveBatchSize(int n) {
+        saveBatchSize = n;
+    }
+
+    /**
+     * Number of documents updated together when the updated documents are returned
+     */
+    public int getUpdateBatchSize() {
+        return updateBatchSize;
+    }
+
+    /**
+     * Number of documents updated together when the updated documents are returned
+     */
+    public void setUpdateBatchSize(int n) {
+        updateBatchSize = n;
+    }
+
+    /**
+     * Number of documents removed together when the deleted documents are passed to hooks
+     */
+    public int getDeleteBatchSize() {
+        return deleteBatchSize;
+    }
+
+    /**
+     * Number of documents removed together when the deleted documents are passed to hooks
+     */
+    public void setDeleteBatchSize(int n) {
+        deleteBatchSize = n;
+    }
+
     /**
      * Insertion operation for mongo
      */
@@ -168,7 +264,8 @@ public class MongoCRUDController implements CRUDController {
                             ctx.getCallerRoles());
             LOGGER.debug("saveOrInsert: Translating docs");
             EntityMetadata md = ctx.getEntityMetadata(ctx.getEntityName());
-            DBObject[] dbObjects = translator.toBson(documents);
+            // Inserted documents are written straight from their JSON form, see BatchInsertDocSaver
+            DBObject[] dbObjects = operation.equals(OP_INSERT) ? translator.toDBObjects(documents) : translator.toBson(documents);
             // dbObjects[i] is the translation of documents.get(i)
             if (dbObjects != null) {
                 LOGGER.debug("saveOrInsert: {} docs translated to bson", dbObjects.length);
@@ -185,7 +282,12 @@ public class MongoCRUDController implements CRUDController {
                 } else {
                     projector = null;
                 }
-                DocSaver saver = new BasicDocSaver(translator, roleEval);
+                DocSaver saver;
+                if (operation.equals(OP_INSERT)) {
+                    saver = new BatchInsertDocSaver(translator, roleEval, insertBatchSize);
+                } else {
+                    saver = new BatchSaveDocSaver(translator, roleEval, saveBatchSize);
+                }
                 ctx.setProperty(PROP_SAVER, saver);
                 for (int docIndex = 0; docIndex < dbObjects.length; docIndex++) {
                     DBObject dbObject = dbObjects[docIndex];
@@ -193,11 +295,30 @@ public class MongoCRUDController implements CRUDController {
                     try {
                         saver.saveDoc(ctx, operation.equals(OP_INSERT) ? DocSaver.Op.insert : DocSaver.Op.save,
                                 upsert, collection, md, dbObject, inputDoc);
-                        ctx.getHookManager().queueHooks(ctx);
+                        if (!(saver instanceof BatchDocSaver)) {
+                            ctx.getHookManager().queueHooks(ctx);
+                        }
                     } catch (Exception e) {
                         LOGGER.error("saveOrInsert failed: {}", e);
                         inputDoc.addError(Error.get(operation, MongoCrudConstants.ERR_SAVE_ERROR, e.toString()));
                     }
+                }
+                if (saver instanceof BatchDocSaver) {
+                    try {
+                        ((BatchDocSaver) saver).endBatch(ctx, collection);
+                    } catch (Exception e) {
+                        LOGGER.error("saveOrInsert failed: {}", e);
+                        for (DocCtx inputDoc : documents) {
+                            if (inputDoc.getOperationPerformed() == null && !inputDoc.hasErrors()) {
+                                inputDoc.addError(Error.get(operation, MongoCrudConstants.ERR_SAVE_ERROR, e.toString()));
+                            }
+                        }
+                    }
+                    ctx.getHookManager().queueHooks(ctx);
+                }
+                for (int docIndex = 0; docIndex < dbObjects.length; docIndex++) {
+                    DBObject dbObject = dbObjects[docIndex];
+                    DocCtx inputDoc = documents.get(docIndex);
                     if (projector != null) {
                         JsonDoc jsonDoc = translator.toJson(dbObject);
                         LOGGER.debug("Translated doc: {}", jsonDoc);
@@ -232,7 +353,7 @@ public class MongoCRUDController implements CRUDController {
         Translator translator = new Translator(ctx, nodeFactory);
         try {
             EntityMetadata md = ctx.getEntityMetadata(ctx.getEntityName());
-            if (md.getAccess().getUpdate().hasAccess(ctx.getCallerRoles())) {
+            if (md.getAccess().getUpdate().hasAccess(ctx.getCallerRoleSet())) {
                 ConstraintValidator validator = ctx.getFactory().getConstraintValidator(md);
                 LOGGER.debug("Translating query {}", query);
                 DBObject mongoQuery = translator.translate(md, query);
@@ -282,8 +403,13 @@ public class MongoCRUDController implements CRUDController {
                 // the mongo updaters
                 DocUpdater docUpdater;
                 if (mongoUpdateExpr != null && !constrainedFieldUpdated) {
-                    docUpdater = new AtomicIterateUpdate(nodeFactory, roleEval, translator,
-                            mongoUpdateExpr, projector, updatedFields);
+                    // If the updated documents are not needed, let mongo update them all at once
+                    if (projector == null && !md.getHooks().hasUpdateHooks()) {
+                        docUpdater = new AtomicMultiUpdate(roleEval, mongoUpdateExpr, updatedFields);
+                    } else {
+                        docUpdater = new AtomicBatchUpdate(nodeFactory, roleEval, translator,
+                                mongoUpdateExpr, projector, updatedFields, updateBatchSize);
+                    }
                 } else {
                     docUpdater = new IterateAndUpdate(nodeFactory, validator, roleEval, translator, updater,
                             projector, errorProjector);
@@ -313,13 +439,19 @@ public class MongoCRUDController implements CRUDController {
         Translator translator = new Translator(ctx, nodeFactory);
         try {
             EntityMetadata md = ctx.getEntityMetadata(ctx.getEntityName());
-            if (md.getAccess().getDelete().hasAccess(ctx.getCallerRoles())) {
+            if (md.getAccess().getDelete().hasAccess(ctx.getCallerRoleSet())) {
                 LOGGER.debug("Translating query {}", query);
                 DBObject mongoQuery = translator.translate(md, query);
                 LOGGER.debug("Translated query {}", mongoQuery);
                 DB db = dbResolver.get((MongoDataStore) md.getDataStore());
                 DBCollection coll = db.getCollection(((MongoDataStore) md.getDataStore()).getCollectionName());
-                DocDeleter deleter = new IterateDeleter(translator);
+                DocDeleter deleter;
+                // If there are no hooks to pass the deleted documents, let mongo remove them all at once
+                if (md.getHooks().hasDeleteHooks()) {
+                    deleter = new BatchDeleter(translator, deleteBatchSize);
+                } else {
+                    deleter = new BasicDocDeleter();
+                }
                 ctx.setProperty(PROP_DELETER, deleter);
                 deleter.delete(ctx, coll, mongoQuery, response);
                 ctx.getHookManager().queueHooks(ctx);
@@ -345,6 +477,23 @@ public class MongoCRUDController implements CRUDController {
                                  Sort sort,
                                  Long from,
                                  Long to) {
+        return find(ctx, query, projection, sort, from, to, null);
+    }
+
+    /**
+     * Streaming search implementation for mongo. If sink is null, all documents are kept in the context. Otherwise,
+     * documents are read, projected, and written to the sink in batches of streamBatchSize. If the entity has find
+     * hooks, the hooks need all the documents, so they are read at once, hooks are queued once, and the documents are
+     * written to the sink in a single batch.
+     */
+    @Override
+    public CRUDFindResponse find(CRUDOperationContext ctx,
+                                 QueryExpression query,
+                                 Projection projection,
+                                 Sort sort,
+                                 Long from,
+                                 Long to,
+                                 final DocumentSink sink) {
         if (query == null) {
             throw new IllegalArgumentException(MongoCrudConstants.ERR_NULL_QUERY);
         }
@@ -357,7 +506,7 @@ public class MongoCRUDController implements CRUDController {
         Translator translator = new Translator(ctx, nodeFactory);
         try {
             EntityMetadata md = ctx.getEntityMetadata(ctx.getEntityName());
-            if (md.getAccess().getFind().hasAccess(ctx.getCallerRoles())) {
+            if (md.getAccess().getFind().hasAccess(ctx.getCallerRoleSet())) {
                 FieldAccessRoleEvaluator roleEval = new FieldAccessRoleEvaluator(md, ctx.getCallerRoles());
                 LOGGER.debug("Translating query {}", query);
                 DBObject mongoQuery = translator.translate(md, query);
@@ -370,20 +519,47 @@ public class MongoCRUDController implements CRUDController {
                 } else {
                     mongoSort = null;
                 }
+                // Find hooks get the documents as they are in the db, so push-down is only possible without them
+                boolean findHooks = md.getHooks().hasFindHooks();
+                DBObject mongoProjection = findHooks ? null : translator.translate(projection, query);
+                LOGGER.debug("Translated projection {}", mongoProjection);
                 DB db = dbResolver.get((MongoDataStore) md.getDataStore());
                 DBCollection coll = db.getCollection(((MongoDataStore) md.getDataStore()).getCollectionName());
                 LOGGER.debug("Retrieve db collection:" + coll);
-                DocFinder finder = new BasicDocFinder(translator);
-                ctx.setProperty(PROP_FINDER, finder);
-                response.setSize(finder.find(ctx, coll, mongoQuery, mongoSort, from, to));
-                // Project results
-                Projector projector = Projector.getInstance(Projection.add(projection, roleEval.getExcludedFields(FieldAccessRoleEvaluator.Operation.find)), md);
-                QueryEvaluator qeval = QueryEvaluator.getInstance(query, md);
-                for (DocCtx document : ctx.getDocuments()) {
-                    QueryEvaluationContext qctx = qeval.evaluate(document);
-                    document.setOutputDocument(projector.project(document, nodeFactory, qctx));
+                final Projector projector = Projector.getInstance(Projection.add(projection, roleEval.getExcludedFields(FieldAccessRoleEvaluator.Operation.find)), md);
+                // The documents returned from the db already match the query. It only has to be evaluated again
+                // if the projection includes the array elements the query matched.
+                QueryEvaluator queryEval = null;
+                if (projector.usesMatchingElements()) {
+                    queryEval = QueryEvaluator.getInstance(query, md);
+                    if (!queryEval.marksArrayElements()) {
+                        queryEval = null;
+                    }
+                }
+                final QueryEvaluator qeval = queryEval;
+                if (sink == null || findHooks) {
+                    DocFinder finder = new BasicDocFinder(translator, countEstimateLimit);
+                    ctx.setProperty(PROP_FINDER, finder);
+                    response.setSize(finder.find(ctx, coll, mongoQuery, mongoProjection, mongoSort, from, to));
+                    projectResults(ctx, projector, qeval);
+                    ctx.getHookManager().queueHooks(ctx);
+                    if (sink != null) {
+                        // Hooks keep their own copies, so the documents are dropped as in the streaming case
+                        sink.write(ctx.getDocuments());
+                        ctx.clearDocuments();
+                    }
+                } else {
+                    DocFinder finder = new StreamingDocFinder(translator, streamBatchSize,
+                            new StreamingDocFinder.BatchHandler() {
+                                @Override
+                                public void handle(CRUDOperationContext batchCtx) {
+                                    projectResults(batchCtx, projector, qeval);
+                                    sink.write(batchCtx.getDocuments());
+                                }
+                            }, countEstimateLimit);
+                    ctx.setProperty(PROP_FINDER, finder);
+                    response.setSize(finder.find(ctx, coll, mongoQuery, mongoProjection, mongoSort, from, to));
                 }
-                ctx.getHookManager().queueHooks(ctx);
            } else {
                 ctx.addError(Error.get(MongoCrudConstants.ERR_NO_ACCESS, "find:" + ctx.getEntityName()));
             }
@@ -393,4 +569,13 @@ public class MongoCRUDController implements CRUDController {
         LOGGER.debug("find end: query: {} results: {}", response.getSize());
         return response;
     }
+
+    private void projectResults(CRUDOperationContext ctx,
+                                Projector projector,
+                                QueryEvaluator qeval) {
+        for (DocCtx document : ctx.getDocuments()) {
+            QueryEvaluationContext qctx = qeval == null ? null : qeval.evaluate(document);
+            document.setOutputDocument(projector.project(document, nodeFactory, qctx));
+        }
+    }
 }
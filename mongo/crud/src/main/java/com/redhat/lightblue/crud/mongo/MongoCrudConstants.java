@@ -25,8 +25,10 @@ public final class MongoCrudConstants {
     public static final String ERR_INSERTION_ERROR = "mongo-crud:InsertionError";
     public static final String ERR_SAVE_ERROR = "mongo-crud:SaveError";
     public static final String ERR_UPDATE_ERROR = "mongo-crud:UpdateError";
+    public static final String ERR_DELETE_ERROR = "mongo-crud:DeleteError";
     public static final String ERR_NO_ACCESS = "mongo-crud:NoAccess";
     public static final String ERR_CONNECTION_ERROR = "mongo-crud:ConnectionError";
+    public static final String ERR_COUNT_ERROR = "mongo-crud:CountError";
 
     public static final String ERR_EMPTY_DOCUMENTS = "mongo-crud:EmptyDocuments";
     public static final String ERR_EMPTY_VALUE_LIST = "mongo-crud:EmptyValueList";
@@ -0,0 +1,140 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
+import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.DocCtx;
+import com.redhat.lightblue.crud.Operation;
+import com.redhat.lightblue.metadata.EntityMetadata;
+
+/**
+ * Doc search operation that reads the results in batches. Each batch is translated and added to the operation context,
+ * passed to the batch handler, and then removed from the context, so only one batch of documents is in memory at any
+ * time.
+ */
+public class StreamingDocFinder implements DocFinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingDocFinder.class);
+
+    /**
+     * Processes a batch of documents found by the finder
+     */
+    public interface BatchHandler {
+        /**
+         * Called when the documents of a batch are added to the context. The documents are removed from the context
+         * once this call returns.
+         */
+        void handle(CRUDOperationContext ctx);
+    }
+
+    private final Translator translator;
+    private final int batchSize;
+    private final BatchHandler handler;
+    private final int estimateLimit;
+
+    public StreamingDocFinder(Translator translator,
+                              int batchSize,
+                              BatchHandler handler) {
+        this(translator, batchSize, handler, MatchCounter.DEFAULT_ESTIMATE_LIMIT);
+    }
+
+    public StreamingDocFinder(Translator translator,
+                              int batchSize,
+                              BatchHandler handler,
+                              int estimateLimit) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.translator = translator;
+        this.batchSize = batchSize;
+        this.handler = handler;
+        this.estimateLimit = estimateLimit;
+    }
+
+    @Override
+    public long find(CRUDOperationContext ctx,
+                     DBCollection coll,
+                     DBObject mongoQuery,
+                     DBObject mongoProjection,
+                     DBObject mongoSort,
+                     Long from,
+                     Long to) {
+        LOGGER.debug("Submitting query");
+        DBCursor cursor = coll.find(mongoQuery, mongoProjection);
+        EntityMetadata md = ctx.getEntityMetadata(ctx.getEntityName());
+        if (md != null) {
+            cursor.setDecoderFactory(translator.getDecoderFactory(md));
+        }
+        if (mongoSort != null) {
+            cursor = cursor.sort(mongoSort);
+        }
+        Future<Long> count = MatchCounter.count(coll, mongoQuery, ctx.getCountMode(), to, estimateLimit);
+        LOGGER.debug("Applying limits: {} - {}", from, to);
+        if (from != null) {
+            cursor.skip(from.intValue());
+        }
+        if (to != null) {
+            cursor.limit(to.intValue() - (from == null ? 0 : from.intValue()) + 1);
+        }
+        cursor.batchSize(batchSize);
+        try {
+            List<DBObject> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    processBatch(ctx, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                processBatch(ctx, batch);
+            }
+            return MatchCounter.get(count);
+        } finally {
+            cursor.close();
+            // Stops the count if the fetch failed, no-op otherwise
+            count.cancel(true);
+        }
+    }
+
+    private void processBatch(CRUDOperationContext ctx, List<DBObject> batch) {
+        LOGGER.debug("Processing batch of {} results", batch.size());
+        ctx.clearDocuments();
+        ctx.addDocuments(translator.toJson(batch));
+        for (DocCtx doc : ctx.getDocuments()) {
+            doc.setOperationPerformed(Operation.FIND);
+        }
+        try {
+            handler.handle(ctx);
+        } finally {
+            ctx.clearDocuments();
+        }
+    }
+}
@@ -20,8 +20,11 @@ package com.redhat.lightblue.crud.mongo;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
@@ -30,33 +33,34 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBDecoderFactory;
 import com.mongodb.DBObject;
 import com.redhat.lightblue.crud.MetadataResolver;
 import com.redhat.lightblue.metadata.ArrayElement;
 import com.redhat.lightblue.metadata.ArrayField;
 import com.redhat.lightblue.metadata.EntityMetadata;
-import com.redhat.lightblue.metadata.FieldCursor;
 import com.redhat.lightblue.metadata.FieldTreeNode;
 import com.redhat.lightblue.metadata.ObjectArrayElement;
-import com.redhat.lightblue.metadata.ObjectField;
-import com.redhat.lightblue.metadata.ReferenceField;
-import com.redhat.lightblue.metadata.SimpleArrayElement;
 import com.redhat.lightblue.metadata.SimpleField;
 import com.redhat.lightblue.metadata.Type;
+import com.redhat.lightblue.query.AllMatchExpression;
 import com.redhat.lightblue.query.ArrayContainsExpression;
 import com.redhat.lightblue.query.ArrayMatchExpression;
+import com.redhat.lightblue.query.ArrayProjection;
+import com.redhat.lightblue.query.ArrayRangeProjection;
 import com.redhat.lightblue.query.BinaryComparisonOperator;
 import com.redhat.lightblue.query.CompositeSortKey;
 import com.redhat.lightblue.query.FieldComparisonExpression;
+import com.redhat.lightblue.query.FieldProjection;
 import com.redhat.lightblue.query.NaryLogicalExpression;
 import com.redhat.lightblue.query.NaryLogicalOperator;
 import com.redhat.lightblue.query.NaryRelationalExpression;
 import com.redhat.lightblue.query.NaryRelationalOperator;
+import com.redhat.lightblue.query.Projection;
+import com.redhat.lightblue.query.ProjectionList;
 import com.redhat.lightblue.query.QueryExpression;
 import com.redhat.lightblue.query.RegexMatchExpression;
 import com.redhat.lightblue.query.Sort;
@@ -76,7 +80,6 @@ import com.redhat.lightblue.query.SetExpression;
 import com.redhat.lightblue.query.UnsetExpression;
 import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.JsonDoc;
-import com.redhat.lightblue.util.JsonNodeCursor;
 import com.redhat.lightblue.util.Path;
 
 /**
@@ -173,10 +176,53 @@ public class Translator {
         return ret;
     }
 
+    /**
+     * Returns DBObject views of JSON documents. See toDBObject(JsonDoc).
+     */
+    public DBObject[] toDBObjects(List<? extends JsonDoc> docs) {
+        DBObject[] ret = new DBObject[docs.size()];
+        int i = 0;
+        for (JsonDoc doc : docs) {
+            ret[i++] = toDBObject(doc);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a DBObject view of a JSON document. The document is validated the same way toBson() validates it, but
+     * it is not copied. Use a JsonDBEncoder to write the returned object.
+     */
+    public DBObject toDBObject(JsonDoc doc) {
+        JsonNode node = doc.get(OBJECT_TYPE);
+        if (node == null) {
+            throw Error.get(ERR_NO_OBJECT_TYPE);
+        }
+        EntityMetadata md = mdResolver.getEntityMetadata(node.asText());
+        if (md == null) {
+            throw Error.get(ERR_INVALID_OBJECTTYPE, node.asText());
+        }
+        return DocumentCodec.getInstance(md).toDBObject((ObjectNode) doc.getRoot());
+    }
+
+    /**
+     * Returns a decoder factory that decodes documents of the given entity directly into JSON documents. DBObjects read
+     * using the decoder are translated by toJson() without copying.
+     */
+    public DBDecoderFactory getDecoderFactory(EntityMetadata md) {
+        return new JsonDBDecoderFactory(DocumentCodec.getInstance(md), factory);
+    }
+
     /**
      * Traslates a DBObject document to Json document
      */
     public JsonDoc toJson(DBObject object) {
+        if (object instanceof JsonDBObject) {
+            ObjectNode node = ((JsonDBObject) object).toJson(factory);
+            if (node.get(OBJECT_TYPE_STR) == null) {
+                throw Error.get(ERR_NO_OBJECT_TYPE);
+            }
+            return new JsonDoc(node);
+        }
         LOGGER.debug("toJson() enter");
         Object type = object.get(OBJECT_TYPE_STR);
         if (type == null) {
@@ -238,6 +284,56 @@ public class Translator {
         }
     }
 
+    /**
+     * Translates a projection to a Mongo field selector, so that only the fields that will be projected, and the fields
+     * the query needs to be evaluated in memory are retrieved from the database.
+     *
+     * @param projection The projection
+     * @param query The query expression
+     *
+     * The returned field selector selects a superset of the fields included by the projection: exclusions are not
+     * translated, and arrays are retrieved as a whole unless a top level array range projection can be translated to a
+     * $slice. The projection is still evaluated in memory on the retrieved documents. Returns null if the projection
+     * cannot be translated, in which case complete documents must be retrieved.
+     */
+    public DBObject translate(Projection projection, QueryExpression query) {
+        LOGGER.debug("translate {}", projection);
+        Error.push("translateProjection");
+        try {
+            Set<String> fields = new HashSet<>();
+            Map<String, Integer> slices = new HashMap<>();
+            if (!collectProjectionFields(projection, fields, slices)
+                    || (query != null && !collectQueryFields(query, fields))) {
+                LOGGER.debug("Projection cannot be translated");
+                return null;
+            }
+            fields.add(OBJECT_TYPE_STR);
+            // An array that is also selected by some other field is retrieved as a whole
+            for (Iterator<String> itr = slices.keySet().iterator(); itr.hasNext();) {
+                String field = itr.next();
+                if (fields.contains(field)
+                        || hasSelectedAncestor(field, fields)
+                        || hasSelectedDescendant(field, fields)) {
+                    fields.add(field);
+                    itr.remove();
+                }
+            }
+            BasicDBObject ret = new BasicDBObject();
+            for (String field : fields) {
+                if (!hasSelectedAncestor(field, fields)) {
+                    ret.put(field, 1);
+                }
+            }
+            for (Map.Entry<String, Integer> slice : slices.entrySet()) {
+                ret.put(slice.getKey(), new BasicDBObject("$slice", slice.getValue()));
+            }
+            LOGGER.debug("translated={}", ret);
+            return ret;
+        } finally {
+            Error.pop();
+        }
+    }
+
     /**
      * Tranlates an update expression to Mongo query
      *
@@ -394,6 +490,134 @@ public class Translator {
         return ret;
     }
 
+    /**
+     * Adds the fields included by the projection to fields. Array range projections on top level arrays are added to
+     * slices with the number of elements to retrieve. Returns false if the projection cannot be translated.
+     */
+    private boolean collectProjectionFields(Projection projection, Set<String> fields, Map<String, Integer> slices) {
+        if (projection instanceof ProjectionList) {
+            for (Projection x : ((ProjectionList) projection).getItems()) {
+                if (!collectProjectionFields(x, fields, slices)) {
+                    return false;
+                }
+            }
+        } else if (projection instanceof FieldProjection) {
+            FieldProjection p = (FieldProjection) projection;
+            if (p.isInclude()) {
+                return addField(p.getField(), fields);
+            }
+        } else if (projection instanceof ArrayProjection) {
+            ArrayProjection p = (ArrayProjection) projection;
+            if (p.isInclude()) {
+                Path field = p.getField();
+                if (projection instanceof ArrayRangeProjection
+                        && field.nAnys() == 0
+                        && ((ArrayRangeProjection) projection).getTo() >= 0) {
+                    String name = toFieldName(field);
+                    if (name == null) {
+                        return false;
+                    }
+                    // Elements before from are retrieved as well, so that the array indexes remain the same
+                    int n = ((ArrayRangeProjection) projection).getTo() + 1;
+                    Integer x = slices.get(name);
+                    slices.put(name, x == null ? n : Math.max(x, n));
+                } else {
+                    return addField(field, fields);
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the fields referenced in the query to fields. Fields of array elements are covered by the array
+     * field. Returns false if the query cannot be translated.
+     */
+    private boolean collectQueryFields(QueryExpression query, Set<String> fields) {
+        if (query instanceof ValueComparisonExpression) {
+            return addField(((ValueComparisonExpression) query).getField(), fields);
+        } else if (query instanceof FieldComparisonExpression) {
+            return addField(((FieldComparisonExpression) query).getField(), fields)
+                    && addField(((FieldComparisonExpression) query).getRfield(), fields);
+        } else if (query instanceof RegexMatchExpression) {
+            return addField(((RegexMatchExpression) query).getField(), fields);
+        } else if (query instanceof NaryRelationalExpression) {
+            return addField(((NaryRelationalExpression) query).getField(), fields);
+        } else if (query instanceof ArrayContainsExpression) {
+            return addField(((ArrayContainsExpression) query).getArray(), fields);
+        } else if (query instanceof ArrayMatchExpression) {
+            return addField(((ArrayMatchExpression) query).getArray(), fields);
+        } else if (query instanceof UnaryLogicalExpression) {
+            return collectQueryFields(((UnaryLogicalExpression) query).getQuery(), fields);
+        } else if (query instanceof NaryLogicalExpression) {
+            for (QueryExpression x : ((NaryLogicalExpression) query).getQueries()) {
+                if (!collectQueryFields(x, fields)) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            return query instanceof AllMatchExpression;
+        }
+    }
+
+    private boolean addField(Path field, Set<String> fields) {
+        String name = toFieldName(field);
+        if (name == null) {
+            return false;
+        }
+        fields.add(name);
+        return true;
+    }
+
+    /**
+     * Returns the Mongo field name for the given path. Array wildcards are dropped, and the path is truncated at the
+     * first array index. Returns null if the path cannot be expressed as a Mongo field name.
+     */
+    private static String toFieldName(Path field) {
+        StringBuilder str = new StringBuilder();
+        int n = field.numSegments();
+        for (int i = 0; i < n; i++) {
+            String seg = field.head(i);
+            if (Path.ANY.equals(seg)) {
+                if (i == 0) {
+                    return null;
+                }
+            } else if (Path.PARENT.equals(seg) || Path.THIS.equals(seg)) {
+                return null;
+            } else if (field.isIndex(i)) {
+                break;
+            } else {
+                if (str.length() > 0) {
+                    str.append('.');
+                }
+                str.append(seg);
+            }
+        }
+        return str.length() == 0 ? null : str.toString();
+    }
+
+    private static boolean hasSelectedAncestor(String field, Set<String> fields) {
+        for (int i = field.indexOf('.'); i != -1; i = field.indexOf('.', i + 1)) {
+            if (fields.contains(field.substring(0, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSelectedDescendant(String field, Set<String> fields) {
+        String prefix = field + ".";
+        for (String x : fields) {
+            if (x.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private DBObject translate(FieldTreeNode context, QueryExpression query) {
         DBObject ret;
         if (query instanceof ArrayContainsExpression) {
@@ -594,229 +818,12 @@ public class Translator {
     private JsonDoc toJson(DBObject object, EntityMetadata md) {
         // Translation is metadata driven. We don't know how to
         // translate something that's not defined in metadata.
-        FieldCursor cursor = md.getFieldCursor();
-        if (cursor.firstChild()) {
-            return new JsonDoc(objectToJson(object, md, cursor));
-        } else {
-            return null;
-        }
-    }
-
-    /**
-     * Called after firstChild is called on cursor
-     */
-    private ObjectNode objectToJson(DBObject object, EntityMetadata md, FieldCursor mdCursor) {
-        ObjectNode node = factory.objectNode();
-        do {
-            Path p = mdCursor.getCurrentPath();
-            FieldTreeNode field = mdCursor.getCurrentNode();
-            String fieldName = field.getName();
-            LOGGER.debug("{}", p);
-            // Retrieve field value
-            Object value = object.get(fieldName);
-            if (value != null) {
-                if (field instanceof SimpleField) {
-                    convertSimpleFieldToJson(node, field, value, fieldName);
-                } else if (field instanceof ObjectField) {
-                    convertObjectFieldToJson(node, fieldName, md, mdCursor, value, p);
-                } else if (field instanceof ArrayField && value instanceof List && mdCursor.firstChild()) {
-                    convertArrayFieldToJson(node, fieldName, md, mdCursor, value);
-                } else if (field instanceof ReferenceField) {
-                    convertReferenceFieldToJson();
-                }
-            }
-        } while (mdCursor.nextSibling());
-        return node;
-    }
-
-    private void convertSimpleFieldToJson(ObjectNode node, FieldTreeNode field, Object value, String fieldName) {
-        JsonNode valueNode = ((SimpleField) field).getType().toJson(factory, value);
-        if (valueNode != null) {
-            node.set(fieldName, valueNode);
-        }
-    }
-
-    private void convertObjectFieldToJson(ObjectNode node, String fieldName, EntityMetadata md, FieldCursor mdCursor, Object value, Path p) {
-        if (value instanceof DBObject) {
-            if (mdCursor.firstChild()) {
-                JsonNode valueNode = objectToJson((DBObject) value, md, mdCursor);
-                if (valueNode != null) {
-                    node.set(fieldName, valueNode);
-                }
-                mdCursor.parent();
-            }
-        } else {
-            LOGGER.error("Expected DBObject, found {} for {}", value.getClass(), p);
-        }
-    }
-
-    @SuppressWarnings("rawtypes")
-    private void convertArrayFieldToJson(ObjectNode node, String fieldName, EntityMetadata md, FieldCursor mdCursor, Object value) {
-        ArrayNode valueNode = factory.arrayNode();
-        node.set(fieldName, valueNode);
-        // We must have an array element here
-        FieldTreeNode x = mdCursor.getCurrentNode();
-        if (x instanceof ArrayElement) {
-            for (Object item : (List) value) {
-                valueNode.add(arrayElementToJson(item, (ArrayElement) x, md, mdCursor));
-            }
-        }
-        mdCursor.parent();
-    }
-
-    private void convertReferenceFieldToJson() {
-        //TODO
-        LOGGER.debug("Converting reference field: ");
-    }
-
-    private JsonNode arrayElementToJson(Object value,
-                                        ArrayElement el,
-                                        EntityMetadata md,
-                                        FieldCursor mdCursor) {
-        JsonNode ret = null;
-        if (el instanceof SimpleArrayElement) {
-            if (value != null) {
-                ret = ((SimpleArrayElement) el).getType().toJson(factory, value);
-            }
-        } else {
-            if (value != null) {
-                if (value instanceof DBObject) {
-                    if (mdCursor.firstChild()) {
-                        ret = objectToJson((DBObject) value, md, mdCursor);
-                        mdCursor.parent();
-                    }
-                } else {
-                    LOGGER.error("Expected DBObject, got {}", value.getClass().getName());
-                }
-            }
-        }
-        return ret;
+        ObjectNode node = DocumentCodec.getInstance(md).toJson(object, factory);
+        return node == null ? null : new JsonDoc(node);
     }
 
     private BasicDBObject toBson(JsonDoc doc, EntityMetadata md) {
         LOGGER.debug("Entity: {}", md.getName());
-        BasicDBObject ret = null;
-        JsonNodeCursor cursor = doc.cursor();
-        if (cursor.firstChild()) {
-            ret = objectToBson(cursor, md);
-        }
-        return ret;
-    }
-
-    private Object toValue(Type t, JsonNode node) {
-        if (node == null || node instanceof NullNode) {
-            return null;
-        } else {
-            return t.fromJson(node);
-        }
-    }
-
-    private void toBson(BasicDBObject dest,
-                        SimpleField fieldMd,
-                        Path path,
-                        JsonNode node) {
-        Object value = toValue(fieldMd.getType(), node);
-        // Should we add fields with null values to the bson doc? 
-        if (value != null) {
-            LOGGER.debug("{} = {}", path, value);
-            if (path.equals(ID_PATH)) {
-                value = new ObjectId(value.toString());
-            }
-            // Store big values as string. Mongo does not support big values
-            if (value instanceof BigDecimal || value instanceof BigInteger) {
-                value = value.toString();
-            }
-
-            dest.append(path.tail(0), value);
-        }
+        return DocumentCodec.getInstance(md).toBson(doc.getRoot());
     }
-
-    /**
-     * @param cursor The cursor, pointing to the first element of the object
-     */
-    private BasicDBObject objectToBson(JsonNodeCursor cursor, EntityMetadata md) {
-        BasicDBObject ret = new BasicDBObject();
-        do {
-            Path path = cursor.getCurrentPath();
-            JsonNode node = cursor.getCurrentNode();
-            LOGGER.debug("field: {}", path);
-            FieldTreeNode fieldMdNode = md.resolve(path);
-            if (fieldMdNode == null) {
-                throw Error.get(ERR_INVALID_FIELD, path.toString());
-            }
-
-            if (fieldMdNode instanceof SimpleField) {
-                toBson(ret, (SimpleField) fieldMdNode, path, node);
-            } else if (fieldMdNode instanceof ObjectField) {
-                convertObjectFieldToBson(node, cursor, ret, path, md);
-            } else if (fieldMdNode instanceof ArrayField) {
-                convertArrayFieldToBson(node, cursor, ret, fieldMdNode, path, md);
-            } else if (fieldMdNode instanceof ReferenceField) {
-                convertReferenceFieldToBson();
-            }
-        } while (cursor.nextSibling());
-        return ret;
-    }
-
-    private void convertObjectFieldToBson(JsonNode node, JsonNodeCursor cursor, BasicDBObject ret, Path path, EntityMetadata md) {
-        if (node != null) {
-            if (node instanceof ObjectNode) {
-                if (cursor.firstChild()) {
-                    ret.append(path.tail(0), objectToBson(cursor, md));
-                    cursor.parent();
-                }
-            } else {
-                throw Error.get(ERR_INVALID_FIELD, path.toString());
-            }
-        }
-    }
-
-    private void convertArrayFieldToBson(JsonNode node, JsonNodeCursor cursor, BasicDBObject ret, FieldTreeNode fieldMdNode, Path path, EntityMetadata md) {
-        if (node != null) {
-            if (node instanceof ArrayNode) {
-                if (cursor.firstChild()) {
-                    ret.append(path.tail(0), arrayToBson(cursor, ((ArrayField) fieldMdNode).getElement(), md));
-                    cursor.parent();
-                }
-            } else {
-                throw Error.get(ERR_INVALID_FIELD, path.toString());
-            }
-        }
-    }
-
-    private void convertReferenceFieldToBson() {
-        //TODO  
-        throw new java.lang.UnsupportedOperationException();
-    }
-
-    /**
-     * @param cursor The cursor, pointing to the first element of the array
-     */
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    private List arrayToBson(JsonNodeCursor cursor, ArrayElement el, EntityMetadata md) {
-        List l = new ArrayList();
-        if (el instanceof SimpleArrayElement) {
-            Type t = el.getType();
-            do {
-                Object value = toValue(t, cursor.getCurrentNode());
-                l.add(value);
-            } while (cursor.nextSibling());
-        } else {
-            do {
-                JsonNode node = cursor.getCurrentNode();
-                if (node == null || node instanceof NullNode) {
-                    l.add(null);
-                } else {
-                    if (cursor.firstChild()) {
-                        l.add(objectToBson(cursor, md));
-                        cursor.parent();
-                    } else {
-                        l.add(null);
-                    }
-                }
-            } while (cursor.nextSibling());
-        }
-        return l;
-    }
-
 }
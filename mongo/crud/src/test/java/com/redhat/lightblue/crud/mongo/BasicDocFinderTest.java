@@ -24,6 +24,7 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import com.redhat.lightblue.crud.CRUDOperationContext;
+import com.redhat.lightblue.crud.CountMode;
 import com.redhat.lightblue.crud.Operation;
 import static com.redhat.lightblue.crud.mongo.AbstractMongoTest.coll;
 import com.redhat.lightblue.metadata.EntityMetadata;
@@ -83,6 +84,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null,
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 null,
                 // Long (from)
@@ -115,6 +118,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 mongoQuery,
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 null,
                 // Long (from)
@@ -144,6 +149,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null, // all
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 null,
                 // Long (from)
@@ -176,6 +183,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null, // all
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 sort,
                 // Long (from)
@@ -213,6 +222,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null, // all
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 sort,
                 // Long (from)
@@ -246,6 +257,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null, // all
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 null,
                 // Long (from)
@@ -282,6 +295,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null, // all
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 sort,
                 // Long (from)
@@ -319,6 +334,8 @@ public class BasicDocFinderTest extends AbstractMongoTest {
                 coll,
                 // DBObject (query)
                 null, // all
+                // DBObject (projection)
+                null,
                 // DBObject (sort)
                 sort,
                 // Long (from)
@@ -333,4 +350,57 @@ public class BasicDocFinderTest extends AbstractMongoTest {
         Assert.assertEquals(id + "2", ctx.getDocuments().get(0).getOutputDocument().get(new Path("_id")).asText());
         Assert.assertEquals(id + "3", ctx.getDocuments().get(1).getOutputDocument().get(new Path("_id")).asText());
     }
+
+    @Test
+    public void findCountNone() throws IOException, ProcessingException {
+        String id = "findCountNone";
+        insert("{_id:'%s',object_type:'test'}", id + "1");
+        insert("{_id:'%s',object_type:'test'}", id + "2");
+        insert("{_id:'%s',object_type:'test'}", id + "3");
+
+        ctx.setCountMode(CountMode.NONE);
+        BasicDocFinder finder = new BasicDocFinder(translator);
+
+        long count = finder.find(ctx, coll, null, null, null, null, null);
+
+        Assert.assertEquals("find count", 0, count);
+        Assert.assertEquals(3, ctx.getDocumentsWithoutErrors().size());
+    }
+
+    @Test
+    public void findCountEstimate() throws IOException, ProcessingException {
+        String id = "findCountEstimate";
+        insert("{_id:'%s',object_type:'test'}", id + "1");
+        insert("{_id:'%s',object_type:'test'}", id + "2");
+        insert("{_id:'%s',object_type:'test'}", id + "3");
+        insert("{_id:'%s',object_type:'test'}", id + "4");
+
+        ctx.setCountMode(CountMode.ESTIMATE);
+        // count up to 2 documents, or to the end of the requested range
+        BasicDocFinder finder = new BasicDocFinder(translator, 2);
+
+        DBObject mongoQuery = new BasicDBObject("object_type", "test");
+        DBObject sort = new BasicDBObject("_id", 1);
+
+        long count = finder.find(ctx, coll, mongoQuery, null, sort, 0l, 0l);
+        Assert.assertEquals("find count", 2, count);
+        Assert.assertEquals(1, ctx.getDocumentsWithoutErrors().size());
+    }
+
+    @Test
+    public void findCountEstimateEmptyQuery() throws IOException, ProcessingException {
+        String id = "findCountEstimateEmptyQuery";
+        insert("{_id:'%s',object_type:'test'}", id + "1");
+        insert("{_id:'%s',object_type:'test'}", id + "2");
+        insert("{_id:'%s',object_type:'test'}", id + "3");
+        insert("{_id:'%s',object_type:'test'}", id + "4");
+
+        ctx.setCountMode(CountMode.ESTIMATE);
+        BasicDocFinder finder = new BasicDocFinder(translator, 2);
+
+        // empty query uses the collection count
+        long count = finder.find(ctx, coll, null, null, new BasicDBObject("_id", 1), 0l, 0l);
+        Assert.assertEquals("find count", 4, count);
+        Assert.assertEquals(1, ctx.getDocumentsWithoutErrors().size());
+    }
 }
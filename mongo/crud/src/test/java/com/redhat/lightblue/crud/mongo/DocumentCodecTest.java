@@ -0,0 +1,198 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.crud.mongo;
+
+import java.util.List;
+
+import org.bson.BSONObject;
+import org.bson.BasicBSONDecoder;
+import org.bson.BasicBSONEncoder;
+import org.bson.BasicBSONObject;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.MetadataConstants;
+import com.redhat.lightblue.metadata.PredefinedFields;
+import com.redhat.lightblue.metadata.TypeResolver;
+import com.redhat.lightblue.metadata.mongo.MongoDataStoreParser;
+import com.redhat.lightblue.metadata.parser.Extensions;
+import com.redhat.lightblue.metadata.parser.JSONMetadataParser;
+import com.redhat.lightblue.metadata.types.DefaultTypes;
+import com.redhat.lightblue.util.Error;
+import com.redhat.lightblue.util.JsonUtils;
+import static com.redhat.lightblue.util.test.AbstractJsonNodeTest.loadJsonNode;
+
+public class DocumentCodecTest {
+
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(true);
+
+    private EntityMetadata md;
+
+    @Before
+    public void setup() throws Exception {
+        Extensions<JsonNode> extensions = new Extensions<>();
+        extensions.addDefaultExtensions();
+        extensions.registerDataStoreParser("mongo", new MongoDataStoreParser<JsonNode>());
+        TypeResolver resolver = new DefaultTypes();
+        JSONMetadataParser parser = new JSONMetadataParser(extensions, resolver, nodeFactory);
+        md = parser.parseEntityMetadata(loadJsonNode("./testMetadata.json"));
+        PredefinedFields.ensurePredefinedFields(md);
+    }
+
+    @Test
+    public void codecIsCachedPerMetadata() {
+        Assert.assertSame(DocumentCodec.getInstance(md), DocumentCodec.getInstance(md));
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        JsonNode doc = loadJsonNode("./testdata1.json");
+        DocumentCodec codec = DocumentCodec.getInstance(md);
+        BasicDBObject bson = codec.toBson(doc);
+
+        Assert.assertEquals("123.45", bson.get("field4"));
+        Assert.assertEquals(2, ((List) bson.get("field7")).size());
+        Assert.assertEquals("value1_1", ((DBObject) ((List) bson.get("field7")).get(1)).get("elemf1"));
+        Assert.assertEquals("value1", ((DBObject) ((DBObject) bson.get("field6")).get("nf7")).get("nnf1"));
+
+        ObjectNode json = codec.toJson(bson, nodeFactory);
+        Assert.assertEquals(123.45, json.get("field4").asDouble(), 0.0);
+        Assert.assertEquals(3, json.get("field6").get("nf7").get("nnf2").asInt());
+        Assert.assertEquals(5, json.get("field6").get("nf5").size());
+        Assert.assertEquals(2, json.get("field7").size());
+        Assert.assertEquals("value1_2", json.get("field7").get(1).get("elemf2").asText());
+    }
+
+    @Test
+    public void fieldsNotInMetadataAreNotTranslatedToJson() throws Exception {
+        BasicDBObject bson = new BasicDBObject("field1", "x").append("unknown", "y");
+        ObjectNode json = DocumentCodec.getInstance(md).toJson(bson, nodeFactory);
+        Assert.assertEquals("x", json.get("field1").asText());
+        Assert.assertNull(json.get("unknown"));
+    }
+
+    @Test
+    public void invalidField() throws Exception {
+        try {
+            DocumentCodec.getInstance(md).toBson(JsonUtils.json("{\"field7\":[{\"elemf1\":\"a\"},{\"unknown\":1}]}"));
+            Assert.fail();
+        } catch (Error e) {
+            Assert.assertEquals(Translator.ERR_INVALID_FIELD, e.getErrorCode());
+            Assert.assertEquals("field7.1.unknown", e.getMsg());
+        }
+    }
+
+    @Test
+    public void viewEqualsTranslation() throws Exception {
+        JsonNode doc = loadJsonNode("./testdata1.json");
+        DocumentCodec codec = DocumentCodec.getInstance(md);
+        BasicDBObject bson = codec.toBson(doc);
+        JsonDBObject view = codec.toDBObject((ObjectNode) doc);
+
+        Assert.assertEquals(bson.keySet(), view.keySet());
+        Assert.assertEquals(bson, view);
+        Assert.assertEquals(view, bson);
+    }
+
+    @Test
+    public void viewPutDoesNotModifyDocument() throws Exception {
+        ObjectNode doc = (ObjectNode) loadJsonNode("./testdata1.json");
+        JsonDBObject view = DocumentCodec.getInstance(md).toDBObject(doc);
+        view.put("field1", "changed");
+
+        Assert.assertEquals("changed", view.get("field1"));
+        Assert.assertEquals("f1", doc.get("field1").asText());
+        Assert.assertEquals("changed", view.toJson(nodeFactory).get("field1").asText());
+    }
+
+    @Test
+    public void viewValidation() throws Exception {
+        try {
+            DocumentCodec.getInstance(md).toDBObject((ObjectNode) JsonUtils.json("{\"field6\":{\"nf7\":{\"unknown\":1}}}"));
+            Assert.fail();
+        } catch (Error e) {
+            Assert.assertEquals(Translator.ERR_INVALID_FIELD, e.getErrorCode());
+            Assert.assertEquals("field6.nf7.unknown", e.getMsg());
+        }
+    }
+
+    @Test
+    public void viewValidatesValues() throws Exception {
+        DocumentCodec codec = DocumentCodec.getInstance(md);
+        try {
+            codec.toDBObject((ObjectNode) JsonUtils.json("{\"field3\":{\"x\":1}}"));
+            Assert.fail();
+        } catch (Error e) {
+            Assert.assertEquals(MetadataConstants.ERR_INCOMPATIBLE_VALUE, e.getErrorCode());
+        }
+        try {
+            codec.toDBObject((ObjectNode) JsonUtils.json("{\"field6\":{\"nf5\":[1,{\"x\":1}]}}"));
+            Assert.fail();
+        } catch (Error e) {
+            Assert.assertEquals(MetadataConstants.ERR_INCOMPATIBLE_VALUE, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void encodeView() throws Exception {
+        JsonNode doc = loadJsonNode("./testdata1.json");
+        DocumentCodec codec = DocumentCodec.getInstance(md);
+        JsonDBObject view = codec.toDBObject((ObjectNode) doc);
+        view.put("_id", new ObjectId());
+
+        BasicOutputBuffer buf = new BasicOutputBuffer();
+        new JsonDBEncoder().writeObject(buf, view);
+        BSONObject decoded = new BasicBSONDecoder().readObject(buf.toByteArray());
+
+        BasicDBObject bson = codec.toBson(doc);
+        bson.put("_id", view.get("_id"));
+        Assert.assertEquals("_id", decoded.keySet().iterator().next());
+        Assert.assertEquals(new BasicBSONObject(bson.toMap()), decoded);
+    }
+
+    @Test
+    public void decodeToJson() throws Exception {
+        JsonNode doc = loadJsonNode("./testdata1.json");
+        DocumentCodec codec = DocumentCodec.getInstance(md);
+        BasicDBObject bson = codec.toBson(doc);
+        bson.put("$err", "error");
+        bson.put("unknown", new BasicDBObject("x", 1));
+
+        DBObject decoded = new JsonDBDecoderFactory(codec, nodeFactory).create()
+                .decode(new BasicBSONEncoder().encode(bson), (DBCollection) null);
+
+        Assert.assertTrue(decoded instanceof JsonDBObject);
+        Assert.assertEquals("error", decoded.get("$err"));
+        Assert.assertNull(decoded.get("unknown"));
+        ObjectNode json = ((JsonDBObject) decoded).toJson(nodeFactory);
+        Assert.assertEquals(codec.toJson(bson, nodeFactory), json);
+        Assert.assertNull(json.get("$err"));
+        Assert.assertEquals(2, json.get("field7").size());
+    }
+}
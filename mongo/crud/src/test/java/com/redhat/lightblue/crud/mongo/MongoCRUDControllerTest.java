@@ -37,8 +37,10 @@ import com.redhat.lightblue.crud.CRUDUpdateResponse;
 import com.redhat.lightblue.crud.DocCtx;
 import com.redhat.lightblue.crud.Operation;
 import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.MetadataConstants;
 import com.redhat.lightblue.metadata.mongo.MongoDataStore;
 import com.redhat.lightblue.query.Projection;
+import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.JsonDoc;
 import com.redhat.lightblue.util.Path;
 
@@ -77,6 +79,88 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
         Assert.assertEquals(1, coll.find(new BasicDBObject("_id", new ObjectId(id))).count());
     }
 
+    @Test
+    public void insertBatchTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        coll.ensureIndex(new BasicDBObject("field1", 1), "field1_unique", true);
+        controller.setInsertBatchSize(2);
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        String[] values = {"a", "b", "a", "c", "b"};
+        for (String value : values) {
+            JsonDoc doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+            doc.modify(new Path("field1"), nodeFactory.textNode(value), false);
+            ctx.addDocument(doc);
+        }
+        CRUDInsertionResponse response = controller.insert(ctx, projection("{'field':'_id'}"));
+        Assert.assertEquals(3, response.getNumInserted());
+        Assert.assertEquals(3, coll.find(null).count());
+        boolean[] expectError = {false, false, true, false, true};
+        for (int i = 0; i < values.length; i++) {
+            DocCtx doc = ctx.getDocuments().get(i);
+            Assert.assertEquals(expectError[i], doc.hasErrors());
+            if (expectError[i]) {
+                Assert.assertEquals(MongoCrudConstants.ERR_DUPLICATE, doc.getErrors().get(0).getErrorCode());
+            } else {
+                Assert.assertEquals(Operation.INSERT, doc.getOperationPerformed());
+            }
+        }
+    }
+
+    @Test
+    public void insertBatchCallerIdTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        controller.setInsertBatchSize(2);
+        String id = new ObjectId().toString();
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        JsonDoc doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+        doc.modify(new Path("_id"), nodeFactory.textNode(id), false);
+        ctx.addDocument(doc);
+        Assert.assertEquals(1, controller.insert(ctx, projection("{'field':'_id'}")).getNumInserted());
+
+        // The same document again, between two documents without _id
+        ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        ctx.addDocument(new JsonDoc(loadJsonNode("./testdata1.json")));
+        doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+        doc.modify(new Path("_id"), nodeFactory.textNode(id), false);
+        ctx.addDocument(doc);
+        ctx.addDocument(new JsonDoc(loadJsonNode("./testdata1.json")));
+        CRUDInsertionResponse response = controller.insert(ctx, projection("{'field':'_id'}"));
+        Assert.assertEquals(2, response.getNumInserted());
+        Assert.assertEquals(3, coll.find(null).count());
+        Assert.assertEquals(Operation.INSERT, ctx.getDocuments().get(0).getOperationPerformed());
+        Assert.assertEquals(MongoCrudConstants.ERR_DUPLICATE, ctx.getDocuments().get(1).getErrors().get(0).getErrorCode());
+        Assert.assertNull(ctx.getDocuments().get(1).getOperationPerformed());
+        Assert.assertEquals(Operation.INSERT, ctx.getDocuments().get(2).getOperationPerformed());
+    }
+
+    @Test
+    public void insertBatchBadValueTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        controller.setInsertBatchSize(2);
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        ctx.addDocument(new JsonDoc(loadJsonNode("./testdata1.json")));
+        ctx.addDocument(new JsonDoc(loadJsonNode("./testdata1.json")));
+        JsonDoc doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+        doc.modify(new Path("field3"), nodeFactory.objectNode(), false);
+        ctx.addDocument(doc);
+        ctx.addDocument(new JsonDoc(loadJsonNode("./testdata1.json")));
+        // The third document fails validation before any document is queued
+        try {
+            controller.insert(ctx, projection("{'field':'_id'}"));
+            Assert.fail();
+        } catch (Error e) {
+            Assert.assertEquals(MetadataConstants.ERR_INCOMPATIBLE_VALUE, e.getErrorCode());
+        }
+        Assert.assertEquals(0, coll.find(null).count());
+        for (DocCtx d : ctx.getDocuments()) {
+            Assert.assertNull(d.getOperationPerformed());
+        }
+    }
+
     @Test
     public void saveTest() throws Exception {
         EntityMetadata md = getMd("./testMetadata.json");
@@ -116,6 +200,102 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
         Assert.assertEquals(ctx.getDocumentsWithoutErrors().size(), saveResponse.getNumSaved());
     }
 
+    @Test
+    public void saveBatchTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        controller.setSaveBatchSize(2);
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        for (int i = 0; i < 3; i++) {
+            ctx.addDocument(new JsonDoc(loadJsonNode("./testdata1.json")));
+        }
+        controller.insert(ctx, projection("{'field':'_id'}"));
+
+        ctx = new TestCRUDOperationContext(Operation.FIND);
+        ctx.add(md);
+        controller.find(ctx, query("{'field':'field1','op':'=','rvalue':'f1'}"),
+                projection("{'field':'*','recursive':1}"), null, null, null);
+        List<JsonDoc> readDocs = new ArrayList<>();
+        for (DocCtx doc : ctx.getDocuments()) {
+            doc.modify(new Path("field1"), nodeFactory.textNode("saved"), false);
+            readDocs.add(doc);
+        }
+        Assert.assertEquals(3, readDocs.size());
+
+        // Save them back, and add a new doc without _id
+        ctx = new TestCRUDOperationContext(Operation.SAVE);
+        ctx.add(md);
+        ctx.addDocuments(readDocs);
+        JsonDoc newDoc = new JsonDoc(loadJsonNode("./testdata1.json"));
+        newDoc.modify(new Path("field1"), nodeFactory.textNode("saved"), false);
+        ctx.addDocument(newDoc);
+        CRUDSaveResponse saveResponse = controller.save(ctx, true, projection("{'field':'_id'}"));
+        Assert.assertEquals(4, saveResponse.getNumSaved());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(Operation.UPDATE, ctx.getDocuments().get(i).getOperationPerformed());
+        }
+        Assert.assertEquals(Operation.INSERT, ctx.getDocuments().get(3).getOperationPerformed());
+        Assert.assertEquals(4, coll.find(new BasicDBObject("field1", "saved")).count());
+    }
+
+    @Test
+    public void saveBatchRepeatedIdTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        controller.setSaveBatchSize(3);
+        String id = new ObjectId().toString();
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.SAVE);
+        ctx.add(md);
+        String[] values = {"first", "second"};
+        for (String value : values) {
+            JsonDoc doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+            doc.modify(new Path("_id"), nodeFactory.textNode(id), false);
+            doc.modify(new Path("field1"), nodeFactory.textNode(value), false);
+            ctx.addDocument(doc);
+        }
+        // A new _id saved twice in one request is inserted, and then updated
+        CRUDSaveResponse saveResponse = controller.save(ctx, true, projection("{'field':'_id'}"));
+        Assert.assertEquals(2, saveResponse.getNumSaved());
+        Assert.assertEquals(Operation.INSERT, ctx.getDocuments().get(0).getOperationPerformed());
+        Assert.assertEquals(Operation.UPDATE, ctx.getDocuments().get(1).getOperationPerformed());
+        Assert.assertEquals(1, coll.find(null).count());
+        Assert.assertEquals("second", coll.findOne(new BasicDBObject("_id", new ObjectId(id))).get("field1"));
+    }
+
+    @Test
+    public void saveBatchRepeatedExistingIdTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        controller.setSaveBatchSize(5);
+        String id = new ObjectId().toString();
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        JsonDoc doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+        doc.modify(new Path("_id"), nodeFactory.textNode(id), false);
+        doc.modify(new Path("field1"), nodeFactory.textNode("original"), false);
+        ctx.addDocument(doc);
+        Assert.assertEquals(1, controller.insert(ctx, projection("{'field':'_id'}")).getNumInserted());
+
+        ctx = new TestCRUDOperationContext(Operation.SAVE);
+        ctx.add(md);
+        String[] values = {"first", "second", "third"};
+        for (String value : values) {
+            doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+            doc.modify(new Path("_id"), nodeFactory.textNode(id), false);
+            doc.modify(new Path("field1"), nodeFactory.textNode(value), false);
+            ctx.addDocument(doc);
+        }
+        // Each copy is checked against the version saved by the one before it
+        CRUDSaveResponse saveResponse = controller.save(ctx, false, projection("{'field':'_id'}"));
+        Assert.assertEquals(3, saveResponse.getNumSaved());
+        String[] originals = {"original", "first", "second"};
+        for (int i = 0; i < originals.length; i++) {
+            DocCtx saved = ctx.getDocuments().get(i);
+            Assert.assertEquals(Operation.UPDATE, saved.getOperationPerformed());
+            Assert.assertEquals(originals[i], saved.getOriginalDocument().get(new Path("field1")).asText());
+        }
+        Assert.assertEquals(1, coll.find(null).count());
+        Assert.assertEquals("third", coll.findOne(new BasicDBObject("_id", new ObjectId(id))).get("field1"));
+    }
+
     @Test
     public void upsertTest() throws Exception {
         EntityMetadata md = getMd("./testMetadata.json");
@@ -177,7 +357,7 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
                 projection("{'field':'_id'}"));
         Assert.assertEquals(1, upd.getNumUpdated());
         Assert.assertEquals(0, upd.getNumFailed());
-        Assert.assertEquals(AtomicIterateUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
+        Assert.assertEquals(AtomicBatchUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
         DBObject obj = coll.find(new BasicDBObject("field3", 1000), new BasicDBObject("_id", 1)).next();
         Assert.assertNotNull(obj);
         System.out.println("DBObject:" + obj);
@@ -186,15 +366,21 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
                 obj.get("_id").toString());
         Assert.assertEquals(1, coll.find(new BasicDBObject("field3", 1000)).count());
 
-        // Bulk update
+        // Bulk update, in batches of 3
+        controller.setUpdateBatchSize(3);
         ctx = new TestCRUDOperationContext(Operation.UPDATE);
         ctx.add(md);
         upd = controller.update(ctx, query("{'field':'field3','op':'>','rvalue':10}"),
                 update("{ '$set': { 'field3' : 1000 } }"),
                 projection("{'field':'_id'}"));
-        Assert.assertEquals(AtomicIterateUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
+        Assert.assertEquals(AtomicBatchUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
         Assert.assertEquals(10, upd.getNumUpdated());
         Assert.assertEquals(0, upd.getNumFailed());
+        Assert.assertEquals(10, ctx.getDocuments().size());
+        for (DocCtx doc : ctx.getDocuments()) {
+            Assert.assertEquals(Operation.UPDATE, doc.getOperationPerformed());
+            Assert.assertNotNull(doc.getOutputDocument().get(new Path("_id")));
+        }
         Assert.assertEquals(10, coll.find(new BasicDBObject("field3", new BasicDBObject("$gt", 10))).count());
 
         // Bulk direct update
@@ -202,7 +388,7 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
         ctx.add(md);
         upd = controller.update(ctx, query("{'field':'field3','op':'>','rvalue':10}"),
                 update("{ '$set': { 'field3' : 1000 } }"), null);
-        Assert.assertEquals(AtomicIterateUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
+        Assert.assertEquals(AtomicMultiUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
         Assert.assertEquals(10, upd.getNumUpdated());
         Assert.assertEquals(0, upd.getNumFailed());
         Assert.assertEquals(10, coll.find(new BasicDBObject("field3", new BasicDBObject("$gt", 10))).count());
@@ -219,6 +405,55 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
         Assert.assertEquals(10, coll.find(new BasicDBObject("field7.0.elemf1", "blah")).count());
     }
 
+    @Test
+    public void updateBatchPartialFailureTest() throws Exception {
+        EntityMetadata md = getMd("./testMetadata.json");
+        TestCRUDOperationContext ctx = new TestCRUDOperationContext(Operation.INSERT);
+        ctx.add(md);
+        for (int i = 0; i < 5; i++) {
+            JsonDoc doc = new JsonDoc(loadJsonNode("./testdata1.json"));
+            doc.modify(new Path("field1"), nodeFactory.textNode("doc" + i), false);
+            doc.modify(new Path("field3"), nodeFactory.numberNode(i), false);
+            ctx.addDocument(doc);
+        }
+        controller.insert(ctx, projection("{'field':'_id'}"));
+        coll.ensureIndex(new BasicDBObject("field1", 1), new BasicDBObject("unique", true));
+
+        // The multi-document update stops at the second document with a duplicate key
+        controller.setUpdateBatchSize(5);
+        ctx = new TestCRUDOperationContext(Operation.UPDATE);
+        ctx.add(md);
+        CRUDUpdateResponse upd = controller.update(ctx, query("{'field':'field3','op':'>=','rvalue':0}"),
+                update("{ '$set': { 'field1' : 'same' } }"),
+                projection("{'field':'field1'}"));
+        Assert.assertEquals(AtomicBatchUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
+        Assert.assertEquals(1, upd.getNumUpdated());
+        Assert.assertEquals(4, upd.getNumFailed());
+        Assert.assertEquals(5, ctx.getDocuments().size());
+        int updated = 0;
+        for (DocCtx doc : ctx.getDocuments()) {
+            if (doc.getOperationPerformed() == Operation.UPDATE) {
+                updated++;
+                Assert.assertFalse(doc.hasErrors());
+                Assert.assertEquals("same", doc.getOutputDocument().get(new Path("field1")).asText());
+            } else {
+                Assert.assertEquals(MongoCrudConstants.ERR_UPDATE_ERROR, doc.getErrors().get(0).getErrorCode());
+            }
+        }
+        Assert.assertEquals(1, updated);
+        Assert.assertEquals(1, coll.find(new BasicDBObject("field1", "same")).count());
+
+        // Without projection, a single multi-document update reports what the server did
+        ctx = new TestCRUDOperationContext(Operation.UPDATE);
+        ctx.add(md);
+        upd = controller.update(ctx, query("{'field':'field3','op':'>=','rvalue':0}"),
+                update("{ '$set': { 'field1' : 'other' } }"), null);
+        Assert.assertEquals(AtomicMultiUpdate.class, ctx.getProperty(MongoCRUDController.PROP_UPDATER).getClass());
+        Assert.assertTrue(ctx.hasErrors());
+        Assert.assertEquals(1, upd.getNumFailed());
+        Assert.assertEquals(coll.find(new BasicDBObject("field1", "other")).count(), upd.getNumUpdated());
+    }
+
     @Test
     public void sortAndPageTest() throws Exception {
         EntityMetadata md = getMd("./testMetadata.json");
@@ -296,7 +531,23 @@ public class MongoCRUDControllerTest extends AbstractMongoTest {
         ctx = new TestCRUDOperationContext(Operation.DELETE);
         ctx.add(md);
         del = controller.delete(ctx, query("{'field':'field3','op':'>','rvalue':10}"));
+        Assert.assertEquals(BasicDocDeleter.class, ctx.getProperty(MongoCRUDController.PROP_DELETER).getClass());
         Assert.assertEquals(9, del.getNumDeleted());
         Assert.assertEquals(10, coll.find(null).count());
+
+        // Batch delete keeps the deleted documents for the hooks
+        ctx = new TestCRUDOperationContext(Operation.DELETE);
+        ctx.add(md);
+        BatchDeleter deleter = new BatchDeleter(new Translator(ctx, nodeFactory), 3);
+        DBObject mongoQuery = new BasicDBObject("field3", new BasicDBObject("$lt", 5));
+        del = new CRUDDeleteResponse();
+        deleter.delete(ctx, coll, mongoQuery, del);
+        Assert.assertEquals(5, del.getNumDeleted());
+        Assert.assertFalse(ctx.hasErrors());
+        Assert.assertEquals(5, ctx.getDocuments().size());
+        for (DocCtx doc : ctx.getDocuments()) {
+            Assert.assertEquals(Operation.DELETE, doc.getOperationPerformed());
+        }
+        Assert.assertEquals(5, coll.find(null).count());
     }
 }
@@ -173,4 +173,49 @@ public class TranslatorTest extends AbstractMongoTest {
 
         Assert.assertNotNull(mongoUpdateExpr);
     }
+
+    @Test
+    public void translateProjectionFields() throws Exception {
+        DBObject fields = translator.translate(projection("[{'field':'field1'},{'field':'field7.*.elemf1'},{'field':'field2','include':false}]"),
+                query("{'field':'field3','op':'>=','rvalue':0}"));
+
+        Assert.assertEquals(1, fields.get("field1"));
+        Assert.assertEquals(1, fields.get("field7.elemf1"));
+        Assert.assertEquals(1, fields.get("field3"));
+        Assert.assertEquals(1, fields.get(Translator.OBJECT_TYPE_STR));
+        Assert.assertFalse(fields.containsField("field2"));
+    }
+
+    @Test
+    public void translateProjectionNestedFieldsCollapsed() throws Exception {
+        DBObject fields = translator.translate(projection("[{'field':'field6','recursive':true},{'field':'field6.nf1'}]"),
+                query("{'field':'field6.nf2','op':'=','rvalue':'x'}"));
+
+        Assert.assertEquals(1, fields.get("field6"));
+        Assert.assertFalse(fields.containsField("field6.nf1"));
+        Assert.assertFalse(fields.containsField("field6.nf2"));
+    }
+
+    @Test
+    public void translateProjectionArraySlice() throws Exception {
+        DBObject fields = translator.translate(projection("{'field':'field7','range':[1,2],'project':{'field':'*'}}"),
+                query("{'field':'field1','op':'=','rvalue':'x'}"));
+
+        Assert.assertEquals(3, ((DBObject) fields.get("field7")).get("$slice"));
+        Assert.assertEquals(1, fields.get("field1"));
+    }
+
+    @Test
+    public void translateProjectionArraySliceWithQueriedArray() throws Exception {
+        DBObject fields = translator.translate(projection("{'field':'field7','range':[1,2],'project':{'field':'*'}}"),
+                query("{'array':'field7','elemMatch':{'field':'elemf1','op':'=','rvalue':'x'}}"));
+
+        Assert.assertEquals(1, fields.get("field7"));
+    }
+
+    @Test
+    public void translateProjectionAll() throws Exception {
+        Assert.assertNull(translator.translate(projection("{'field':'*','recursive':true}"),
+                query("{'field':'field1','op':'=','rvalue':'x'}")));
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.redhat.lightblue.metadata.Index;
+import com.redhat.lightblue.metadata.IndexReport;
+import com.redhat.lightblue.util.Path;
+
+/**
+ * Creates the indexes declared in entity metadata in a MongoDB collection, and compares the declared indexes with the
+ * indexes of a collection. Indexes are compared by their keys and uniqueness, index names are not significant. All
+ * index fields are ascending, and array elements (*) are dropped from the field names, since MongoDB indexes all the
+ * elements of an array.
+ */
+public class MongoIndexManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    private static final String ID_INDEX = "_id_";
+    private static final String LITERAL_KEY = "key";
+    private static final String LITERAL_NAME = "name";
+    private static final String LITERAL_UNIQUE = "unique";
+    private static final String LITERAL_BACKGROUND = "background";
+
+    private final boolean background;
+
+    /**
+     * Constructs an index manager
+     *
+     * @param background If true, indexes are built in the background, so the collection remains available for reads
+     * and writes while the index is built
+     */
+    public MongoIndexManager(boolean background) {
+        this.background = background;
+    }
+
+    /**
+     * Returns if indexes are built in the background
+     */
+    public boolean isBackground() {
+        return background;
+    }
+
+    /**
+     * Returns the MongoDB index keys for an index
+     */
+    public static DBObject getKeys(Index index) {
+        BasicDBObject keys = new BasicDBObject();
+        for (Path field : index.getFields()) {
+            keys.put(toMongoField(field), 1);
+        }
+        return keys;
+    }
+
+    /**
+     * Creates the indexes that do not exist in the collection
+     */
+    public void ensureIndexes(DBCollection collection, List<Index> indexes) {
+        for (Index index : indexes) {
+            if (!index.getFields().isEmpty()) {
+                BasicDBObject options = new BasicDBObject(LITERAL_UNIQUE, index.isUnique());
+                if (index.getName() != null) {
+                    options.put(LITERAL_NAME, index.getName());
+                }
+                if (background) {
+                    options.put(LITERAL_BACKGROUND, true);
+                }
+                DBObject keys = getKeys(index);
+                LOGGER.debug("Ensuring index {} {} on {}", keys, options, collection.getName());
+                collection.ensureIndex(keys, options);
+            }
+        }
+    }
+
+    /**
+     * Compares the declared indexes with the indexes of the collection. The _id index is ignored.
+     */
+    public IndexReport compare(String entityName, DBCollection collection, List<Index> indexes) {
+        IndexReport report = new IndexReport(entityName);
+        List<DBObject> existing = new ArrayList<>();
+        for (DBObject info : collection.getIndexInfo()) {
+            if (!ID_INDEX.equals(info.get(LITERAL_NAME))) {
+                existing.add(info);
+            }
+        }
+        List<DBObject> matched = new ArrayList<>();
+        for (Index index : indexes) {
+            DBObject info = find(existing, index);
+            if (info == null) {
+                report.getMissing().add(index);
+            } else {
+                matched.add(info);
+            }
+        }
+        for (DBObject info : existing) {
+            if (!matched.contains(info)) {
+                report.getExtra().add(toIndex(info));
+            }
+        }
+        return report;
+    }
+
+    private static DBObject find(List<DBObject> existing, Index index) {
+        List<String> keys = new ArrayList<>(getKeys(index).keySet());
+        for (DBObject info : existing) {
+            DBObject infoKeys = (DBObject) info.get(LITERAL_KEY);
+            if (infoKeys != null
+                    && keys.equals(new ArrayList<>(infoKeys.keySet()))
+                    && index.isUnique() == isUnique(info)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUnique(DBObject info) {
+        Object unique = info.get(LITERAL_UNIQUE);
+        return unique instanceof Boolean && (Boolean) unique;
+    }
+
+    private static Index toIndex(DBObject info) {
+        Index index = new Index();
+        index.setName((String) info.get(LITERAL_NAME));
+        index.setUnique(isUnique(info));
+        List<Path> fields = new ArrayList<>();
+        DBObject keys = (DBObject) info.get(LITERAL_KEY);
+        if (keys != null) {
+            for (String key : keys.keySet()) {
+                fields.add(new Path(key));
+            }
+        }
+        index.setFields(fields);
+        return index;
+    }
+
+    private static String toMongoField(Path field) {
+        StringBuilder str = new StringBuilder();
+        int n = field.numSegments();
+        for (int i = 0; i < n; i++) {
+            String seg = field.head(i);
+            if (!Path.ANY.equals(seg)) {
+                if (str.length() > 0) {
+                    str.append('.');
+                }
+                str.append(seg);
+            }
+        }
+        return str.toString();
+    }
+}
@@ -22,6 +22,8 @@ import java.util.Date;
 import java.util.List;
 
 import org.bson.BSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
@@ -35,7 +37,10 @@ import com.redhat.lightblue.metadata.DataStore;
 import com.redhat.lightblue.metadata.EntityInfo;
 import com.redhat.lightblue.metadata.EntityMetadata;
 import com.redhat.lightblue.metadata.EntitySchema;
+import com.redhat.lightblue.metadata.IndexReport;
+import com.redhat.lightblue.metadata.IndexReporter;
 import com.redhat.lightblue.metadata.Metadata;
+import com.redhat.lightblue.metadata.MetadataChangeCounter;
 import com.redhat.lightblue.metadata.MetadataStatus;
 import com.redhat.lightblue.metadata.PredefinedFields;
 import com.redhat.lightblue.metadata.StatusChange;
@@ -44,25 +49,39 @@ import com.redhat.lightblue.metadata.Version;
 import com.redhat.lightblue.metadata.parser.Extensions;
 import com.redhat.lightblue.util.Error;
 
-public class MongoMetadata implements Metadata {
+public class MongoMetadata implements Metadata, MetadataChangeCounter, IndexReporter {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoMetadata.class);
+
     public static final String DEFAULT_METADATA_COLLECTION = "metadata";
 
     private static final String LITERAL_ID = "_id";
     private static final String LITERAL_ENTITY_NAME = "entityName";
     private static final String LITERAL_VERSION = "version";
     private static final String LITERAL_NAME = "name";
+    private static final String LITERAL_VALUE = "value";
+
+    /**
+     * _id of the document in the metadata collection that counts metadata changes. It contains the delimiter, but no
+     * entity name, so it cannot collide with entity info or schema documents.
+     */
+    private static final String CHANGE_COUNTER_ID = BSONParser.DELIMITER_ID + "changeCounter";
+
+    private final transient DB db;
 
     private final transient DBCollection collection;
 
     private final transient BSONParser mdParser;
 
+    private transient MongoIndexManager indexManager = new MongoIndexManager(false);
+
     public MongoMetadata(DB db,
                          String metadataCollection,
                          Extensions<BSONObject> parserExtensions,
                          TypeResolver typeResolver) {
+        this.db = db;
         this.collection = db.getCollection(metadataCollection);
         this.mdParser = new BSONParser(parserExtensions, typeResolver);
     }
@@ -83,7 +102,7 @@ public class MongoMetadata implements Metadata {
             throw new IllegalArgumentException(LITERAL_VERSION);
         }
 
-        Error.push("getEntityMetadata(" + entityName + ":" + version + ")");
+        Error.push("getEntityMetadata", entityName, version);
         try {
             EntityInfo info = getEntityInfo(entityName);
             EntitySchema schema;
@@ -121,7 +140,7 @@ public class MongoMetadata implements Metadata {
             throw new IllegalArgumentException(LITERAL_ENTITY_NAME);
         }
 
-        Error.push("getEntityInfo(" + entityName + ")");
+        Error.push("getEntityInfo", entityName);
         try {
             BasicDBObject query = new BasicDBObject(LITERAL_ID, entityName + BSONParser.DELIMITER_ID);
             DBObject ei = collection.findOne(query);
@@ -157,7 +176,7 @@ public class MongoMetadata implements Metadata {
         if (entityName == null || entityName.length() == 0) {
             throw new IllegalArgumentException(LITERAL_ENTITY_NAME);
         }
-        Error.push("getEntityVersions(" + entityName + ")");
+        Error.push("getEntityVersions", entityName);
         try {
             // query by name but only return documents that have a version
             BasicDBObject query = new BasicDBObject(LITERAL_NAME, entityName)
@@ -186,7 +205,7 @@ public class MongoMetadata implements Metadata {
         checkDataStoreIsValid(md);
         Version ver = checkVersionIsValid(md);
 
-        Error.push("createNewMetadata(" + md.getName() + ")");
+        Error.push("createNewMetadata", md.getName());
 
         // write info and schema as separate docs!
         try {
@@ -215,18 +234,92 @@ public class MongoMetadata implements Metadata {
                     cleanup(infoObj.get(LITERAL_ID), schemaObj.get(LITERAL_ID));
                     throw Error.get(MongoMetadataConstants.ERR_DB_ERROR, error);
                 }
+                incrementChangeCount();
             } catch (MongoException.DuplicateKey dke) {
                 cleanup(infoObj.get(LITERAL_ID), schemaObj.get(LITERAL_ID));
                 throw Error.get(MongoMetadataConstants.ERR_DUPLICATE_METADATA, ver.getValue());
             } finally {
                 Error.pop();
             }
+            ensureIndexes(md.getEntityInfo());
 
         } finally {
             Error.pop();
         }
     }
 
+    /**
+     * If true, the indexes declared in metadata are built in the background
+     */
+    public boolean isBackgroundIndexBuild() {
+        return indexManager.isBackground();
+    }
+
+    /**
+     * If true, the indexes declared in metadata are built in the background
+     */
+    public void setBackgroundIndexBuild(boolean b) {
+        indexManager = new MongoIndexManager(b);
+    }
+
+    /**
+     * Compares the indexes declared in the entity info with the indexes of the entity collection
+     */
+    @Override
+    public IndexReport getIndexReport(String entityName) {
+        Error.push("getIndexReport", entityName);
+        try {
+            EntityInfo info = getEntityInfo(entityName);
+            if (info == null) {
+                throw Error.get(MongoMetadataConstants.ERR_MISSING_ENTITY_INFO, entityName);
+            }
+            return indexManager.compare(entityName, getEntityCollection(info), info.getIndexes().getIndexes());
+        } finally {
+            Error.pop();
+        }
+    }
+
+    /**
+     * Creates the indexes declared in the entity info that do not exist in the entity collection. Metadata is already
+     * written when this is called, so an index that cannot be built is logged, and reported as missing by
+     * getIndexReport.
+     */
+    private void ensureIndexes(EntityInfo info) {
+        if (info.getDataStore() instanceof MongoDataStore && !info.getIndexes().isEmpty()) {
+            try {
+                indexManager.ensureIndexes(getEntityCollection(info), info.getIndexes().getIndexes());
+            } catch (MongoException e) {
+                LOGGER.error("Cannot create indexes for {}: {}", info.getName(), e.toString());
+            }
+        }
+    }
+
+    private DBCollection getEntityCollection(EntityInfo info) {
+        return db.getCollection(((MongoDataStore) info.getDataStore()).getCollectionName());
+    }
+
+    /**
+     * Returns the metadata change counter. The counter is incremented whenever metadata is written through any
+     * MongoMetadata instance using the same collection.
+     */
+    @Override
+    public long getMetadataChangeCount() {
+        DBObject counter = collection.findOne(new BasicDBObject(LITERAL_ID, CHANGE_COUNTER_ID));
+        if (counter != null) {
+            Object value = counter.get(LITERAL_VALUE);
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+        }
+        return 0;
+    }
+
+    private void incrementChangeCount() {
+        collection.update(new BasicDBObject(LITERAL_ID, CHANGE_COUNTER_ID),
+                new BasicDBObject("$inc", new BasicDBObject(LITERAL_VALUE, 1l)),
+                true, false);
+    }
+
     private void cleanup(Object... ids) {
         for (Object id : ids) {
             if (id != null) {
@@ -250,7 +343,7 @@ public class MongoMetadata implements Metadata {
         checkDataStoreIsValid(md);
         Version ver = checkVersionIsValid(md);
 
-        Error.push("createNewSchema(" + md.getName() + ")");
+        Error.push("createNewSchema", md.getName());
 
         try {
             // verify entity info exists
@@ -268,6 +361,8 @@ public class MongoMetadata implements Metadata {
             if (error != null) {
                 throw Error.get(MongoMetadataConstants.ERR_DB_ERROR, error);
             }
+            incrementChangeCount();
+            ensureIndexes(info);
 
         } catch (MongoException.DuplicateKey dke) {
             throw Error.get(MongoMetadataConstants.ERR_DUPLICATE_METADATA, ver.getValue());
@@ -322,7 +417,7 @@ public class MongoMetadata implements Metadata {
             throw new IllegalArgumentException(MongoMetadataConstants.ERR_NEW_STATUS_IS_NULL);
         }
         BasicDBObject query = new BasicDBObject(LITERAL_ID, entityName + BSONParser.DELIMITER_ID + version);
-        Error.push("setMetadataStatus(" + entityName + ":" + version + ")");
+        Error.push("setMetadataStatus", entityName, version);
         try {
             DBObject md = collection.findOne(query);
             if (md == null) {
@@ -348,6 +443,7 @@ public class MongoMetadata implements Metadata {
             if (error != null) {
                 throw Error.get(MongoMetadataConstants.ERR_DB_ERROR, error);
             }
+            incrementChangeCount();
         } finally {
             Error.pop();
         }
@@ -0,0 +1,95 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mongodb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A collection that keeps index information in memory, and records the indexes created through it. Any other
+ * operation fails. It is in the com.mongodb package because DBCollection has package private abstract methods.
+ */
+public class MockDBCollection extends DBCollection {
+
+    private final List<DBObject> indexInfo = new ArrayList<>();
+    private final List<DBObject[]> createdIndexes = new ArrayList<>();
+
+    /**
+     * Creates a collection of the given db. The db is only used for its name, it is never connected.
+     */
+    public MockDBCollection(DB db, String name) {
+        super(db, name);
+    }
+
+    /**
+     * Adds an index to the index information returned by getIndexInfo()
+     */
+    public void addIndexInfo(DBObject info) {
+        indexInfo.add(info);
+    }
+
+    /**
+     * Returns the keys and options of the indexes created, in the order they are created
+     */
+    public List<DBObject[]> getCreatedIndexes() {
+        return createdIndexes;
+    }
+
+    @Override
+    public List<DBObject> getIndexInfo() {
+        return indexInfo;
+    }
+
+    @Override
+    public void createIndex(DBObject keys, DBObject options, DBEncoder encoder) {
+        createdIndexes.add(new DBObject[]{keys, options});
+    }
+
+    @Override
+    public WriteResult insert(List<DBObject> list, WriteConcern concern, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WriteResult update(DBObject q, DBObject o, boolean upsert, boolean multi, WriteConcern concern, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void doapply(DBObject o) {
+    }
+
+    @Override
+    public WriteResult remove(DBObject o, WriteConcern concern, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    Iterator<DBObject> __find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options,
+                              ReadPreference readPref, DBDecoder decoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    Iterator<DBObject> __find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options,
+                              ReadPreference readPref, DBDecoder decoder, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.metadata.mongo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MockDBCollection;
+import com.mongodb.MongoClient;
+import com.redhat.lightblue.metadata.Index;
+import com.redhat.lightblue.metadata.IndexReport;
+import com.redhat.lightblue.util.Path;
+
+public class MongoIndexManagerTest {
+
+    // Never connected, only used to construct the mock collections
+    private static MongoClient client;
+
+    private MockDBCollection coll;
+
+    @BeforeClass
+    public static void createClient() throws Exception {
+        client = new MongoClient("localhost");
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Before
+    public void setup() {
+        DB db = client.getDB("test");
+        coll = new MockDBCollection(db, "entity");
+        coll.addIndexInfo(indexInfo("_id_", false, "_id"));
+    }
+
+    private static Index index(String name, boolean unique, String... fields) {
+        Index index = new Index();
+        index.setName(name);
+        index.setUnique(unique);
+        List<Path> paths = new ArrayList<>();
+        for (String field : fields) {
+            paths.add(new Path(field));
+        }
+        index.setFields(paths);
+        return index;
+    }
+
+    private static DBObject indexInfo(String name, boolean unique, String... fields) {
+        BasicDBObject keys = new BasicDBObject();
+        for (String field : fields) {
+            keys.put(field, 1);
+        }
+        BasicDBObject info = new BasicDBObject("key", keys).append("name", name);
+        if (unique) {
+            info.put("unique", true);
+        }
+        return info;
+    }
+
+    @Test
+    public void testGetKeys() {
+        Index index = new Index();
+        index.setFields(Arrays.asList(new Path("lastName"), new Path("addresses.*.city"), new Path("firstName")));
+        DBObject keys = MongoIndexManager.getKeys(index);
+
+        Iterator<String> itr = keys.keySet().iterator();
+        Assert.assertEquals("lastName", itr.next());
+        Assert.assertEquals("addresses.city", itr.next());
+        Assert.assertEquals("firstName", itr.next());
+        Assert.assertFalse(itr.hasNext());
+        Assert.assertEquals(1, keys.get("lastName"));
+    }
+
+    @Test
+    public void testGetKeysEmpty() {
+        Index index = new Index();
+        index.setFields(new ArrayList<Path>());
+        Assert.assertTrue(MongoIndexManager.getKeys(index).keySet().isEmpty());
+    }
+
+    @Test
+    public void testCompareSame() {
+        coll.addIndexInfo(indexInfo("lastName_1_firstName_1", true, "lastName", "firstName"));
+        coll.addIndexInfo(indexInfo("city", false, "addresses.city"));
+        // Names are not significant
+        IndexReport report = new MongoIndexManager(false).compare("entity", coll,
+                Arrays.asList(index("name", true, "lastName", "firstName"), index(null, false, "addresses.*.city")));
+        Assert.assertTrue(report.isConsistent());
+        Assert.assertTrue(report.getMissing().isEmpty());
+        Assert.assertTrue(report.getExtra().isEmpty());
+    }
+
+    @Test
+    public void testCompareAdded() {
+        coll.addIndexInfo(indexInfo("lastName_1", false, "lastName"));
+        Index added = index("email", true, "email");
+        IndexReport report = new MongoIndexManager(false).compare("entity", coll,
+                Arrays.asList(index(null, false, "lastName"), added));
+        Assert.assertFalse(report.isConsistent());
+        Assert.assertEquals(1, report.getMissing().size());
+        Assert.assertSame(added, report.getMissing().get(0));
+        Assert.assertTrue(report.getExtra().isEmpty());
+    }
+
+    @Test
+    public void testCompareDropped() {
+        coll.addIndexInfo(indexInfo("lastName_1", false, "lastName"));
+        coll.addIndexInfo(indexInfo("old", true, "login", "domain"));
+        IndexReport report = new MongoIndexManager(false).compare("entity", coll,
+                Arrays.asList(index(null, false, "lastName")));
+        Assert.assertFalse(report.isConsistent());
+        Assert.assertTrue(report.getMissing().isEmpty());
+        Assert.assertEquals(1, report.getExtra().size());
+        Index extra = report.getExtra().get(0);
+        Assert.assertEquals("old", extra.getName());
+        Assert.assertTrue(extra.isUnique());
+        Assert.assertEquals(Arrays.asList(new Path("login"), new Path("domain")), extra.getFields());
+    }
+
+    @Test
+    public void testCompareOptionsChanged() {
+        coll.addIndexInfo(indexInfo("lastName_1", false, "lastName"));
+        coll.addIndexInfo(indexInfo("a_1_b_1", false, "a", "b"));
+        // Uniqueness differs, and key order differs
+        Index unique = index(null, true, "lastName");
+        Index reordered = index(null, false, "b", "a");
+        IndexReport report = new MongoIndexManager(false).compare("entity", coll, Arrays.asList(unique, reordered));
+        Assert.assertEquals(Arrays.asList(unique, reordered), report.getMissing());
+        Assert.assertEquals(2, report.getExtra().size());
+        Assert.assertEquals("lastName_1", report.getExtra().get(0).getName());
+        Assert.assertFalse(report.getExtra().get(0).isUnique());
+        Assert.assertEquals("a_1_b_1", report.getExtra().get(1).getName());
+    }
+
+    @Test
+    public void testEnsureIndexes() {
+        new MongoIndexManager(false).ensureIndexes(coll,
+                Arrays.asList(index("name", true, "lastName", "firstName"),
+                        index(null, false, "addresses.*.city"),
+                        index("empty", false)));
+        List<DBObject[]> created = coll.getCreatedIndexes();
+        // The index without fields is not created
+        Assert.assertEquals(2, created.size());
+
+        Assert.assertEquals(new BasicDBObject("lastName", 1).append("firstName", 1), created.get(0)[0]);
+        Assert.assertEquals("name", created.get(0)[1].get("name"));
+        Assert.assertEquals(Boolean.TRUE, created.get(0)[1].get("unique"));
+        Assert.assertNull(created.get(0)[1].get("background"));
+
+        Assert.assertEquals(new BasicDBObject("addresses.city", 1), created.get(1)[0]);
+        Assert.assertEquals(Boolean.FALSE, created.get(1)[1].get("unique"));
+    }
+
+    @Test
+    public void testEnsureIndexesBackground() {
+        new MongoIndexManager(true).ensureIndexes(coll, Arrays.asList(index(null, false, "lastName")));
+        Assert.assertEquals(1, coll.getCreatedIndexes().size());
+        Assert.assertEquals(Boolean.TRUE, coll.getCreatedIndexes().get(0)[1].get("background"));
+    }
+}
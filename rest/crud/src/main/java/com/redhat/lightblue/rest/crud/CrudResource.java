@@ -18,16 +18,23 @@
  */
 package com.redhat.lightblue.rest.crud;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.redhat.lightblue.DeleteRequest;
 import com.redhat.lightblue.FindRequest;
+import com.redhat.lightblue.FindResponseWriter;
 import com.redhat.lightblue.InsertionRequest;
 import com.redhat.lightblue.Response;
 import com.redhat.lightblue.SaveRequest;
 import com.redhat.lightblue.UpdateRequest;
 import com.redhat.lightblue.crud.CrudManager;
+import com.redhat.lightblue.mediator.Mediator;
 import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.JsonUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.DELETE;
@@ -35,6 +42,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * Simple service to test out NewRelic custom metrics.
@@ -46,76 +54,150 @@ public class CrudResource {
 
     @GET
     @Path("/find")
-    public String find(String data) {
+    public StreamingOutput find(InputStream data) {
+        JsonNode response;
         try {
             Response r = CrudManager.getMediator().find(FindRequest.fromJson((ObjectNode) JsonUtils.json(data)));
-            return r.toJson().toString();
+            response = r.toJson();
         } catch (Error e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return e.toJson().toString();
+            response = e.toJson();
         } catch (Exception e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return Error.get(RestCrudConstants.ERR_REST_FIND).toJson().toString();
+            response = Error.get(RestCrudConstants.ERR_REST_FIND).toJson();
+        }
+        return output(response);
+    }
+
+    /**
+     * Streaming version of find. Documents are written to the output as they are read from the back end, so the
+     * complete result set is never held in memory.
+     */
+    @GET
+    @Path("/find/stream")
+    public StreamingOutput findStream(InputStream data) {
+        final JsonNode request;
+        try {
+            // The request body has to be read before the response starts
+            request = JsonUtils.json(data);
+        } catch (Exception e) {
+            Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
+            return output(Error.get(RestCrudConstants.ERR_REST_FIND).toJson());
+        }
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                JsonGenerator generator = JsonUtils.createGenerator(output);
+                FindResponseWriter writer = null;
+                try {
+                    FindRequest req = FindRequest.fromJson((ObjectNode) request);
+                    Mediator mediator = CrudManager.getMediator();
+                    writer = new FindResponseWriter(generator);
+                    writer.finish(mediator.find(req, writer));
+                } catch (Error e) {
+                    Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
+                    writeError(generator, writer, e);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
+                    writeError(generator, writer, Error.get(RestCrudConstants.ERR_REST_FIND));
+                } finally {
+                    generator.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the error as the response. If the response writer already started the response, the error is written
+     * through the writer, so that the open response is completed.
+     */
+    private static void writeError(JsonGenerator generator, FindResponseWriter writer, Error e) throws IOException {
+        if (writer == null) {
+            generator.writeTree(e.toJson());
+        } else {
+            writer.finish(e);
         }
     }
 
     @PUT
     @Path("/insert")
-    public String insert(String data) {
+    public StreamingOutput insert(InputStream data) {
+        JsonNode response;
         try {
             Response r = CrudManager.getMediator().insert(InsertionRequest.fromJson((ObjectNode) JsonUtils.json(data)));
-            return r.toJson().toString();
+            response = r.toJson();
         } catch (Error e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return e.toJson().toString();
+            response = e.toJson();
         } catch (Exception e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return Error.get(RestCrudConstants.ERR_REST_INSERT).toJson().toString();
+            response = Error.get(RestCrudConstants.ERR_REST_INSERT).toJson();
         }
+        return output(response);
     }
 
     @POST
     @Path("/update")
-    public String update(String data) {
+    public StreamingOutput update(InputStream data) {
+        JsonNode response;
         try {
             Response r = CrudManager.getMediator().update(UpdateRequest.fromJson((ObjectNode) JsonUtils.json(data)));
-            return r.toJson().toString();
+            response = r.toJson();
         } catch (Error e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return e.toJson().toString();
+            response = e.toJson();
         } catch (Exception e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return Error.get(RestCrudConstants.ERR_REST_UPDATE).toJson().toString();
+            response = Error.get(RestCrudConstants.ERR_REST_UPDATE).toJson();
         }
+        return output(response);
     }
 
     @PUT
     @Path("/save")
-    public String save(String data) {
+    public StreamingOutput save(InputStream data) {
+        JsonNode response;
         try {
             Response r = CrudManager.getMediator().save(SaveRequest.fromJson((ObjectNode) JsonUtils.json(data)));
-            return r.toJson().toString();
+            response = r.toJson();
         } catch (Error e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return e.toJson().toString();
+            response = e.toJson();
         } catch (Exception e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return Error.get(RestCrudConstants.ERR_REST_SAVE).toJson().toString();
+            response = Error.get(RestCrudConstants.ERR_REST_SAVE).toJson();
         }
+        return output(response);
     }
 
     @DELETE
     @Path("/delete")
-    public String delete(String data) {
+    public StreamingOutput delete(InputStream data) {
+        JsonNode response;
         try {
             Response r = CrudManager.getMediator().delete(DeleteRequest.fromJson((ObjectNode) JsonUtils.json(data)));
-            return r.toJson().toString();
+            response = r.toJson();
         } catch (Error e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return e.toJson().toString();
+            response = e.toJson();
         } catch (Exception e) {
             Logger.getLogger(CrudResource.class.getName()).log(Level.SEVERE, null, e);
-            return Error.get(RestCrudConstants.ERR_REST_DELETE).toJson().toString();
+            response = Error.get(RestCrudConstants.ERR_REST_DELETE).toJson();
         }
+        return output(response);
+    }
+
+    /**
+     * Writes the response tree directly to the response stream
+     */
+    private static StreamingOutput output(final JsonNode response) {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                JsonUtils.write(output, response);
+            }
+        };
     }
 }
@@ -7,6 +7,8 @@ package com.redhat.lightblue.rest.crud;
 
 import com.redhat.lightblue.crud.CrudConfiguration;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -53,7 +55,9 @@ public class ITCaseCrudResourceTest {
     @Test
     public void testFirstIntegrationTest() throws IOException {
         System.out.println("crudResource: " + cut);
-        System.out.println("crudResource find: " + cut.find("test"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cut.find(new ByteArrayInputStream("test".getBytes("UTF-8"))).write(out);
+        System.out.println("crudResource find: " + out.toString("UTF-8"));
 
     }
 
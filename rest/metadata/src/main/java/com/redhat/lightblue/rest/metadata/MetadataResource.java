@@ -20,11 +20,15 @@ package com.redhat.lightblue.rest.metadata;
 
 import com.google.gson.Gson;
 import com.redhat.lightblue.config.metadata.MetadataManager;
+import com.redhat.lightblue.metadata.CachingMetadata;
 import com.redhat.lightblue.metadata.EntityMetadata;
+import com.redhat.lightblue.metadata.IndexReporter;
+import com.redhat.lightblue.metadata.Metadata;
 import com.redhat.lightblue.metadata.MetadataStatus;
 import com.redhat.lightblue.metadata.Version;
 import com.redhat.lightblue.util.Error;
 import com.redhat.lightblue.util.JsonUtils;
+import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.GET;
@@ -107,6 +111,39 @@ public class MetadataResource {
         }
     }
 
+    /**
+     * Reports the indexes declared in the metadata of the entity that are missing from the entity collection, and the
+     * indexes of the collection that are not declared in metadata.
+     *
+     * @param entityName
+     * @return the index report
+     */
+    @GET
+    @Path("/{entity}/indexes")
+    public String getIndexReport(@PathParam(PATH_PARAM_ENTITY) String entityName) {
+        try {
+            if (entityName == null) {
+                throw Error.get(RestMetadataConstants.ERR_REST_ERROR, RestMetadataConstants.ERR_NO_ENTITY_NAME);
+            }
+
+            Metadata metadata = MetadataManager.getMetadata();
+            if (metadata instanceof CachingMetadata) {
+                metadata = ((CachingMetadata) metadata).getMetadata();
+            }
+            if (!(metadata instanceof IndexReporter)) {
+                throw Error.get(RestMetadataConstants.ERR_REST_ERROR, RestMetadataConstants.ERR_NO_INDEX_REPORT);
+            }
+
+            return ((IndexReporter) metadata).getIndexReport(entityName).toJson().toString();
+        } catch (Error e) {
+            Logger.getLogger(MetadataResource.class.getName()).log(Level.SEVERE, null, e);
+            return e.toJson().toString();
+        } catch (Exception e) {
+            Logger.getLogger(MetadataResource.class.getName()).log(Level.SEVERE, null, e);
+            return Error.get(RestMetadataConstants.ERR_REST_ERROR).toJson().toString();
+        }
+    }
+
     /**
      * Body is required metadata (json).
      *
@@ -117,7 +154,7 @@ public class MetadataResource {
      */
     @PUT
     @Path("/{entity}/{version}")
-    public String createMetadata(@PathParam(PATH_PARAM_ENTITY) String entityName, @PathParam(PATH_PARAM_VERSION) String entityVersion, String metadata) {
+    public String createMetadata(@PathParam(PATH_PARAM_ENTITY) String entityName, @PathParam(PATH_PARAM_VERSION) String entityVersion, InputStream metadata) {
         try {
             if (entityName == null) {
                 throw Error.get(RestMetadataConstants.ERR_REST_ERROR, RestMetadataConstants.ERR_NO_ENTITY_NAME);
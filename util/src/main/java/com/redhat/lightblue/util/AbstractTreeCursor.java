@@ -18,7 +18,8 @@
  */
 package com.redhat.lightblue.util;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An abstract cursor for traversing a tree of name-value pairs. The class parameter N denotes the node type of the
@@ -66,13 +67,21 @@ import java.util.LinkedList;
  * example, a <code>getCursor</code> call with node B as the argument should return a cursor that will return C and
  * D.</li>
  * </ul>
+ *
+ * The level states of the cursor are reused as the cursor moves up and down the tree, and implementations can reuse
+ * the child cursors by overriding <code>getCursor(N, KeyValueCursor)</code>. Together with
+ * <code>getCurrentPathView</code> and <code>accept</code>, this lets a caller walk a tree allocating in proportion to
+ * the depth of the tree, not the number of nodes.
  */
 public abstract class AbstractTreeCursor<N> {
 
     /**
-     * Iteration state for every level is kept in a stack.
+     * Iteration state for every level is kept in a stack. The first
+     * <code>depth</code> elements are in use, the rest are kept for reuse.
      */
-    private final LinkedList<LevelState<N>> stack = new LinkedList<>();
+    private final List<LevelState<N>> stack = new ArrayList<>();
+
+    private int depth = 0;
 
     /**
      * Current absolute path in tree
@@ -88,13 +97,8 @@ public abstract class AbstractTreeCursor<N> {
      * Keeps the node and the cursor for the level
      */
     private static final class LevelState<T> {
-        private final T node;
-        private final KeyValueCursor<String, T> cursor;
-
-        public LevelState(T node, KeyValueCursor<String, T> cursor) {
-            this.node = node;
-            this.cursor = cursor;
-        }
+        private T node;
+        private KeyValueCursor<String, T> cursor;
 
         public boolean hasNext() {
             return cursor.hasNext();
@@ -104,9 +108,9 @@ public abstract class AbstractTreeCursor<N> {
             cursor.next();
             T value = cursor.getCurrentValue();
             if (newLevel) {
-                path.push(cursor.getCurrentKey());
+                path.pushSegment(cursor.getCurrentKey());
             } else {
-                path.setLast(cursor.getCurrentKey());
+                path.setLastSegment(cursor.getCurrentKey());
             }
             return value;
         }
@@ -139,6 +143,14 @@ public abstract class AbstractTreeCursor<N> {
         return currentPath.immutableCopy();
     }
 
+    /**
+     * Get the current path the cursor is pointing to without copying it. The returned path is owned by the cursor,
+     * and changes as the cursor moves. It must not be modified or kept.
+     */
+    public Path getCurrentPathView() {
+        return currentPath;
+    }
+
     /**
      * Attempt to seek the cursor to the first child of the current node
      *
@@ -149,17 +161,23 @@ public abstract class AbstractTreeCursor<N> {
     public boolean firstChild() {
         // If currentNode==null, get the first child of TOS
         // If not null, push current state to stack, and get the first child of TOS
+        boolean pushed = false;
         if (currentNode != null) {
             if (hasChildren(currentNode)) {
                 pushNode(currentNode);
+                pushed = true;
             } else {
                 return false;
             }
         }
-        LevelState<N> tos = stack.peekLast();
+        LevelState<N> tos = stack.get(depth - 1);
         if (tos.hasNext()) {
             currentNode = tos.next(currentPath, true);
         } else {
+            // The node claimed to have children, but it has none
+            if (pushed) {
+                depth--;
+            }
             return false;
         }
         return true;
@@ -176,7 +194,7 @@ public abstract class AbstractTreeCursor<N> {
         // the parent node
         if (currentNode != null) {
             // If currentNode!=null, TOS exists
-            LevelState<N> tos = stack.peekLast();
+            LevelState<N> tos = stack.get(depth - 1);
             if (tos.hasNext()) {
                 currentNode = tos.next(currentPath, false);
                 return true;
@@ -192,10 +210,10 @@ public abstract class AbstractTreeCursor<N> {
      * seeks to the parent and returns true. Otherwise, returns false and cursor still points to the same node.
      */
     public boolean parent() {
-        if (stack.size() > 1) {
-            stack.removeLast();
+        if (depth > 1) {
+            depth--;
             currentPath.pop();
-            currentNode = stack.peekLast().node;
+            currentNode = stack.get(depth - 1).node;
             return true;
         }
         return false;
@@ -230,6 +248,43 @@ public abstract class AbstractTreeCursor<N> {
         return false;
     }
 
+    /**
+     * Walks the descendants of the current node depth-first, calling the visitor for each of them. If the cursor has
+     * not been moved yet, walks the whole tree. When the call returns, the cursor points to the node it was pointing
+     * to, or if it had not been moved yet, to the last child of the root node.
+     *
+     * @param visitor The visitor
+     */
+    public void accept(TreeVisitor<? super N> visitor) {
+        if (!firstChild()) {
+            return;
+        }
+        int level = 1;
+        while (true) {
+            if (!(visitor.enter(currentPath, currentNode) && firstChild())) {
+                visitor.leave(currentPath, currentNode);
+                while (!nextSibling()) {
+                    // The node being iterated at this level is the parent of current node
+                    N parentNode = stack.get(depth - 1).node;
+                    if (--level == 0) {
+                        if (depth > 1) {
+                            depth--;
+                            currentPath.pop();
+                            currentNode = parentNode;
+                        }
+                        return;
+                    }
+                    depth--;
+                    currentPath.pop();
+                    currentNode = parentNode;
+                    visitor.leave(currentPath, currentNode);
+                }
+            } else {
+                level++;
+            }
+        }
+    }
+
     /**
      * Returns a cursor over the immediate children of the node
      *
@@ -237,14 +292,33 @@ public abstract class AbstractTreeCursor<N> {
      */
     protected abstract KeyValueCursor<String, N> getCursor(N node);
 
+    /**
+     * Returns a cursor over the immediate children of the node, reusing the given cursor if possible. The default
+     * implementation calls <code>getCursor(node)</code>.
+     *
+     * @param node The node for which the cursor will be returned
+     * @param reuse A cursor previously returned by this method that is no longer in use, or null
+     */
+    protected KeyValueCursor<String, N> getCursor(N node, KeyValueCursor<String, N> reuse) {
+        return getCursor(node);
+    }
+
     /**
      * Returns true if the node given node has children
      */
     protected abstract boolean hasChildren(N node);
 
     private LevelState<N> pushNode(N node) {
-        LevelState<N> ret = new LevelState<>(node, getCursor(node));
-        stack.addLast(ret);
+        LevelState<N> ret;
+        if (depth < stack.size()) {
+            ret = stack.get(depth);
+        } else {
+            ret = new LevelState<>();
+            stack.add(ret);
+        }
+        ret.cursor = getCursor(node, ret.cursor);
+        ret.node = node;
+        depth++;
         return ret;
     }
 
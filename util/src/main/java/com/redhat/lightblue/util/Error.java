@@ -19,6 +19,7 @@
 package com.redhat.lightblue.util;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 
 import java.util.StringTokenizer;
 
@@ -30,7 +31,10 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
  * Error object. Maintains an error code, message, and context of the error. The context works as a stack of context
  * information that can be passed to the client as an indicator of where the error happened.
  *
- * The error object also provides static APIs that keep the execution context for the current thread.
+ * The error object also provides static APIs that keep the execution context for the current thread. Pushing and
+ * popping context is cheap: the per-thread stack is reused, and context objects are only converted to strings when an
+ * Error is constructed. So callers can push objects such as paths without formatting them first, as long as the
+ * objects do not change while they are on the stack.
  */
 public final class Error extends RuntimeException {
 
@@ -38,10 +42,10 @@ public final class Error extends RuntimeException {
 
     private static final JsonNodeFactory FACTORY = JsonNodeFactory.withExactBigDecimals(true);
 
-    private static final ThreadLocal<ArrayDeque<String>> THREAD_CONTEXT = new ThreadLocal< ArrayDeque<String>>() {
+    private static final ThreadLocal<ContextStack> THREAD_CONTEXT = new ThreadLocal<ContextStack>() {
         @Override
-        protected ArrayDeque<String> initialValue() {
-            return new ArrayDeque<>();
+        protected ContextStack initialValue() {
+            return new ContextStack();
         }
     };
 
@@ -51,24 +55,97 @@ public final class Error extends RuntimeException {
     private final String errorCode;
     private final String msg;
 
+    /**
+     * Context stack of a thread. The arrays are reused for the lifetime of the thread. Every frame has a context
+     * object, and an optional argument, rendered as <code>context(argument)</code>.
+     */
+    private static final class ContextStack {
+        private static final Object NO_ARG = new Object();
+
+        private Object[] contexts = new Object[16];
+        private Object[] args = new Object[16];
+        private Object[] args2 = new Object[16];
+        private int size = 0;
+
+        public void push(Object context, Object arg, Object arg2) {
+            if (size == contexts.length) {
+                contexts = Arrays.copyOf(contexts, size * 2);
+                args = Arrays.copyOf(args, size * 2);
+                args2 = Arrays.copyOf(args2, size * 2);
+            }
+            contexts[size] = context;
+            args[size] = arg;
+            args2[size] = arg2;
+            size++;
+        }
+
+        public void pop() {
+            if (size > 0) {
+                size--;
+                contexts[size] = null;
+                args[size] = null;
+                args2[size] = null;
+            }
+        }
+
+        public void clear() {
+            Arrays.fill(contexts, 0, size, null);
+            Arrays.fill(args, 0, size, null);
+            Arrays.fill(args2, 0, size, null);
+            size = 0;
+        }
+
+        public ArrayDeque<String> toStrings() {
+            ArrayDeque<String> ret = new ArrayDeque<>(size + 1);
+            for (int i = 0; i < size; i++) {
+                if (args[i] == NO_ARG) {
+                    ret.addLast(String.valueOf(contexts[i]));
+                } else if (args2[i] == NO_ARG) {
+                    ret.addLast(contexts[i] + "(" + args[i] + ")");
+                } else {
+                    ret.addLast(contexts[i] + "(" + args[i] + ":" + args2[i] + ")");
+                }
+            }
+            return ret;
+        }
+    }
+
     /**
      * Pushes the given context information to the current thread stack
      */
     public static void push(String context) {
-        THREAD_CONTEXT.get().addLast(context);
+        THREAD_CONTEXT.get().push(context, ContextStack.NO_ARG, ContextStack.NO_ARG);
+    }
+
+    /**
+     * Pushes the given context object to the current thread stack. The object is converted to a string only if an
+     * error is constructed while it is on the stack, so it must not change until it is popped.
+     */
+    public static void push(Object context) {
+        THREAD_CONTEXT.get().push(context, ContextStack.NO_ARG, ContextStack.NO_ARG);
+    }
+
+    /**
+     * Pushes <code>operation(arg)</code> to the current thread stack, without building the string. The argument is
+     * converted to a string only if an error is constructed while it is on the stack.
+     */
+    public static void push(String operation, Object arg) {
+        THREAD_CONTEXT.get().push(operation, arg, ContextStack.NO_ARG);
+    }
+
+    /**
+     * Pushes <code>operation(arg1:arg2)</code> to the current thread stack, without building the string. The arguments
+     * are converted to strings only if an error is constructed while they are on the stack.
+     */
+    public static void push(String operation, Object arg1, Object arg2) {
+        THREAD_CONTEXT.get().push(operation, arg1, arg2);
     }
 
     /**
      * Pops the context information from current thread stack
      */
     public static void pop() {
-        ArrayDeque<String> c = THREAD_CONTEXT.get();
-        if (!c.isEmpty()) {
-            c.removeLast();
-        }
-        if (c.isEmpty()) {
-            reset();
-        }
+        THREAD_CONTEXT.get().pop();
     }
 
     /**
@@ -76,28 +153,28 @@ public final class Error extends RuntimeException {
      */
     public static Error get(String ctx, String errorCode, String msg) {
         push(ctx);
-        return new Error(THREAD_CONTEXT.get(), errorCode, msg);
+        return new Error(THREAD_CONTEXT.get().toStrings(), errorCode, msg);
     }
 
     /**
      * Constructs a new error object using the current context
      */
     public static Error get(String errorCode, String msg) {
-        return new Error(THREAD_CONTEXT.get(), errorCode, msg);
+        return new Error(THREAD_CONTEXT.get().toStrings(), errorCode, msg);
     }
 
     /**
      * Constructs a new error object using the current context
      */
     public static Error get(String errorCode) {
-        return new Error(THREAD_CONTEXT.get(), errorCode, null);
+        return new Error(THREAD_CONTEXT.get().toStrings(), errorCode, null);
     }
 
     /**
      * Resets the stack thread context
      */
     public static void reset() {
-        THREAD_CONTEXT.remove();
+        THREAD_CONTEXT.get().clear();
     }
 
     private Error(String errorCode, String msg) {
@@ -107,7 +184,7 @@ public final class Error extends RuntimeException {
     }
 
     private Error(ArrayDeque<String> context, String errorCode, String msg) {
-        this.context = (ArrayDeque<String>) context.clone();
+        this.context = context;
         this.errorCode = errorCode;
         this.msg = msg;
     }
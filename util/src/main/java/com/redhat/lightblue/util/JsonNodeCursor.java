@@ -19,6 +19,8 @@
 package com.redhat.lightblue.util;
 
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -30,29 +32,56 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
  */
 public final class JsonNodeCursor extends AbstractTreeCursor<JsonNode> {
 
-    private static final class ArrayElementCursor implements KeyValueCursor<String, JsonNode> {
-        private int index = -1;
-        private final Iterator<JsonNode> itr;
+    /**
+     * Cursor over the elements of an array or the fields of an object. Array elements are accessed by index, and the
+     * cursor is reset and reused for the next node at the same level.
+     */
+    private static final class ChildCursor implements KeyValueCursor<String, JsonNode> {
+        private ArrayNode array;
+        private int index;
+        private Iterator<Map.Entry<String, JsonNode>> fields;
+        private String key;
         private JsonNode node;
 
-        public ArrayElementCursor(Iterator<JsonNode> itr) {
-            this.itr = itr;
+        public ChildCursor reset(JsonNode parent) {
+            if (parent instanceof ArrayNode) {
+                array = (ArrayNode) parent;
+                fields = null;
+            } else if (parent instanceof ObjectNode) {
+                array = null;
+                fields = ((ObjectNode) parent).fields();
+            } else {
+                throw new IllegalArgumentException(parent.getClass().getName());
+            }
+            index = -1;
+            key = null;
+            node = null;
+            return this;
         }
 
         @Override
         public boolean hasNext() {
-            return itr.hasNext();
+            return array == null ? fields.hasNext() : index + 1 < array.size();
         }
 
         @Override
         public void next() {
-            node = itr.next();
-            index++;
+            if (array == null) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                key = entry.getKey();
+                node = entry.getValue();
+            } else {
+                if (index + 1 >= array.size()) {
+                    throw new NoSuchElementException();
+                }
+                node = array.get(++index);
+                key = PathRep.indexString(index);
+            }
         }
 
         @Override
         public String getCurrentKey() {
-            return Integer.toString(index);
+            return key;
         }
 
         @Override
@@ -67,12 +96,15 @@ public final class JsonNodeCursor extends AbstractTreeCursor<JsonNode> {
 
     @Override
     protected KeyValueCursor<String, JsonNode> getCursor(JsonNode node) {
-        if (node instanceof ArrayNode) {
-            return new ArrayElementCursor(((ArrayNode) node).elements());
-        } else if (node instanceof ObjectNode) {
-            return new KeyValueCursorIteratorAdapter<>(((ObjectNode) node).fields());
+        return new ChildCursor().reset(node);
+    }
+
+    @Override
+    protected KeyValueCursor<String, JsonNode> getCursor(JsonNode node, KeyValueCursor<String, JsonNode> reuse) {
+        if (reuse instanceof ChildCursor) {
+            return ((ChildCursor) reuse).reset(node);
         } else {
-            throw new IllegalArgumentException(node.getClass().getName());
+            return getCursor(node);
         }
     }
 
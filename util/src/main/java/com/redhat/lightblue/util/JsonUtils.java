@@ -21,8 +21,22 @@ package com.redhat.lightblue.util;
 import java.util.Map;
 import java.util.Iterator;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.type.ResolvedType;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -34,7 +48,22 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 public final class JsonUtils {
 
     /**
-     * Returns an object mapper to parse JSON text
+     * The shared mapper. It is never handed out, only the immutable reader
+     * and writer built from it are, so its configuration cannot change once
+     * it is built, and it is thread safe. Streams passed in by callers are
+     * left open.
+     */
+    private static final ObjectMapper MAPPER = createObjectMapper();
+    private static final ObjectReader READER = MAPPER.reader();
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    private static final ObjectCodec CODEC = new SharedCodec();
+    private static final JsonFactory FACTORY = createFactory();
+
+    /**
+     * Returns a new object mapper to parse JSON text. The caller is free to
+     * reconfigure it. Callers that only read or write trees should use the
+     * shared reader and writer instead, they don't pay for building the
+     * mapper and its caches every time.
      */
     public static ObjectMapper getObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -42,12 +71,78 @@ public final class JsonUtils {
         return mapper;
     }
 
+    /**
+     * Returns the shared, thread safe reader. Floating point numbers are read
+     * as BigDecimal.
+     */
+    public static ObjectReader getObjectReader() {
+        return READER;
+    }
+
+    /**
+     * Returns the shared, thread safe writer
+     */
+    public static ObjectWriter getObjectWriter() {
+        return WRITER;
+    }
+
+    /**
+     * Returns the shared codec, to be used with streaming generators and
+     * parsers. Values are read with the shared reader, and written with the
+     * shared writer.
+     */
+    public static ObjectCodec getObjectCodec() {
+        return CODEC;
+    }
+
+    /**
+     * Creates a generator writing to the given stream, using the shared
+     * codec. Closing the generator does not close the stream.
+     */
+    public static JsonGenerator createGenerator(OutputStream out)
+            throws IOException {
+        return FACTORY.createGenerator(out);
+    }
+
     /**
      * Parses a string and retruns a JSON tree
      */
     public static JsonNode json(String s)
             throws IOException {
-        return getObjectMapper().readTree(s);
+        return READER.readTree(s);
+    }
+
+    /**
+     * Parses a stream and returns a JSON tree. The stream is not closed.
+     */
+    public static JsonNode json(InputStream s)
+            throws IOException {
+        return READER.readTree(s);
+    }
+
+    /**
+     * Parses the text from a reader and returns a JSON tree. The reader is
+     * not closed.
+     */
+    public static JsonNode json(Reader s)
+            throws IOException {
+        return READER.readTree(s);
+    }
+
+    /**
+     * Writes a JSON tree to a stream in UTF-8. The stream is not closed.
+     */
+    public static void write(OutputStream out, JsonNode node)
+            throws IOException {
+        WRITER.writeValue(out, node);
+    }
+
+    /**
+     * Writes a JSON tree to a writer. The writer is not closed.
+     */
+    public static void write(Writer out, JsonNode node)
+            throws IOException {
+        WRITER.writeValue(out, node);
     }
 
     /**
@@ -174,6 +269,107 @@ public final class JsonUtils {
         }
     }
 
+    private static ObjectMapper createObjectMapper() {
+        ObjectMapper mapper = getObjectMapper();
+        mapper.getFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return mapper;
+    }
+
+    private static JsonFactory createFactory() {
+        JsonFactory factory = new JsonFactory(CODEC);
+        factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return factory;
+    }
+
+    /**
+     * Codec that reads with the shared reader and writes with the shared
+     * writer. Unlike the mapper, neither can be reconfigured through the
+     * codec.
+     */
+    private static final class SharedCodec extends ObjectCodec {
+
+        @Override
+        public <T> T readValue(JsonParser jp, Class<T> valueType)
+                throws IOException {
+            return READER.readValue(jp, valueType);
+        }
+
+        @Override
+        public <T> T readValue(JsonParser jp, TypeReference<?> valueTypeRef)
+                throws IOException {
+            return READER.readValue(jp, valueTypeRef);
+        }
+
+        @Override
+        public <T> T readValue(JsonParser jp, ResolvedType valueType)
+                throws IOException {
+            return READER.readValue(jp, valueType);
+        }
+
+        @Override
+        public <T extends TreeNode> T readTree(JsonParser jp)
+                throws IOException {
+            return READER.readTree(jp);
+        }
+
+        @Override
+        public <T> Iterator<T> readValues(JsonParser jp, Class<T> valueType)
+                throws IOException {
+            return READER.readValues(jp, valueType);
+        }
+
+        @Override
+        public <T> Iterator<T> readValues(JsonParser jp, TypeReference<?> valueTypeRef)
+                throws IOException {
+            return READER.readValues(jp, valueTypeRef);
+        }
+
+        @Override
+        public <T> Iterator<T> readValues(JsonParser jp, ResolvedType valueType)
+                throws IOException {
+            return READER.readValues(jp, valueType);
+        }
+
+        @Override
+        public void writeValue(JsonGenerator jgen, Object value)
+                throws IOException {
+            WRITER.writeValue(jgen, value);
+        }
+
+        @Override
+        public TreeNode createObjectNode() {
+            return READER.createObjectNode();
+        }
+
+        @Override
+        public TreeNode createArrayNode() {
+            return READER.createArrayNode();
+        }
+
+        @Override
+        public JsonParser treeAsTokens(TreeNode n) {
+            return READER.treeAsTokens(n);
+        }
+
+        @Override
+        public <T> T treeToValue(TreeNode n, Class<T> valueType)
+                throws JsonProcessingException {
+            return READER.treeToValue(n, valueType);
+        }
+
+        @Override
+        public JsonFactory getFactory() {
+            return FACTORY;
+        }
+
+        @Override
+        public JsonFactory getJsonFactory() {
+            return FACTORY;
+        }
+    }
+
     private JsonUtils() {
     }
 }
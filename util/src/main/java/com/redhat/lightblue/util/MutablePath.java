@@ -18,8 +18,6 @@
  */
 package com.redhat.lightblue.util;
 
-import java.util.List;
-
 /**
  * A Path that can be modified. Uses copy-on-write semantics to prevent unnecessary copies.
  */
@@ -64,9 +62,13 @@ public class MutablePath extends Path {
         pathOwned = true;
     }
 
+    /**
+     * Creates a mutable path from the parsed string. The parsed data is shared
+     * until the first update.
+     */
     public MutablePath(String x) {
         super(x);
-        pathOwned = true;
+        pathOwned = false;
     }
 
     @Override
@@ -74,11 +76,14 @@ public class MutablePath extends Path {
         return new MutablePath(this);
     }
 
+    /**
+     * Returns an immutable path sharing the data of this path. This path
+     * makes a copy of the data on the next update.
+     */
     @Override
     public Path immutableCopy() {
-        Path p = new Path();
-        p.setData(new PathRep(getData()));
-        return p;
+        pathOwned = false;
+        return new Path(getData());
     }
 
     /**
@@ -91,8 +96,8 @@ public class MutablePath extends Path {
         if (x == null) {
             throw new IllegalArgumentException(UtilConstants.ERR_NULL_VALUE_PASSED_TO_PUSH);
         }
-        List<String> s = parse(x);
-        if (s != null && !s.isEmpty()) {
+        PathRep s = parseRep(x);
+        if (s.size() > 0) {
             own();
             getData().append(s);
         }
@@ -111,6 +116,24 @@ public class MutablePath extends Path {
         return this;
     }
 
+    /**
+     * Appends a single segment without parsing it. Used by cursors, where the segment is a field name or an index.
+     */
+    MutablePath pushSegment(String x) {
+        own();
+        getData().append(x);
+        return this;
+    }
+
+    /**
+     * Replaces the last segment with x without parsing it
+     */
+    MutablePath setLastSegment(String x) {
+        own();
+        getData().set(getData().size() - 1, x);
+        return this;
+    }
+
     /**
      * Appends the given integer (array index) to the current path segments.
      *
@@ -118,7 +141,9 @@ public class MutablePath extends Path {
      * @return the updated path
      */
     public MutablePath push(int x) {
-        return push(Integer.toString(x));
+        own();
+        getData().append(PathRep.indexString(x));
+        return this;
     }
 
     /**
@@ -144,9 +169,15 @@ public class MutablePath extends Path {
      */
     public Path setLast(String x) {
         try {
+            PathRep s = parseRep(x);
             own();
-            getData().remove(getData().size() - 1);
-            getData().append(parse(x));
+            int last = getData().size() - 1;
+            if (s.size() == 1) {
+                getData().set(last, s.get(0));
+            } else {
+                getData().remove(last);
+                getData().append(s);
+            }
             return this;
         } catch (IndexOutOfBoundsException e) {
             throw new IllegalStateException(UtilConstants.ERR_CANT_SET_LAST_SEGMENT_ON_EMPTY_PATH);
@@ -160,7 +191,13 @@ public class MutablePath extends Path {
      * @return the updated path
      */
     public Path setLast(int x) {
-        return setLast(String.valueOf(x));
+        try {
+            own();
+            getData().set(getData().size() - 1, PathRep.indexString(x));
+            return this;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalStateException(UtilConstants.ERR_CANT_SET_LAST_SEGMENT_ON_EMPTY_PATH);
+        }
     }
 
     public Path set(int i, String x) {
@@ -170,7 +207,7 @@ public class MutablePath extends Path {
     }
 
     public Path set(int i, int value) {
-        return set(i, Integer.toString(value));
+        return set(i, PathRep.indexString(value));
     }
 
     /**
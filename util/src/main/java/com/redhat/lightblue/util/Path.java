@@ -22,7 +22,8 @@ import java.io.Serializable;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents a path in a tree, of the form
@@ -49,7 +50,8 @@ import java.util.Iterator;
  * matches all cities of addresses.
  *
  * Implementation is optimized to be fast to toString and hashCode, and does not occupy too much memory when a lot of
- * paths are created from a common prefix.
+ * paths are created from a common prefix. Parsed paths are cached, so paths created from the same string share their
+ * data, and prefixes and suffixes of immutable paths share the segments of the source path.
  *
  * $parent and $this keywords can be used to create relative paths.
  * <pre>
@@ -73,6 +75,14 @@ public class Path implements Comparable<Path>, Serializable {
     public static final String PARENT = "$parent";
     public static final String THIS = "$this";
 
+    /**
+     * Maximum number of parsed path strings to cache. The cache is cleared
+     * when it is full.
+     */
+    private static final int MAX_CACHED_PATHS = 4096;
+
+    private static final ConcurrentMap<String, PathRep> PARSED = new ConcurrentHashMap<>();
+
     public static final Path EMPTY = new Path();
     public static final Path ANYPATH = new Path(ANY);
 
@@ -89,7 +99,7 @@ public class Path implements Comparable<Path>, Serializable {
      * Constructs a copy of x
      */
     public Path(Path x) {
-        data = new PathRep(x.data);
+        data = x instanceof MutablePath ? new PathRep(x.data) : x.data;
     }
 
     /**
@@ -108,13 +118,18 @@ public class Path implements Comparable<Path>, Serializable {
      * prefix of x with last -pfix elements removed.
      */
     public Path(Path x, int pfix) {
-        data = new PathRep(x.data, pfix);
+        data = x instanceof MutablePath ? new PathRep(x.data, pfix) : x.data.prefixView(pfix);
     }
 
     public Path(String x) {
-        this();
-        List<String> s = parse(x);
-        data.append(s);
+        data = parseRep(x);
+    }
+
+    /**
+     * Constructs a path using the given data. The data is shared.
+     */
+    Path(PathRep data) {
+        this.data = data;
     }
 
     protected void setData(PathRep pr) {
@@ -204,7 +219,7 @@ public class Path implements Comparable<Path>, Serializable {
      * @return
      */
     public int getIndex(int i) {
-        return Integer.valueOf(data.get(i));
+        return Integer.parseInt(data.get(i));
     }
 
     /**
@@ -214,7 +229,7 @@ public class Path implements Comparable<Path>, Serializable {
      * @return
      */
     public boolean isIndex(int i) {
-        return Util.isNumber(data.get(i));
+        return data.isIndex(i);
     }
 
     /**
@@ -222,8 +237,9 @@ public class Path implements Comparable<Path>, Serializable {
      */
     public int nAnys() {
         int n = 0;
-        for (Iterator<String> itr = data.iterator(); itr.hasNext();) {
-            if (ANY.equals(itr.next())) {
+        int size = data.size();
+        for (int i = 0; i < size; i++) {
+            if (ANY.equals(data.get(i))) {
                 n++;
             }
         }
@@ -260,20 +276,18 @@ public class Path implements Comparable<Path>, Serializable {
      * path is a mutable path.
      */
     public Path suffix(final int x) {
-        Path p;
         if (this instanceof MutablePath) {
-            p = new MutablePath((MutablePath) this);
-        } else {
-            p = new Path(this);
-        }
-        int n = p.data.size();
-        if (x >= 0) {
-            p.data.shiftLeft(n - Math.min(n, x));
+            Path p = new MutablePath((MutablePath) this);
+            int n = p.data.size();
+            if (x >= 0) {
+                p.data.shiftLeft(n - Math.min(n, x));
+            } else {
+                p.data.shiftLeft(Math.min(n, Math.abs(x)));
+            }
+            return p;
         } else {
-            p.data.shiftLeft(Math.min(n, Math.abs(x)));
+            return new Path(data.suffixView(x));
         }
-
-        return p;
     }
 
     /**
@@ -351,6 +365,23 @@ public class Path implements Comparable<Path>, Serializable {
         return data.toString();
     }
 
+    /**
+     * Returns the parsed representation of the path string. The returned
+     * data is shared, and must not be modified.
+     */
+    static PathRep parseRep(String x) {
+        PathRep rep = PARSED.get(x);
+        if (rep == null) {
+            List<String> s = parse(x);
+            rep = new PathRep(s.toArray(new String[s.size()]));
+            if (PARSED.size() >= MAX_CACHED_PATHS) {
+                PARSED.clear();
+            }
+            PARSED.put(x, rep);
+        }
+        return rep;
+    }
+
     /**
      * Parses the input path string (x) and appends each segment to the segments argument.
      *
@@ -19,36 +19,76 @@
 package com.redhat.lightblue.util;
 
 import java.io.Serializable;
-
+import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Iterator;
 
 /**
- * Internal representation of Path
+ * Internal representation of Path. The segments are kept in an array, and a
+ * PathRep may be a view of a range of another PathRep's array. Only
+ * MutablePath modifies a PathRep, and only after making sure it is the sole
+ * owner of it, so the data of immutable paths can be shared freely: parsed
+ * paths are shared through the parse cache, and prefixes and suffixes of
+ * immutable paths share the segment array of their source.
  */
 class PathRep implements Serializable, Comparable<PathRep> {
     private static final long serialVersionUID = 1l;
 
-    private final List<String> segments;
+    private static final String[] NO_SEGMENTS = new String[0];
+
+    private static final int MASK_SEGMENTS = Long.SIZE - 1;
+    private static final long MASK_COMPUTED = 1l << MASK_SEGMENTS;
+
+    /**
+     * Cached string values for small array indexes
+     */
+    private static final String[] INDEXES = new String[256];
+
+    static {
+        for (int i = 0; i < INDEXES.length; i++) {
+            INDEXES[i] = Integer.toString(i).intern();
+        }
+    }
+
+    private String[] segments;
+    private int offset;
+    private int size;
 
     private transient String stringValue = null;
     private transient int hashValue = 0;
+    /**
+     * Bit i is set if segment i is an array index, for the first 63
+     * segments. The highest bit is set once the mask is computed, so a
+     * single read tells whether the mask is valid. The data may be shared
+     * between threads, and long writes are not atomic, so the mask is
+     * volatile to keep a thread from reading half of it.
+     */
+    private transient volatile long indexMask = 0;
 
     /**
      * Creates an empty path
      */
     public PathRep() {
-        segments = new ArrayList<String>(10);
+        segments = NO_SEGMENTS;
+    }
+
+    /**
+     * Creates a path from the given segments. The array is owned by the new
+     * instance.
+     */
+    public PathRep(String[] segments) {
+        this.segments = segments;
+        size = segments.length;
     }
 
     /**
      * Copy ctor
      */
     public PathRep(PathRep data) {
-        segments = new ArrayList<String>(data.segments);
+        segments = Arrays.copyOfRange(data.segments, data.offset, data.offset + data.size);
+        size = data.size;
         stringValue = data.stringValue;
         hashValue = data.hashValue;
+        indexMask = data.indexMask;
     }
 
     /**
@@ -58,24 +98,57 @@ class PathRep implements Serializable, Comparable<PathRep> {
      * @param x If x>0, x elements from the beginning are copied. If x<0, -x elements from the end are removed
      */
     public PathRep(PathRep data, int x) {
-        int k = data.segments.size();
-        segments = new ArrayList<String>(k);
-        int n;
-        if (x >= 0) {
-            n = k > x ? x : k;
-        } else {
-            n = k + x;
-        }
-        for (int i = 0; i < n; i++) {
-            segments.add(data.segments.get(i));
+        int n = prefixLength(data.size, x);
+        segments = Arrays.copyOfRange(data.segments, data.offset, data.offset + n);
+        size = n;
+    }
+
+    private PathRep(String[] segments, int offset, int size) {
+        this.segments = segments;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Returns a prefix of this path sharing the segment array of this path. Only for immutable paths.
+     *
+     * @param x If x>0, x elements from the beginning are included. If x<0, -x elements from the end are removed
+     */
+    public PathRep prefixView(int x) {
+        int n = prefixLength(size, x);
+        return n == size ? this : new PathRep(segments, offset, n);
+    }
+
+    /**
+     * Returns a suffix of this path sharing the segment array of this path. Only for immutable paths.
+     *
+     * @param x If x>=0, x elements from the end are included. If x<0, -x elements from the beginning are removed
+     */
+    public PathRep suffixView(int x) {
+        int n = x >= 0 ? Math.min(size, x) : size - Math.min(size, -x);
+        return n == size ? this : new PathRep(segments, offset + size - n, n);
+    }
+
+    private static int prefixLength(int size, int x) {
+        return x >= 0 ? Math.min(size, x) : Math.max(0, size + x);
+    }
+
+    /**
+     * Returns the string for the given array index
+     */
+    public static String indexString(int index) {
+        if (index >= 0 && index < INDEXES.length) {
+            return INDEXES[index];
         }
+        return Integer.toString(index);
     }
 
     /**
      * Clears the path
      */
     public void clear() {
-        segments.clear();
+        Arrays.fill(segments, offset, offset + size, null);
+        size = 0;
         resetState();
     }
 
@@ -85,27 +158,54 @@ class PathRep implements Serializable, Comparable<PathRep> {
     public void resetState() {
         stringValue = null;
         hashValue = 0;
+        indexMask = 0;
     }
 
     /**
      * Returns the number of segments
      */
     public int size() {
-        return segments.size();
+        return size;
     }
 
     /**
      * Returns the element at the index
      */
     public String get(int index) {
-        return segments.get(index);
+        checkIndex(index);
+        return segments[offset + index];
+    }
+
+    /**
+     * Returns if the element at the index is an array index
+     */
+    public boolean isIndex(int index) {
+        checkIndex(index);
+        if (index >= MASK_SEGMENTS) {
+            return Util.isNumber(segments[offset + index]);
+        }
+        long mask = indexMask;
+        if (mask == 0) {
+            mask = MASK_COMPUTED;
+            int n = Math.min(size, MASK_SEGMENTS);
+            for (int i = 0; i < n; i++) {
+                if (Util.isNumber(segments[offset + i])) {
+                    mask |= 1l << i;
+                }
+            }
+            indexMask = mask;
+        }
+        return (mask & (1l << index)) != 0;
     }
 
     /**
      * Removes the element at index
      */
     public void remove(int index) {
-        segments.remove(index);
+        checkIndex(index);
+        int at = offset + index;
+        System.arraycopy(segments, at + 1, segments, at, size - index - 1);
+        segments[offset + --size] = null;
         resetState();
     }
 
@@ -113,30 +213,47 @@ class PathRep implements Serializable, Comparable<PathRep> {
      * Sets the element at index
      */
     public void set(int index, String x) {
-        segments.set(index, x);
+        checkIndex(index);
+        segments[offset + index] = x;
         resetState();
     }
 
-    /**
-     * Returns an iterator over segments
-     */
-    public Iterator<String> iterator() {
-        return segments.iterator();
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
     }
 
     @Override
     public int hashCode() {
         if (hashValue == 0) {
-            hashValue = segments.hashCode();
+            int h = 1;
+            int end = offset + size;
+            for (int i = offset; i < end; i++) {
+                h = 31 * h + segments[i].hashCode();
+            }
+            hashValue = h;
         }
         return hashValue;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
         if (o instanceof PathRep) {
             PathRep r = (PathRep) o;
-            return r.segments.equals(segments);
+            if (r.size != size
+                    || (hashValue != 0 && r.hashValue != 0 && hashValue != r.hashValue)) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!segments[offset + i].equals(r.segments[r.offset + i])) {
+                    return false;
+                }
+            }
+            return true;
         }
         return false;
     }
@@ -146,21 +263,10 @@ class PathRep implements Serializable, Comparable<PathRep> {
      */
     public void shiftLeft(final int from) {
         if (from > 0) {
-            int n = segments.size();
-            if (from >= n) {
-                segments.clear();
-            } else {
-                int iFrom = from;
-                int k = n - iFrom;
-                int to = 0;
-                for (int i = 0; i < k; i++) {
-                    segments.set(to++, segments.get(iFrom++));
-                }
-                k = n - k;
-                for (int i = 0; i < k; i++) {
-                    segments.remove(--n);
-                }
-            }
+            int n = Math.min(from, size);
+            System.arraycopy(segments, offset + n, segments, offset, size - n);
+            Arrays.fill(segments, offset + size - n, offset + size, null);
+            size -= n;
             resetState();
         }
     }
@@ -169,7 +275,20 @@ class PathRep implements Serializable, Comparable<PathRep> {
      * Appends p to the end of this
      */
     public void append(PathRep p) {
-        append(p.segments);
+        if (p.size > 0) {
+            ensureCapacity(size + p.size);
+            System.arraycopy(p.segments, p.offset, segments, offset + size, p.size);
+            size += p.size;
+            resetState();
+        }
+    }
+
+    /**
+     * Appends a single segment to the end of this
+     */
+    public void append(String x) {
+        ensureCapacity(size + 1);
+        segments[offset + size++] = x;
         resetState();
     }
 
@@ -177,40 +296,53 @@ class PathRep implements Serializable, Comparable<PathRep> {
      * Appends the string segments to the end of this
      */
     public void append(List<String> x) {
-        segments.addAll(x);
-        resetState();
+        if (!x.isEmpty()) {
+            ensureCapacity(size + x.size());
+            for (String s : x) {
+                segments[offset + size++] = s;
+            }
+            resetState();
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (offset + n > segments.length) {
+            String[] arr = new String[Math.max(n, size * 2 + 4)];
+            System.arraycopy(segments, offset, arr, 0, size);
+            segments = arr;
+            offset = 0;
+        }
     }
 
     @Override
     public int compareTo(PathRep x) {
-        int tn = segments.size();
-        int xn = x.segments.size();
-        int n = tn > xn ? xn : tn;
+        int n = size > x.size ? x.size : size;
         int index = 0;
         while (index < n) {
-            int cmp = segments.get(index).compareTo(x.segments.get(index));
+            int cmp = segments[offset + index].compareTo(x.segments[x.offset + index]);
             if (cmp != 0) {
                 return cmp;
             }
             index++;
         }
-        return tn - xn;
+        return size - x.size;
     }
 
     @Override
     public String toString() {
         if (stringValue == null) {
-            StringBuilder buf = new StringBuilder(segments.size() * 8);
-            boolean first = true;
-            for (String x : segments) {
-                if (first) {
-                    first = false;
-                } else {
-                    buf.append('.');
+            if (size == 1) {
+                stringValue = segments[offset];
+            } else {
+                StringBuilder buf = new StringBuilder(size * 8);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        buf.append('.');
+                    }
+                    buf.append(segments[offset + i]);
                 }
-                buf.append(x);
+                stringValue = buf.toString();
             }
-            stringValue = buf.toString();
         }
         return stringValue;
     }
@@ -0,0 +1,44 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.util;
+
+/**
+ * Callback interface for a depth-first traversal of a tree using AbstractTreeCursor.accept. The path passed to the
+ * methods is owned by the cursor, and it is only valid during the call. Use path.immutableCopy() to keep it.
+ */
+public interface TreeVisitor<N> {
+
+    /**
+     * Called when the traversal reaches a node
+     *
+     * @param path Path of the node
+     * @param node The node
+     *
+     * @return true if the children of the node should be visited
+     */
+    boolean enter(Path path, N node);
+
+    /**
+     * Called after the node and its children are visited
+     *
+     * @param path Path of the node
+     * @param node The node
+     */
+    void leave(Path path, N node);
+}
@@ -258,4 +258,47 @@ public class ErrorTest {
         Assert.assertEquals("b", fromJson.getErrorCode());
         Assert.assertEquals("c", fromJson.getMsg());
     }
+
+    @Test
+    public void push_object_is_converted_when_error_is_created() {
+        final int[] calls = new int[1];
+        Object ctx = new Object() {
+            @Override
+            public String toString() {
+                calls[0]++;
+                return "lazy";
+            }
+        };
+        Error.push(ctx);
+        Error.push("op", new Path("a.b"));
+        Error.push("op2", ctx, "1.0");
+        Assert.assertEquals(0, calls[0]);
+
+        Error e = Error.get("code");
+        Assert.assertEquals(2, calls[0]);
+        Assert.assertEquals("lazy/op(a.b)/op2(lazy:1.0)", e.getContext());
+
+        Error.pop();
+        Error.pop();
+        Error.pop();
+        Assert.assertEquals("", Error.get("code").getContext());
+        Assert.assertEquals("lazy/op(a.b)/op2(lazy:1.0)", e.getContext());
+    }
+
+    @Test
+    public void deep_context_stack() {
+        StringBuilder buff = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                buff.append(Error.DELIMITER);
+            }
+            buff.append(i);
+            Error.push(Integer.toString(i));
+        }
+        Assert.assertEquals(buff.toString(), Error.get("code").getContext());
+        for (int i = 0; i < 100; i++) {
+            Error.pop();
+        }
+        Assert.assertEquals("", Error.get("code").getContext());
+    }
 }
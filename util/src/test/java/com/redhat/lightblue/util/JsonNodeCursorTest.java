@@ -303,4 +303,49 @@ public class JsonNodeCursorTest {
 
         Assert.assertFalse(c.next());
     }
+
+    @Test
+    public void accept_visits_all_nodes_in_order() throws IOException {
+        JsonNode node = JsonUtils.json("{\"a\":{\"b\":1,\"c\":[1,{\"d\":2}]},\"e\":\"x\",\"f\":{}}");
+        final StringBuilder bld = new StringBuilder();
+        JsonNodeCursor c = new JsonNodeCursor(Path.EMPTY, node);
+        c.accept(new TreeVisitor<JsonNode>() {
+            @Override
+            public boolean enter(Path path, JsonNode node) {
+                bld.append('+').append(path).append(' ');
+                return true;
+            }
+
+            @Override
+            public void leave(Path path, JsonNode node) {
+                bld.append('-').append(path).append(' ');
+            }
+        });
+        Assert.assertEquals("+a +a.b -a.b +a.c +a.c.0 -a.c.0 +a.c.1 +a.c.1.d -a.c.1.d -a.c.1 -a.c -a +e -e +f -f ",
+                bld.toString());
+    }
+
+    @Test
+    public void accept_skips_children_and_restores_position() throws IOException {
+        JsonNode node = JsonUtils.json("{\"a\":{\"b\":{\"c\":1},\"d\":2},\"e\":3}");
+        final StringBuilder bld = new StringBuilder();
+        JsonNodeCursor c = new JsonNodeCursor(Path.EMPTY, node);
+        Assert.assertTrue(c.firstChild());
+        c.accept(new TreeVisitor<JsonNode>() {
+            @Override
+            public boolean enter(Path path, JsonNode node) {
+                bld.append(path).append(' ');
+                return !path.getLast().equals("b");
+            }
+
+            @Override
+            public void leave(Path path, JsonNode node) {
+            }
+        });
+        Assert.assertEquals("a.b a.d ", bld.toString());
+        Assert.assertEquals("a", c.getCurrentPath().toString());
+        Assert.assertSame(node.get("a"), c.getCurrentNode());
+        Assert.assertTrue(c.nextSibling());
+        Assert.assertEquals("e", c.getCurrentPathView().toString());
+    }
 }
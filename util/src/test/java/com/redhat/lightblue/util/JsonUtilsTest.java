@@ -19,6 +19,15 @@
 
 package com.redhat.lightblue.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.After;
@@ -33,8 +42,11 @@ import org.junit.Ignore;
  *
  * @author lcestari
  */
-@Ignore
 public class JsonUtilsTest {
+
+    private static final String DOC = "{\"a\":1,\"b\":[1.5,\"x\",{\"c\":true}],\"d\":null}";
+
+    @Ignore
     @Test
     public void testGetObjectMapper() {
         System.out.println("getObjectMapper");
@@ -45,6 +57,7 @@ public class JsonUtilsTest {
         fail("The test case is a prototype.");
     }
 
+    @Ignore
     @Test
     public void testJson() throws Exception {
         System.out.println("json");
@@ -56,6 +69,7 @@ public class JsonUtilsTest {
         fail("The test case is a prototype.");
     }
 
+    @Ignore
     @Test
     public void testPrettyPrint_JsonNode() {
         System.out.println("prettyPrint");
@@ -67,6 +81,7 @@ public class JsonUtilsTest {
         fail("The test case is a prototype.");
     }
 
+    @Ignore
     @Test
     public void testPrettyPrint_StringBuilder_JsonNode() {
         System.out.println("prettyPrint");
@@ -77,17 +92,93 @@ public class JsonUtilsTest {
         fail("The test case is a prototype.");
     }
     
+    @Ignore
     @Test
     public void testJsonWithNoInput() throws Exception {
-        JsonUtils.json(null);
+        JsonUtils.json((String) null);
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
     }
     
+    @Ignore
     @Test
     public void testJsonWithInvalidJSONInput() throws Exception {
         JsonUtils.json("a");
         // TODO review the generated test code and remove the default call to fail.
         fail("The test case is a prototype.");
     }
+
+    @Test
+    public void testJsonInputStream() throws Exception {
+        ByteArrayInputStream in = new ByteArrayInputStream(DOC.getBytes("UTF-8"));
+        JsonNode node = JsonUtils.json(in);
+        assertEquals(JsonUtils.json(DOC), node);
+        // Floating point numbers are read as BigDecimal
+        assertTrue(node.get("b").get(0).isBigDecimal());
+    }
+
+    @Test
+    public void testJsonReader() throws Exception {
+        final boolean[] closed = new boolean[1];
+        Reader reader = new StringReader(DOC) {
+            @Override
+            public void close() {
+                closed[0] = true;
+                super.close();
+            }
+        };
+        assertEquals(JsonUtils.json(DOC), JsonUtils.json(reader));
+        assertFalse(closed[0]);
+    }
+
+    @Test
+    public void testWriteOutputStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("Stream closed");
+            }
+        };
+        JsonUtils.write(out, JsonUtils.json(DOC));
+        assertEquals(JsonUtils.json(DOC), JsonUtils.json(out.toString("UTF-8")));
+    }
+
+    @Test
+    public void testWriteWriter() throws Exception {
+        StringWriter out = new StringWriter() {
+            @Override
+            public void close() {
+                fail("Writer closed");
+            }
+        };
+        JsonUtils.write(out, JsonUtils.json(DOC));
+        assertEquals(JsonUtils.json(DOC), JsonUtils.json(out.toString()));
+    }
+
+    @Test
+    public void testCreateGenerator() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("Stream closed");
+            }
+        };
+        JsonGenerator generator = JsonUtils.createGenerator(out);
+        assertSame(JsonUtils.getObjectCodec(), generator.getCodec());
+        generator.writeStartArray();
+        generator.writeTree(JsonUtils.json(DOC));
+        generator.writeTree(JsonUtils.json("2"));
+        generator.writeEndArray();
+        generator.close();
+        assertEquals(JsonUtils.json("[" + DOC + ",2]"), JsonUtils.json(out.toString("UTF-8")));
+    }
+
+    @Test
+    public void testObjectCodecIsNotMapper() throws Exception {
+        ObjectCodec codec = JsonUtils.getObjectCodec();
+        assertFalse(codec instanceof ObjectMapper);
+        assertSame(codec, codec.getFactory().getCodec());
+        JsonParser parser = codec.getFactory().createParser(DOC);
+        assertEquals(JsonUtils.json(DOC), codec.readTree(parser));
+    }
 }
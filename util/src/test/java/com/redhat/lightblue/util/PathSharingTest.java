@@ -0,0 +1,83 @@
+/*
+ Copyright 2013 Red Hat, Inc. and/or its affiliates.
+
+ This file is part of lightblue.
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.redhat.lightblue.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PathSharingTest {
+
+    @Test
+    public void mutable_path_from_string_does_not_change_parsed_path() {
+        MutablePath m = new MutablePath("a.b.c");
+        m.push("d").set(0, "x");
+        Assert.assertEquals("x.b.c.d", m.toString());
+        Assert.assertEquals("a.b.c", new Path("a.b.c").toString());
+    }
+
+    @Test
+    public void immutable_copy_does_not_see_later_updates() {
+        MutablePath m = new MutablePath("a.b");
+        Path p = m.immutableCopy();
+        m.setLast(1);
+        m.push("c");
+        Assert.assertEquals("a.b", p.toString());
+        Assert.assertEquals("a.1.c", m.toString());
+        Path q = m.immutableCopy();
+        m.pop().pop();
+        Assert.assertEquals("a.1.c", q.toString());
+        Assert.assertEquals("a", m.toString());
+    }
+
+    @Test
+    public void prefix_and_suffix_views() {
+        Path p = new Path("a.b.1.c.d");
+        Path pfx = p.prefix(-2);
+        Path sfx = p.suffix(-2);
+        Assert.assertEquals(new Path("a.b.1"), pfx);
+        Assert.assertEquals(new Path("1.c.d"), sfx);
+        Assert.assertEquals(new Path("a.b.1").hashCode(), pfx.hashCode());
+        Assert.assertEquals(new Path("1.c.d").hashCode(), sfx.hashCode());
+        Assert.assertTrue(sfx.isIndex(0));
+        Assert.assertFalse(sfx.isIndex(1));
+        Assert.assertEquals(new Path("1.c"), sfx.prefix(2));
+        Assert.assertEquals(new Path("c"), pfx.add(sfx).suffix(2).prefix(1));
+
+        MutablePath m = new MutablePath(sfx);
+        m.push("e");
+        Assert.assertEquals("1.c.d.e", m.toString());
+        Assert.assertEquals("a.b.1.c.d", p.toString());
+    }
+
+    @Test
+    public void index_flags_on_long_paths() {
+        MutablePath m = new MutablePath();
+        for (int i = 0; i < 70; i++) {
+            if (i % 2 == 0) {
+                m.push(i);
+            } else {
+                m.push("f" + i);
+            }
+        }
+        Path p = m.immutableCopy();
+        for (int i = 0; i < 70; i++) {
+            Assert.assertEquals(i % 2 == 0, p.isIndex(i));
+        }
+    }
+}